@@ -0,0 +1,224 @@
+package dev.ameruzily.campsystem.bench;
+
+import dev.ameruzily.campsystem.managers.BankLedger;
+import dev.ameruzily.campsystem.managers.CampDataCodec;
+import dev.ameruzily.campsystem.managers.CampInfoSnapshot;
+import dev.ameruzily.campsystem.managers.SqliteStorageBackend;
+import dev.ameruzily.campsystem.managers.StateManager;
+import dev.ameruzily.campsystem.managers.StorageBackend;
+import dev.ameruzily.campsystem.managers.StorageTimers;
+import dev.ameruzily.campsystem.managers.YamlStorageBackend;
+import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.SectorPosition;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * 存档路径基准：生成 states 个国家、每国 sectors 个分区、transactions 条银行流水的合成世界，
+ * 分别测量快照生成、序列化、写入与读取，覆盖插件支持的每种存储格式。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    private static final Logger LOGGER = Logger.getLogger("CampSystem-Bench");
+
+    @State(Scope.Benchmark)
+    public static class World {
+        @Param({"100", "1000"})
+        public int states;
+
+        @Param({"8"})
+        public int sectors;
+
+        @Param({"200"})
+        public int transactions;
+
+        List<StateManager.StateData> stateList;
+        Map<String, Camp> camps;
+        YamlConfiguration snapshot;
+        StorageBackend.SaveBatch batch;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            Random random = new Random(42L);
+            stateList = new ArrayList<>(states);
+            camps = new HashMap<>();
+            for (int i = 0; i < states; i++) {
+                String name = "State" + i;
+                StateManager.StateData state = new StateManager.StateData(name, new UUID(i, 0L));
+                state.bankBalance = random.nextInt(100_000);
+                state.taxAmount = 10.0;
+                for (int m = 0; m < 20; m++) {
+                    state.members.add(new UUID(i, m + 1L));
+                }
+                for (int j = 0; j < sectors; j++) {
+                    String sectorName = name + "-" + j;
+                    UUID owner = j == 0 ? state.captain : new UUID(i, (j % 20) + 1L);
+                    state.sectors.put(sectorName, new StateManager.SectorData(sectorName,
+                            SectorPosition.of("world", i * 256 + j * 16, 64, j * 16), owner));
+                    Camp camp = new Camp(name + ":" + sectorName, name, sectorName, 1000.0);
+                    camp.setHp(random.nextDouble() * 1000.0);
+                    camps.put(key(name, sectorName), camp);
+                }
+                if (state.capitalSector == null && !state.sectors.isEmpty()) {
+                    state.capitalSector = state.sectors.keySet().iterator().next();
+                }
+                stateList.add(state);
+            }
+            snapshot = buildSnapshot(this);
+            batch = buildBatch(this);
+        }
+
+        Camp camp(String state, String sector) {
+            return camps.get(key(state, sector));
+        }
+
+        private static String key(String state, String sector) {
+            return state + "|" + sector;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Backend {
+        @Param({"yaml", "binary", "sqlite"})
+        public String format;
+
+        Path folder;
+        StorageBackend backend;
+
+        @Setup(Level.Trial)
+        public void setup(World world) throws IOException {
+            folder = Files.createTempDirectory("goc-bench");
+            backend = open(folder.toFile(), format);
+            // 预先写入一份完整存档，供读取基准使用
+            backend.save(world.batch);
+            backend.flush();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            backend.close();
+            deleteRecursively(folder);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Ledger {
+        Path folder;
+        BankLedger ledger;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void setup(World world) throws IOException {
+            folder = Files.createTempDirectory("goc-ledger");
+            ledger = new BankLedger(folder.toFile(), LOGGER);
+            for (StateManager.StateData state : world.stateList) {
+                for (int i = 0; i < world.transactions; i++) {
+                    ledger.append(state.name, StateManager.BankTransaction.fromData(i, StateManager.BankTransactionType.DEPOSIT,
+                            state.captain, 10.0, i * 10.0));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            ledger.close();
+            deleteRecursively(folder);
+        }
+    }
+
+    @Benchmark
+    public YamlConfiguration snapshotBuild(World world) {
+        return buildSnapshot(world);
+    }
+
+    @Benchmark
+    public String serializeYaml(World world) {
+        return world.snapshot.saveToString();
+    }
+
+    @Benchmark
+    public byte[] serializeBinary(World world) {
+        return CampDataCodec.encode(world.snapshot);
+    }
+
+    @Benchmark
+    public void write(World world, Backend backend) {
+        backend.backend.save(world.batch);
+        backend.backend.flush();
+    }
+
+    @Benchmark
+    public YamlConfiguration load(Backend backend) throws IOException {
+        return backend.backend.load();
+    }
+
+    @Benchmark
+    public void ledgerAppend(World world, Ledger ledger) {
+        StateManager.StateData state = world.stateList.get(ledger.cursor++ % world.stateList.size());
+        ledger.ledger.append(state.name, StateManager.BankTransaction.deposit(state.captain, 1.0, state.bankBalance));
+    }
+
+    @Benchmark
+    public BankLedger.Page ledgerPage(World world, Ledger ledger) {
+        StateManager.StateData state = world.stateList.get(ledger.cursor++ % world.stateList.size());
+        return ledger.ledger.pageAsync(state.name, 0, 10).join();
+    }
+
+    private static YamlConfiguration buildSnapshot(World world) {
+        YamlConfiguration root = new YamlConfiguration();
+        root.set("meta.next-auto-id", world.states + 1);
+        ConfigurationSection states = root.createSection("states");
+        for (StateManager.StateData state : world.stateList) {
+            CampInfoSnapshot.writeState(states, state, world::camp);
+        }
+        return root;
+    }
+
+    private static StorageBackend.SaveBatch buildBatch(World world) {
+        List<StorageBackend.StateChange> changes = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        for (StateManager.StateData state : world.stateList) {
+            live.add(state.name);
+            changes.add(new StorageBackend.StateChange(state.name,
+                    CampInfoSnapshot.writeState(new YamlConfiguration(), state, world::camp), Map.of()));
+        }
+        return new StorageBackend.SaveBatch(world.states + 1, changes, live);
+    }
+
+    private static StorageBackend open(File folder, String format) throws IOException {
+        StorageTimers timers = new StorageTimers();
+        if ("sqlite".equals(format)) {
+            SqliteStorageBackend sqlite = new SqliteStorageBackend(folder, LOGGER, "campinfo.db", timers);
+            sqlite.open();
+            return sqlite;
+        }
+        YamlStorageBackend yaml = new YamlStorageBackend(folder, LOGGER, "binary".equals(format), timers);
+        yaml.load();
+        return yaml;
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -25,6 +25,9 @@ public class CampSystem extends JavaPlugin {
     private StateOverviewGuiManager overviewGuiManager;
     private CampProtectionListener protectionListener;
     private CampInfoManager campInfoManager;
+    private BankLedger bankLedger;
+    private ColdStorageManager coldStorageManager;
+    private WorldSnapshotManager snapshotManager;
     private SoundSettings campClickSound;
     private SoundSettings guiClickSound;
     private SoundSettings stateCreateSound;
@@ -54,7 +57,10 @@ public class CampSystem extends JavaPlugin {
         this.warManager = new WarManager(this);
         this.placeholderManager = new PlaceholderManager(this);
         this.hologramManager = new CampHologramManager(this);
+        this.bankLedger = new BankLedger(getDataFolder(), getLogger());
+        this.coldStorageManager = new ColdStorageManager(this);
         this.campInfoManager = new CampInfoManager(this);
+        this.snapshotManager = new WorldSnapshotManager(this);
         this.guiManager = new CampGuiManager(this);
         this.overviewGuiManager = new StateOverviewGuiManager(this);
         loadSounds();
@@ -98,9 +104,18 @@ public class CampSystem extends JavaPlugin {
         if (overviewGuiManager != null) {
             overviewGuiManager.closeAll();
         }
-        if (campInfoManager != null) {
-            campInfoManager.saveNow();
-        }
+        if (coldStorageManager != null) {
+            coldStorageManager.shutdown();
+        }
+        try {
+            if (campInfoManager != null) {
+                campInfoManager.shutdown();
+            }
+        } finally {
+            if (bankLedger != null) {
+                bankLedger.close();
+            }
+        }
         getLogger().info("GovernanceOfColony disabled.");
     }
 
@@ -109,6 +124,7 @@ public class CampSystem extends JavaPlugin {
     public LangManager lang() { return langManager; }
     public IdeologyManager ideology() { return ideologyManager; }
     public StateManager state() { return stateManager; }
+    public WorldSnapshotManager snapshots() { return snapshotManager; }
     public WarManager war() { return warManager; }
     public PlaceholderManager placeholders() { return placeholderManager; }
     public CampHologramManager holograms() { return hologramManager; }
@@ -116,6 +132,8 @@ public class CampSystem extends JavaPlugin {
     public StateOverviewGuiManager overviewGui() { return overviewGuiManager; }
     public CampProtectionListener protection() { return protectionListener; }
     public CampInfoManager campInfo() { return campInfoManager; }
+    public BankLedger ledger() { return bankLedger; }
+    public ColdStorageManager cold() { return coldStorageManager; }
     public GraveXListener getGraveXListener() { return graveXListener; }
     public Economy economy() { return vaultEconomy; }
     public SoundSettings campClickSound() { return campClickSound; }
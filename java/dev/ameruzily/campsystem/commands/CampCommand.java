@@ -1,14 +1,19 @@
 package dev.ameruzily.campsystem.commands;
 
 import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.managers.BankLedger;
+import dev.ameruzily.campsystem.managers.CampSpatialIndex;
 import dev.ameruzily.campsystem.managers.StateManager;
+import dev.ameruzily.campsystem.managers.StorageTimers;
 import dev.ameruzily.campsystem.managers.WarManager;
+import dev.ameruzily.campsystem.models.SectorPosition;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.command.*;
 import org.bukkit.entity.Player;
+import java.io.IOException;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -56,7 +61,7 @@ public class CampCommand implements CommandExecutor {
                 plugin.lang().send(p, "general.no-permission");
                 return true;
             }
-            plugin.config().reload();
+            int invalidSettings = plugin.config().reload();
             plugin.lang().reload();
             plugin.ideology().reload();
             plugin.placeholders().reload();
@@ -82,6 +87,9 @@ public class CampCommand implements CommandExecutor {
             plugin.refreshEconomy();
             plugin.state().startBankTask();
             plugin.lang().send(p, "general.reloaded");
+            if (invalidSettings > 0) {
+                plugin.lang().send(p, "general.reload-invalid", Map.of("count", String.valueOf(invalidSettings)));
+            }
             return true;
         }
 
@@ -97,8 +105,8 @@ public class CampCommand implements CommandExecutor {
                     return true;
                 }
 
-                StateManager.StateData first = plugin.state().findState(args[2]);
-                StateManager.StateData second = plugin.state().findState(args[3]);
+                StateManager.StateData first = plugin.state().findOrRestoreState(args[2]);
+                StateManager.StateData second = plugin.state().findOrRestoreState(args[3]);
                 if (first == null) {
                     plugin.lang().send(p, "war.target-not-found", Map.of("state", args[2]));
                     return true;
@@ -119,6 +127,59 @@ public class CampCommand implements CommandExecutor {
                 return true;
             }
 
+            if (args.length >= 2 && args[1].equalsIgnoreCase("export")) {
+                try {
+                    int exported = plugin.campInfo().exportYaml();
+                    plugin.lang().send(p, "camp.admin-export-success", Map.of("count", String.valueOf(exported)));
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("Failed to export state files: " + ex.getMessage());
+                    plugin.lang().send(p, "camp.admin-export-failed", Map.of("error", String.valueOf(ex.getMessage())));
+                }
+                return true;
+            }
+
+            if (args.length >= 2 && args[1].equalsIgnoreCase("migrate")) {
+                try {
+                    int imported = plugin.campInfo().importFromFiles();
+                    if (imported < 0) {
+                        plugin.lang().send(p, "camp.admin-migrate-not-sql");
+                    } else {
+                        plugin.lang().send(p, "camp.admin-migrate-success", Map.of("count", String.valueOf(imported)));
+                    }
+                } catch (IOException ex) {
+                    plugin.getLogger().warning("Failed to import campinfo.yml: " + ex.getMessage());
+                    plugin.lang().send(p, "camp.admin-migrate-failed", Map.of("error", String.valueOf(ex.getMessage())));
+                }
+                return true;
+            }
+
+            if (args.length >= 2 && args[1].equalsIgnoreCase("stats")) {
+                StorageTimers timers = plugin.campInfo().timers();
+                if (args.length >= 3 && args[2].equalsIgnoreCase("reset")) {
+                    timers.reset();
+                    plugin.lang().send(p, "camp.admin-stats-reset");
+                    return true;
+                }
+                List<StorageTimers.Summary> summaries = timers.summaries();
+                if (summaries.isEmpty()) {
+                    plugin.lang().send(p, "camp.admin-stats-empty");
+                    return true;
+                }
+                plugin.lang().send(p, "camp.admin-stats-header");
+                for (StorageTimers.Summary summary : summaries) {
+                    plugin.lang().send(p, "camp.admin-stats-entry", Map.of(
+                            "stage", summary.stage().label(),
+                            "count", String.valueOf(summary.count()),
+                            "mean", String.format(Locale.ROOT, "%.2f", summary.meanMs()),
+                            "p50", String.format(Locale.ROOT, "%.2f", summary.p50Ms()),
+                            "p95", String.format(Locale.ROOT, "%.2f", summary.p95Ms()),
+                            "p99", String.format(Locale.ROOT, "%.2f", summary.p99Ms()),
+                            "max", String.format(Locale.ROOT, "%.2f", summary.maxMs())
+                    ));
+                }
+                return true;
+            }
+
             plugin.lang().send(p, "camp.unknown");
             return true;
         }
@@ -452,12 +513,13 @@ public class CampCommand implements CommandExecutor {
 
         if (sub.equals("list")) {
             String worldName = p.getWorld().getName();
+            int worldId = SectorPosition.worldId(worldName);
             List<StateManager.StateData> states = new ArrayList<>();
             for (StateManager.StateData data : plugin.state().getStates()) {
                 boolean matches = false;
                 for (StateManager.SectorData sector : data.sectors.values()) {
-                    Location loc = sector.getLocation();
-                    if (loc != null && loc.getWorld() != null && worldName.equals(loc.getWorld().getName())) {
+                    SectorPosition position = sector.getPosition();
+                    if (position != null && position.worldId() == worldId) {
                         matches = true;
                         break;
                     }
@@ -494,6 +556,44 @@ public class CampCommand implements CommandExecutor {
             return true;
         }
 
+        if (sub.equals("near")) {
+            int defaultCount = plugin.config().settings().sectors().nearDefaultResults();
+            int maxCount = plugin.config().settings().sectors().nearMaxResults();
+            int count = defaultCount;
+            if (args.length >= 2) {
+                try {
+                    count = Integer.parseInt(args[1]);
+                } catch (NumberFormatException ignored) {
+                    plugin.lang().send(p, "state.near-usage");
+                    return true;
+                }
+            }
+            count = Math.min(Math.max(1, count), maxCount);
+
+            Location here = p.getLocation();
+            List<CampSpatialIndex.Nearby> nearby = plugin.state().findNearestSectors(here, count);
+            if (nearby.isEmpty()) {
+                plugin.lang().send(p, "state.near-empty", Map.of("world", p.getWorld().getName()));
+                return true;
+            }
+
+            plugin.lang().send(p, "state.near-header", Map.of("count", String.valueOf(nearby.size())));
+            double fallback = plugin.state().getSpatialIndex().getMinExtent();
+            for (CampSpatialIndex.Nearby near : nearby) {
+                CampSpatialIndex.Entry entry = near.entry();
+                double edge = entry.distanceToBoundary(here.getX(), here.getZ(), fallback);
+                Map<String, String> vars = new HashMap<>();
+                vars.put("state", entry.state());
+                vars.put("sector", entry.sector());
+                vars.put("distance", String.valueOf(Math.round(near.distance())));
+                vars.put("edge", String.valueOf(Math.round(edge)));
+                vars.put("x", String.valueOf(entry.x()));
+                vars.put("z", String.valueOf(entry.z()));
+                plugin.lang().send(p, edge <= 0.0 ? "state.near-entry-inside" : "state.near-entry", vars);
+            }
+            return true;
+        }
+
         if (sub.equals("join")) {
             if (args.length < 2) {
                 plugin.lang().send(p, "state.join-usage");
@@ -574,7 +674,7 @@ public class CampCommand implements CommandExecutor {
         }
 
         if (sub.equals("bank")) {
-            if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+            if (!plugin.config().settings().bank().enabled()) {
                 plugin.lang().send(p, "bank.disabled");
                 return true;
             }
@@ -596,7 +696,7 @@ public class CampCommand implements CommandExecutor {
                 double balance = plugin.state().getBankBalance(stateName);
                 String balanceText = plugin.state().formatMoney(balance);
                 String taxText = plugin.state().formatMoney(plugin.state().getTaxAmount(stateName));
-                long interval = Math.max(1L, plugin.getConfig().getLong("bank.tax.interval-minutes", 30));
+                long interval = plugin.config().settings().bank().taxIntervalMinutes();
                 plugin.lang().send(p, "bank.info", Map.of(
                         "state", stateName,
                         "balance", balanceText,
@@ -712,54 +812,23 @@ public class CampCommand implements CommandExecutor {
                     return true;
                 }
 
-                List<StateManager.BankTransaction> entries = plugin.state().getTransactions(stateName);
-                plugin.lang().send(p, "bank.log-header");
-                if (entries.isEmpty()) {
-                    plugin.lang().send(p, "bank.log-empty");
-                    return true;
-                }
-
-                String patternRaw = plugin.lang().messageOrDefault("bank.log-time-format", "HH:mm").replace("§", "");
-                DateTimeFormatter formatter;
-                try {
-                    formatter = DateTimeFormatter.ofPattern(patternRaw);
-                } catch (IllegalArgumentException ex) {
-                    formatter = DateTimeFormatter.ofPattern("HH:mm");
-                }
-
-                for (StateManager.BankTransaction entry : entries) {
-                    String actor = Optional.ofNullable(entry.getActor())
-                            .map(uuid -> Bukkit.getOfflinePlayer(uuid).getName())
-                            .orElse(null);
-                    if (actor == null || actor.isEmpty()) {
-                        actor = plugin.lang().messageOrDefault("bank.log-unknown", "未知");
+                int page = 1;
+                if (args.length >= 3) {
+                    try {
+                        page = Math.max(1, Integer.parseInt(args[2]));
+                    } catch (NumberFormatException ex) {
+                        plugin.lang().send(p, "bank.log-usage");
+                        return true;
                     }
-                    String time = formatter.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTimestamp()), ZoneId.systemDefault()));
-                    String key;
-                    switch (entry.getType()) {
-                        case DEPOSIT:
-                            key = "bank.log-entry-deposit";
-                            break;
-                        case WITHDRAW:
-                            key = "bank.log-entry-withdraw";
-                            break;
-                        case TAX:
-                            key = "bank.log-entry-tax";
-                            break;
-                        case EXPENSE:
-                            key = "bank.log-entry-expense";
-                            break;
-                        default:
-                            key = "bank.log-entry-expense";
-                            break;
-                    }
-                    plugin.lang().send(p, key, Map.of(
-                            "time", time,
-                            "player", actor,
-                            "amount", plugin.state().formatMoney(entry.getAmount()),
-                            "balance", plugin.state().formatMoney(entry.getBalance())
-                    ));
                 }
+                int pageSize = plugin.config().settings().bank().logPageSize();
+                int requested = page;
+                plugin.state().getTransactionPage(stateName, page, pageSize).thenAccept(history ->
+                        Bukkit.getScheduler().runTask(plugin, () -> {
+                            if (p.isOnline()) {
+                                sendBankLog(p, history, requested, pageSize);
+                            }
+                        }));
                 return true;
             }
 
@@ -768,7 +837,7 @@ public class CampCommand implements CommandExecutor {
         }
 
         if (sub.equals("tax")) {
-            if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+            if (!plugin.config().settings().bank().enabled()) {
                 plugin.lang().send(p, "bank.disabled");
                 return true;
             }
@@ -846,7 +915,7 @@ public class CampCommand implements CommandExecutor {
                 return true;
             }
 
-            StateManager.StateData target = plugin.state().findState(args[1]);
+            StateManager.StateData target = plugin.state().findOrRestoreState(args[1]);
             if (target == null) {
                 plugin.lang().send(p, "war.target-not-found", Map.of("state", args[1]));
                 return true;
@@ -1015,7 +1084,7 @@ public class CampCommand implements CommandExecutor {
                 return true;
             }
 
-            StateManager.StateData target = plugin.state().findState(args[1]);
+            StateManager.StateData target = plugin.state().findOrRestoreState(args[1]);
             if (target == null) {
                 plugin.lang().send(p, "war.target-not-found", Map.of("state", args[1]));
                 return true;
@@ -1144,4 +1213,61 @@ public class CampCommand implements CommandExecutor {
         player.spigot().sendMessage(container);
     }
 
+    // 流水页由账本线程读取，回到主线程后发送
+    private void sendBankLog(Player p, BankLedger.Page history, int page, int pageSize) {
+        List<StateManager.BankTransaction> entries = history.entries();
+        plugin.lang().send(p, "bank.log-header");
+        if (entries.isEmpty()) {
+            plugin.lang().send(p, "bank.log-empty");
+            return;
+        }
+
+        String patternRaw = plugin.lang().messageOrDefault("bank.log-time-format", "HH:mm").replace("§", "");
+        DateTimeFormatter formatter;
+        try {
+            formatter = DateTimeFormatter.ofPattern(patternRaw);
+        } catch (IllegalArgumentException ex) {
+            formatter = DateTimeFormatter.ofPattern("HH:mm");
+        }
+
+        for (StateManager.BankTransaction entry : entries) {
+            String actor = Optional.ofNullable(entry.getActor())
+                    .map(uuid -> Bukkit.getOfflinePlayer(uuid).getName())
+                    .orElse(null);
+            if (actor == null || actor.isEmpty()) {
+                actor = plugin.lang().messageOrDefault("bank.log-unknown", "未知");
+            }
+            String time = formatter.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getTimestamp()), ZoneId.systemDefault()));
+            String key;
+            switch (entry.getType()) {
+                case DEPOSIT:
+                    key = "bank.log-entry-deposit";
+                    break;
+                case WITHDRAW:
+                    key = "bank.log-entry-withdraw";
+                    break;
+                case TAX:
+                    key = "bank.log-entry-tax";
+                    break;
+                case EXPENSE:
+                    key = "bank.log-entry-expense";
+                    break;
+                default:
+                    key = "bank.log-entry-expense";
+                    break;
+            }
+            plugin.lang().send(p, key, Map.of(
+                    "time", time,
+                    "player", actor,
+                    "amount", plugin.state().formatMoney(entry.getAmount()),
+                    "balance", plugin.state().formatMoney(entry.getBalance())
+            ));
+        }
+        int pages = (history.total() + pageSize - 1) / pageSize;
+        plugin.lang().send(p, "bank.log-page", Map.of(
+                "page", String.valueOf(page),
+                "pages", String.valueOf(pages),
+                "total", String.valueOf(history.total())
+        ));
+    }
 }
@@ -0,0 +1,225 @@
+package dev.ameruzily.campsystem.listeners;
+
+import dev.ameruzily.campsystem.CampSystem;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+
+/**
+ * 营地边界粒子预览。
+ * 所有预览共用一个每 tick 运行的任务；同一边界的周长点只计算一次并在观看者之间复用，
+ * 远处的粒子会被剔除或抽稀，且每 tick 发送的粒子总数受预算限制，超出部分顺延到下一 tick。
+ */
+public class BoundaryParticleRenderer {
+    private static final int MAX_CACHED_PERIMETERS = 256;
+
+    private final CampSystem plugin;
+    private final List<Preview> previews = new ArrayList<>();
+    private final Map<PerimeterKey, double[]> perimeters = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PerimeterKey, double[]> eldest) {
+            return size() > MAX_CACHED_PERIMETERS;
+        }
+    };
+
+    private BukkitTask task;
+    private long tick;
+    private int cursor;
+    private int steps = 24;
+    private int points = 6;
+    private long delay = 2L;
+    private double height = 0.15;
+    private double viewDistanceSquared = 48.0 * 48.0;
+    private double thinDistanceSquared = 24.0 * 24.0;
+    private int maxPerTick = 400;
+
+    public BoundaryParticleRenderer(CampSystem plugin) {
+        this.plugin = plugin;
+    }
+
+    public void configure(int steps, int points, long delay, double height, double viewDistance, double thinDistance, int maxPerTick) {
+        this.steps = Math.max(1, steps);
+        this.points = Math.max(1, points);
+        this.delay = Math.max(1L, delay);
+        this.height = height;
+        double view = Math.max(1.0, viewDistance);
+        double thin = Math.min(view, Math.max(0.0, thinDistance));
+        this.viewDistanceSquared = view * view;
+        this.thinDistanceSquared = thin * thin;
+        this.maxPerTick = Math.max(this.points, maxPerTick);
+        perimeters.clear();
+        shutdown();
+    }
+
+    public void show(Player player, World world, double left, double right, double top, double bottom, double y, Particle.DustOptions dust) {
+        if (player == null || world == null) {
+            return;
+        }
+        double[] perimeter = perimeter(left, right, top, bottom);
+        if (perimeter == null) {
+            return;
+        }
+        previews.add(new Preview(player.getUniqueId(), world.getName(), y + height, perimeter, dust, tick + 1));
+        if (task == null) {
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    public void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        previews.clear();
+        cursor = 0;
+    }
+
+    public int getActiveCount() {
+        return previews.size();
+    }
+
+    private double[] perimeter(double left, double right, double top, double bottom) {
+        double width = right - left;
+        double depth = bottom - top;
+        double perimeter = 2 * (width + depth);
+        if (perimeter <= 0.0) {
+            return null;
+        }
+        return perimeters.computeIfAbsent(new PerimeterKey(left, right, top, bottom), key -> {
+            double[] coords = new double[steps * points * 2];
+            int slot = 0;
+            for (int step = 0; step < steps; step++) {
+                double distance = (perimeter / steps) * step;
+                for (int i = 0; i < points; i++) {
+                    double pos = (distance + (double) i / points) % perimeter;
+                    double x;
+                    double z;
+                    if (pos <= width) {
+                        x = left + pos;
+                        z = top;
+                    } else if (pos <= width + depth) {
+                        x = right;
+                        z = top + (pos - width);
+                    } else if (pos <= width * 2 + depth) {
+                        x = right - (pos - width - depth);
+                        z = bottom;
+                    } else {
+                        x = left;
+                        z = bottom - (pos - width * 2 - depth);
+                    }
+                    coords[slot++] = x + 0.5;
+                    coords[slot++] = z + 0.5;
+                }
+            }
+            return coords;
+        });
+    }
+
+    private void tick() {
+        tick++;
+        if (previews.isEmpty()) {
+            shutdown();
+            return;
+        }
+        int budget = maxPerTick;
+        int size = previews.size();
+        int start = cursor % size;
+        int next = (start + 1) % size;
+        boolean[] finished = new boolean[size];
+        boolean anyFinished = false;
+        for (int n = 0; n < size; n++) {
+            int slot = (start + n) % size;
+            Preview preview = previews.get(slot);
+            if (tick < preview.nextTick) {
+                continue;
+            }
+            Player player = Bukkit.getPlayer(preview.viewer);
+            if (player == null || !player.isOnline() || player.getWorld() == null
+                    || !preview.world.equals(player.getWorld().getName())) {
+                finished[slot] = true;
+                anyFinished = true;
+                continue;
+            }
+            if (budget < points) {
+                // 本 tick 预算用尽，从这里开始顺延
+                next = slot;
+                break;
+            }
+            budget -= render(player, preview);
+            preview.step++;
+            preview.nextTick = tick + delay;
+            if (preview.step >= steps) {
+                finished[slot] = true;
+                anyFinished = true;
+            }
+        }
+        cursor = next;
+        if (anyFinished) {
+            // 压缩后把游标换算到新下标：next 之前被保留的预览数即为它在新列表中的位置
+            List<Preview> remaining = new ArrayList<>(size);
+            int rebased = 0;
+            for (int i = 0; i < size; i++) {
+                if (!finished[i]) {
+                    remaining.add(previews.get(i));
+                    if (i < next) {
+                        rebased++;
+                    }
+                }
+            }
+            previews.clear();
+            previews.addAll(remaining);
+            cursor = previews.isEmpty() ? 0 : rebased % previews.size();
+        }
+    }
+
+    private int render(Player player, Preview preview) {
+        Location eye = player.getLocation();
+        double vx = eye.getX();
+        double vy = eye.getY();
+        double vz = eye.getZ();
+        double dy = (preview.y - vy) * (preview.y - vy);
+        int offset = preview.step * points * 2;
+        int sent = 0;
+        for (int i = 0; i < points; i++) {
+            double x = preview.perimeter[offset + i * 2];
+            double z = preview.perimeter[offset + i * 2 + 1];
+            double distance = (x - vx) * (x - vx) + (z - vz) * (z - vz) + dy;
+            if (distance > viewDistanceSquared) {
+                continue;
+            }
+            if (distance > thinDistanceSquared && (i & 1) == 1) {
+                continue;
+            }
+            player.spawnParticle(Particle.DUST, x, preview.y, z, 1, 0.0, 0.0, 0.0, 0.0, preview.dust);
+            sent++;
+        }
+        return sent;
+    }
+
+    private record PerimeterKey(double left, double right, double top, double bottom) {
+    }
+
+    private static final class Preview {
+        private final UUID viewer;
+        private final String world;
+        private final double y;
+        private final double[] perimeter;
+        private final Particle.DustOptions dust;
+        private int step;
+        private long nextTick;
+
+        private Preview(UUID viewer, String world, double y, double[] perimeter, Particle.DustOptions dust, long nextTick) {
+            this.viewer = viewer;
+            this.world = world;
+            this.y = y;
+            this.perimeter = perimeter;
+            this.dust = dust;
+            this.nextTick = nextTick;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package dev.ameruzily.campsystem.listeners;
 
-import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.managers.CampSpatialIndex;
 import dev.ameruzily.campsystem.managers.StateManager;
 import dev.ameruzily.campsystem.models.Camp;
 import dev.ameruzily.campsystem.models.CampBoundary;
@@ -9,38 +10,48 @@ import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
+import org.bukkit.entity.TNTPrimed;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.block.BlockPistonRetractEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import dev.lone.itemsadder.api.Events.FurniturePlaceEvent;
 import org.bukkit.Particle;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 
 import java.util.Map;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 
 public class CampProtectionListener implements Listener {
 
     private static final PotionEffectType FATIGUE_TYPE = PotionEffectType.MINING_FATIGUE;
+    private static final MethodHandle GET_HAND = resolveGetHand();
 
     private final CampSystem plugin;
     private final Map<UUID, String> fatigueStates = new HashMap<>();
     private final Map<UUID, StateManager.CampSectorInfo> currentZones = new HashMap<>();
-    private final Set<String> blockedExact = new HashSet<>();
-    private final List<Pattern> blockedPatterns = new ArrayList<>();
+    private final Map<UUID, ZoneTracker> zoneTrackers = new HashMap<>();
+    private final Set<Material> blockedMaterials = EnumSet.noneOf(Material.class);
 
     private static final String PROTECTION_BYPASS_PERMISSION = "camprpg.protection.bypass";
 
@@ -52,27 +63,27 @@ public class CampProtectionListener implements Listener {
     private int titleFadeIn;
     private int titleStay;
     private int titleFadeOut;
+    private final BoundaryParticleRenderer boundaryRenderer;
     private boolean particlesEnabled;
-    private int particleSteps;
-    private int particlePoints;
-    private long particleInterval;
-    private double particleHeight;
-    private float particleSize;
-    private Color particleOwnColor;
-    private Color particleOtherColor;
+    private Particle.DustOptions particleOwnDust;
+    private Particle.DustOptions particleOtherDust;
     private boolean coreBuildDeny;
     private int coreBuildRadius;
     private int coreBuildMinY;
     private int coreBuildMaxY;
+    private boolean explosionProtection;
+    private boolean pistonProtection;
+    private boolean fluidProtection;
 
     public CampProtectionListener(CampSystem plugin) {
         this.plugin = plugin;
+        this.boundaryRenderer = new BoundaryParticleRenderer(plugin);
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
         reloadSettings();
     }
 
     public void reloadSettings() {
-        this.protectionRadius = Math.max(1.0, plugin.config().getDouble("camp.radius", 16.0));
+        this.protectionRadius = plugin.config().settings().camp().radius();
         this.fatigueEnabled = plugin.getConfig().getBoolean("protection.mining-fatigue.enabled", true);
         this.fatigueAmplifier = Math.max(0, plugin.getConfig().getInt("protection.mining-fatigue.amplifier", 1));
         int seconds = Math.max(1, plugin.getConfig().getInt("protection.mining-fatigue.duration-seconds", 10));
@@ -82,8 +93,8 @@ public class CampProtectionListener implements Listener {
         this.titleStay = Math.max(0, plugin.getConfig().getInt("protection.notifications.title.stay", 60));
         this.titleFadeOut = Math.max(0, plugin.getConfig().getInt("protection.notifications.title.fade-out", 10));
 
-        blockedExact.clear();
-        blockedPatterns.clear();
+        Set<String> blockedExact = new HashSet<>();
+        List<Pattern> blockedPatterns = new ArrayList<>();
         for (String raw : plugin.getConfig().getStringList("protection.blocked-interactions")) {
             if (raw == null) {
                 continue;
@@ -99,21 +110,38 @@ public class CampProtectionListener implements Listener {
                 blockedExact.add(entry);
             }
         }
+        blockedMaterials.clear();
+        for (Material material : Material.values()) {
+            String name = material.name();
+            if (blockedExact.contains(name) || blockedPatterns.stream().anyMatch(pattern -> pattern.matcher(name).matches())) {
+                blockedMaterials.add(material);
+            }
+        }
 
         this.particlesEnabled = plugin.getConfig().getBoolean("protection.particles.enabled", true);
-        this.particleSteps = Math.max(1, plugin.getConfig().getInt("protection.particles.steps", 24));
-        this.particlePoints = Math.max(1, plugin.getConfig().getInt("protection.particles.points-per-step", 6));
-        this.particleInterval = Math.max(1L, plugin.getConfig().getLong("protection.particles.step-delay-ticks", 2L));
-        this.particleHeight = plugin.getConfig().getDouble("protection.particles.height", 0.15);
-        this.particleSize = (float) Math.max(0.1, plugin.getConfig().getDouble("protection.particles.size", 1.0));
-        this.particleOwnColor = parseColor(plugin.getConfig().getString("protection.particles.own-color", "#3CFF6B"), Color.fromRGB(60, 255, 107));
-        this.particleOtherColor = parseColor(plugin.getConfig().getString("protection.particles.other-color", "#FF3B3B"), Color.fromRGB(255, 59, 59));
+        float particleSize = (float) Math.max(0.1, plugin.getConfig().getDouble("protection.particles.size", 1.0));
+        Color ownColor = parseColor(plugin.getConfig().getString("protection.particles.own-color", "#3CFF6B"), Color.fromRGB(60, 255, 107));
+        Color otherColor = parseColor(plugin.getConfig().getString("protection.particles.other-color", "#FF3B3B"), Color.fromRGB(255, 59, 59));
+        this.particleOwnDust = new Particle.DustOptions(ownColor, particleSize);
+        this.particleOtherDust = new Particle.DustOptions(otherColor, particleSize);
+        boundaryRenderer.configure(
+                plugin.getConfig().getInt("protection.particles.steps", 24),
+                plugin.getConfig().getInt("protection.particles.points-per-step", 6),
+                plugin.getConfig().getLong("protection.particles.step-delay-ticks", 2L),
+                plugin.getConfig().getDouble("protection.particles.height", 0.15),
+                plugin.getConfig().getDouble("protection.particles.view-distance", 48.0),
+                plugin.getConfig().getDouble("protection.particles.thin-distance", 24.0),
+                plugin.getConfig().getInt("protection.particles.max-per-tick", 400));
 
         this.coreBuildDeny = plugin.getConfig().getBoolean("protection.camp-core-build.enabled", true);
         this.coreBuildRadius = Math.max(0, plugin.getConfig().getInt("protection.camp-core-build.radius", 1));
         this.coreBuildMinY = plugin.getConfig().getInt("protection.camp-core-build.min-y-offset", 0);
         this.coreBuildMaxY = plugin.getConfig().getInt("protection.camp-core-build.max-y-offset", 2);
 
+        this.explosionProtection = plugin.getConfig().getBoolean("protection.environment.explosions", true);
+        this.pistonProtection = plugin.getConfig().getBoolean("protection.environment.pistons", true);
+        this.fluidProtection = plugin.getConfig().getBoolean("protection.environment.fluids", true);
+
         resetAllFatigue();
     }
 
@@ -171,7 +199,7 @@ public class CampProtectionListener implements Listener {
             return;
         }
 
-        double damage = plugin.config().getDouble("war.camp-damage-per-hit", 5.0);
+        double damage = plugin.config().settings().war().campDamagePerHit();
         var result = plugin.war().damageCamp(info.stateName(), info.sectorName(), damage, playerState);
 
         switch (result.getStatus()) {
@@ -202,14 +230,78 @@ public class CampProtectionListener implements Listener {
         }
     }
 
+    @EventHandler(ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        if (!explosionProtection) {
+            return;
+        }
+        filterExplosion(event.blockList(), resolveExplosionState(event.getEntity()));
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        if (!explosionProtection) {
+            return;
+        }
+        filterExplosion(event.blockList(), null);
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent event) {
+        if (pistonProtection && pistonCrossesClaim(event.getBlock(), event.getBlocks(), event.getDirection())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent event) {
+        if (pistonProtection && pistonCrossesClaim(event.getBlock(), event.getBlocks(), event.getDirection())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onFluidFlow(BlockFromToEvent event) {
+        if (!fluidProtection) {
+            return;
+        }
+        Block from = event.getBlock();
+        Block to = event.getToBlock();
+        if (from == null || to == null || to.getWorld() == null) {
+            return;
+        }
+        String world = to.getWorld().getName();
+        CampSpatialIndex index = plugin.state().getSpatialIndex();
+        if (!index.hasClaims(world, to.getX() >> 4, to.getZ() >> 4)) {
+            return;
+        }
+        if (index.findAnchor(world, to.getX(), to.getY(), to.getZ()) != null) {
+            event.setCancelled(true);
+            return;
+        }
+        CampSpatialIndex.Entry target = findActiveClaim(world, to.getX(), to.getZ());
+        if (target != null && !sameClaim(findActiveClaim(world, from.getX(), from.getZ()), target)) {
+            event.setCancelled(true);
+        }
+    }
+
     @EventHandler(ignoreCancelled = true)
     public void onPlayerMove(PlayerMoveEvent event) {
         Location to = event.getTo();
         if (to == null) {
             return;
         }
+        // 先检查绕过权限：会话中途获得权限的玩家不应继续沿用缓存的区域与效果
+        UUID id = event.getPlayer().getUniqueId();
+        ZoneTracker tracker = zoneTrackers.get(id);
         if (hasProtectionBypass(event.getPlayer())) {
-            clearPlayer(event.getPlayer());
+            if (tracker != null || currentZones.containsKey(id) || fatigueStates.containsKey(id)) {
+                clearPlayer(event.getPlayer());
+            }
+            return;
+        }
+        if (tracker != null && tracker.sameColumn(to) && System.currentTimeMillis() < tracker.refreshAt
+                && plugin.state().getSpatialIndex().getStamp(tracker.world, tracker.cellX, tracker.cellZ) == tracker.stamp) {
             return;
         }
         updatePlayerZone(event.getPlayer(), to);
@@ -218,11 +310,22 @@ public class CampProtectionListener implements Listener {
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         clearPlayer(event.getPlayer());
+        plugin.state().handleQuit(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        plugin.state().getSpatialIndex().dropRaster(event.getWorld().getName(),
+                event.getChunk().getX(), event.getChunk().getZ());
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         plugin.state().refreshIdeologyPermissionFor(event.getPlayer().getUniqueId());
+        plugin.state().handleJoin(event.getPlayer());
+        if (plugin.cold() != null) {
+            plugin.cold().handleJoin(event.getPlayer());
+        }
     }
 
     @EventHandler(ignoreCancelled = true)
@@ -230,13 +333,14 @@ public class CampProtectionListener implements Listener {
         if (hasProtectionBypass(event.getPlayer())) {
             return;
         }
-        try {
-            Method handMethod = event.getClass().getMethod("getHand");
-            Object hand = handMethod.invoke(event);
-            if (hand != null && hand.toString().equalsIgnoreCase("OFF_HAND")) {
-                return;
+        if (GET_HAND != null) {
+            try {
+                Object hand = GET_HAND.invoke(event);
+                if (hand != null && hand.toString().equalsIgnoreCase("OFF_HAND")) {
+                    return;
+                }
+            } catch (Throwable ignored) {
             }
-        } catch (Exception ignored) {
         }
 
         Block block = event.getClickedBlock();
@@ -308,22 +412,165 @@ public class CampProtectionListener implements Listener {
                 }
                 fatigueStates.remove(id);
                 currentZones.remove(id);
+                zoneTrackers.remove(id);
+            }
+        }
+    }
+
+    /**
+     * 按区块分组过滤爆炸方块：没有领地的区块整体跳过，其余方块读取区块栅格表。
+     * 营地方块始终保留；领地内受保护的方块仅在引爆者属于本国或与其交战时允许破坏。
+     */
+    private void filterExplosion(List<Block> blocks, String sourceState) {
+        if (blocks == null || blocks.isEmpty()) {
+            return;
+        }
+        Map<Long, List<Block>> byChunk = new HashMap<>();
+        for (Block block : blocks) {
+            if (block == null || block.getWorld() == null) {
+                continue;
+            }
+            long key = ((long) (block.getX() >> 4) << 32) | ((block.getZ() >> 4) & 0xFFFFFFFFL);
+            byChunk.computeIfAbsent(key, k -> new ArrayList<>()).add(block);
+        }
+
+        CampSpatialIndex index = plugin.state().getSpatialIndex();
+        Map<CampSpatialIndex.Entry, Boolean> exposed = new HashMap<>();
+        Set<Block> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<Block> group : byChunk.values()) {
+            Block first = group.get(0);
+            String world = first.getWorld().getName();
+            if (!index.hasClaims(world, first.getX() >> 4, first.getZ() >> 4)) {
+                continue;
+            }
+            for (Block block : group) {
+                if (index.findAnchor(world, block.getX(), block.getY(), block.getZ()) != null) {
+                    kept.add(block);
+                    continue;
+                }
+                if (!shouldProtect(block.getType())) {
+                    continue;
+                }
+                CampSpatialIndex.Entry owner = findActiveClaim(world, block.getX(), block.getZ());
+                if (owner != null && !exposed.computeIfAbsent(owner, entry -> isExposedTo(entry, sourceState))) {
+                    kept.add(block);
+                }
             }
         }
+        if (!kept.isEmpty()) {
+            blocks.removeIf(kept::contains);
+        }
+    }
+
+    private boolean isExposedTo(CampSpatialIndex.Entry entry, String sourceState) {
+        if (sourceState == null) {
+            return false;
+        }
+        return sourceState.equalsIgnoreCase(entry.state()) || plugin.war().areStatesAtWar(sourceState, entry.state());
+    }
+
+    private String resolveExplosionState(Entity entity) {
+        Entity source = entity instanceof TNTPrimed tnt ? tnt.getSource() : null;
+        return source instanceof Player player ? plugin.state().getStateName(player) : null;
+    }
+
+    private boolean pistonCrossesClaim(Block piston, List<Block> moved, BlockFace direction) {
+        if (piston == null || piston.getWorld() == null || moved == null || moved.isEmpty() || direction == null) {
+            return false;
+        }
+        String world = piston.getWorld().getName();
+        CampSpatialIndex index = plugin.state().getSpatialIndex();
+        CampSpatialIndex.Entry source = findActiveClaim(world, piston.getX(), piston.getZ());
+        for (Block block : moved) {
+            int x = block.getX();
+            int y = block.getY();
+            int z = block.getZ();
+            int toX = x + direction.getModX();
+            int toY = y + direction.getModY();
+            int toZ = z + direction.getModZ();
+            if (index.findAnchor(world, x, y, z) != null || index.findAnchor(world, toX, toY, toZ) != null) {
+                return true;
+            }
+            if (!sameClaim(source, findActiveClaim(world, x, z)) || !sameClaim(source, findActiveClaim(world, toX, toZ))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CampSpatialIndex.Entry findActiveClaim(String world, int x, int z) {
+        CampSpatialIndex.Entry entry = plugin.state().findClaimEntry(world, x, z, protectionRadius);
+        if (entry == null) {
+            return null;
+        }
+        return isProtected(entry.state(), entry.sector()) ? entry : null;
+    }
+
+    private boolean sameClaim(CampSpatialIndex.Entry a, CampSpatialIndex.Entry b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.state().equalsIgnoreCase(b.state());
     }
 
     private StateManager.CampSectorInfo findActiveCamp(Location location) {
-        StateManager.CampSectorInfo info = plugin.state().findCampInRadius(location, protectionRadius);
+        StateManager.CampSectorInfo info = plugin.state().findCampClaim(location, protectionRadius);
         if (info == null) {
             return null;
         }
-        return plugin.war().getCamp(info.stateName(), info.sectorName()) != null ? info : null;
+        return isProtected(info.stateName(), info.sectorName()) ? info : null;
+    }
+
+    // 冷存档国家的营地不在内存中，领地仍按足迹保护
+    private boolean isProtected(String state, String sector) {
+        return plugin.war().getCamp(state, sector) != null || (plugin.cold() != null && plugin.cold().contains(state));
+    }
+
+    /**
+     * 玩家仍在缓存的分区矩形内且所在区块未变化时直接复用上次结果。
+     */
+    private StateManager.CampSectorInfo resolveZone(UUID id, Location location) {
+        if (location.getWorld() == null) {
+            zoneTrackers.remove(id);
+            return null;
+        }
+        CampSpatialIndex index = plugin.state().getSpatialIndex();
+        String world = location.getWorld().getName();
+        int blockX = location.getBlockX();
+        int blockZ = location.getBlockZ();
+        int cellX = blockX >> 4;
+        int cellZ = blockZ >> 4;
+        long stamp = index.getStamp(world, cellX, cellZ);
+        ZoneTracker tracker = zoneTrackers.computeIfAbsent(id, key -> new ZoneTracker());
+        if (tracker.entry != null && protectionRadius <= index.getMinExtent()
+                && world.equals(tracker.world) && tracker.cellX == cellX && tracker.cellZ == cellZ
+                && tracker.stamp == stamp && tracker.entry.contains(blockX, blockZ, protectionRadius)) {
+            tracker.moveTo(location);
+            return tracker.zone;
+        }
+
+        CampSpatialIndex.Entry entry = plugin.state().findClaimEntry(world, blockX, blockZ, protectionRadius);
+        if (entry != null && plugin.war().getCamp(entry.state(), entry.sector()) == null) {
+            entry = null;
+        }
+        tracker.world = world;
+        tracker.cellX = cellX;
+        tracker.cellZ = cellZ;
+        tracker.stamp = stamp;
+        tracker.entry = entry;
+        tracker.zone = entry == null ? null : new StateManager.CampSectorInfo(entry.state(), entry.sector());
+        tracker.moveTo(location);
+        return tracker.zone;
     }
 
     private void updatePlayerZone(Player player, Location location) {
         UUID id = player.getUniqueId();
         StateManager.CampSectorInfo previous = currentZones.get(id);
-        StateManager.CampSectorInfo current = findActiveCamp(location);
+        StateManager.CampSectorInfo current = resolveZone(id, location);
+        ZoneTracker tracker = zoneTrackers.get(id);
+        if (tracker != null) {
+            tracker.refreshAt = System.currentTimeMillis() + Math.max(1000L, fatigueDuration * 25L);
+        }
 
         if (current == null) {
             if (previous != null) {
@@ -354,10 +601,11 @@ public class CampProtectionListener implements Listener {
         plugin.war().applyModuleEffects(player, current);
     }
 
-    private void clearPlayer(Player player) {
-        UUID id = player.getUniqueId();
-        fatigueStates.remove(id);
-        currentZones.remove(id);
+    private void clearPlayer(Player player) {
+        UUID id = player.getUniqueId();
+        fatigueStates.remove(id);
+        currentZones.remove(id);
+        zoneTrackers.remove(id);
         removeFatigue(player);
         plugin.war().clearModuleEffects(player);
     }
@@ -504,64 +752,18 @@ public class CampProtectionListener implements Listener {
         if (boundary == null) {
             return;
         }
-        double west = boundary.west();
-        double east = boundary.east();
-        double north = boundary.north();
-        double south = boundary.south();
-        double perimeter = 2 * ((west + east) + (north + south));
-        if (perimeter <= 0.0) {
-            return;
-        }
+        double west = boundary.west();
+        double east = boundary.east();
+        double north = boundary.north();
+        double south = boundary.south();
 
-        String playerState = plugin.state().getStateName(player);
-        boolean own = playerState != null && playerState.equalsIgnoreCase(stateName);
-        Color color = own ? particleOwnColor : particleOtherColor;
-        Particle.DustOptions dust = new Particle.DustOptions(color, particleSize);
-        int steps = Math.max(1, particleSteps);
-        int points = Math.max(1, particlePoints);
-        long delay = Math.max(1L, particleInterval);
-        double left = center.getX() - west;
-        double right = center.getX() + east;
-        double top = center.getZ() - north;
-        double bottom = center.getZ() + south;
-
-        AtomicInteger index = new AtomicInteger();
-        BukkitTask[] handle = new BukkitTask[1];
-        handle[0] = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            int step = index.getAndIncrement();
-            if (step >= steps) {
-                handle[0].cancel();
-                return;
-            }
-
-            double distance = (perimeter / steps) * step;
-            for (int i = 0; i < points; i++) {
-                double offset = (double) i / points;
-                double progress = distance + offset;
-                double pos = progress % perimeter;
-                double x;
-                double z;
-                double width = right - left;
-                double height = bottom - top;
-                if (pos <= width) {
-                    x = left + pos;
-                    z = top;
-                } else if (pos <= width + height) {
-                    x = right;
-                    z = top + (pos - width);
-                } else if (pos <= width * 2 + height) {
-                    x = right - (pos - width - height);
-                    z = bottom;
-                } else {
-                    x = left;
-                    z = bottom - (pos - width * 2 - height);
-                }
-
-                Location particleLocation = new Location(center.getWorld(), x + 0.5, center.getY() + particleHeight, z + 0.5);
-                player.spawnParticle(Particle.DUST, particleLocation, 1, 0.0, 0.0, 0.0, 0.0, dust);
-            }
-        }, 0L, delay);
-    }
+        String playerState = plugin.state().getStateName(player);
+        boolean own = playerState != null && playerState.equalsIgnoreCase(stateName);
+        boundaryRenderer.show(player, center.getWorld(),
+                center.getX() - west, center.getX() + east,
+                center.getZ() - north, center.getZ() + south,
+                center.getY(), own ? particleOwnDust : particleOtherDust);
+    }
 
     private Map<String, String> buildZoneVars(Player player, StateManager.CampSectorInfo current, StateManager.CampSectorInfo next) {
         Map<String, String> vars = new HashMap<>();
@@ -664,6 +866,7 @@ public class CampProtectionListener implements Listener {
         }
         fatigueStates.clear();
         currentZones.clear();
+        zoneTrackers.clear();
     }
 
     private Color parseColor(String value, Color fallback) {
@@ -689,19 +892,15 @@ public class CampProtectionListener implements Listener {
     }
 
     private boolean shouldProtect(Material type) {
-        if (type == null) {
-            return false;
-        }
-        String name = type.name();
-        if (blockedExact.contains(name)) {
-            return true;
-        }
-        for (Pattern pattern : blockedPatterns) {
-            if (pattern.matcher(name).matches()) {
-                return true;
-            }
+        return type != null && blockedMaterials.contains(type);
+    }
+
+    private static MethodHandle resolveGetHand() {
+        try {
+            return MethodHandles.publicLookup().unreflect(PlayerInteractEvent.class.getMethod("getHand"));
+        } catch (ReflectiveOperationException ex) {
+            return null;
         }
-        return false;
     }
 
     private String buildKey(StateManager.CampSectorInfo info) {
@@ -713,4 +912,26 @@ public class CampProtectionListener implements Listener {
         String right = sector == null ? "" : sector.toLowerCase(Locale.ROOT);
         return left + "|" + right;
     }
+
+    private static final class ZoneTracker {
+        private String world;
+        private int blockX;
+        private int blockZ;
+        private int cellX;
+        private int cellZ;
+        private long stamp;
+        private long refreshAt;
+        private CampSpatialIndex.Entry entry;
+        private StateManager.CampSectorInfo zone;
+
+        private void moveTo(Location location) {
+            blockX = location.getBlockX();
+            blockZ = location.getBlockZ();
+        }
+
+        private boolean sameColumn(Location location) {
+            return location.getWorld() != null && location.getWorld().getName().equals(world)
+                    && location.getBlockX() == blockX && location.getBlockZ() == blockZ;
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package dev.ameruzily.campsystem.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * 独立的存档写入线程。
+ * 主线程只负责生成快照并提交，序列化与写盘都在写入线程完成；
+ * 同一文件在写入前被再次提交时只保留最新的快照。
+ * 写入先落到临时文件，再以原子重命名替换目标文件，避免崩溃时留下半个文件。
+ * 序列化结果为 null 时删除目标文件。
+ * 每次提交返回的 Future 在目标文件写入后完成，写入失败时为 false；被覆盖的提交随最新快照的写入一起完成。
+ */
+public class AsyncSaveWriter {
+    private final Logger logger;
+    private final String threadName;
+    private final StorageTimers timers;
+    private final Object lock = new Object();
+    private final Map<File, Job> pending = new LinkedHashMap<>();
+    private Thread thread;
+    private boolean running;
+    private boolean writing;
+
+    public AsyncSaveWriter(Logger logger, String threadName) {
+        this(logger, threadName, null);
+    }
+
+    public AsyncSaveWriter(Logger logger, String threadName, StorageTimers timers) {
+        this.logger = logger;
+        this.threadName = threadName;
+        this.timers = timers;
+    }
+
+    private record Job(Serializer serializer, List<CompletableFuture<Boolean>> waiters) {
+    }
+
+    public CompletableFuture<Boolean> submit(File target, Serializer serializer) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        synchronized (lock) {
+            List<CompletableFuture<Boolean>> waiters = new ArrayList<>(1);
+            Job replaced = pending.get(target);
+            if (replaced != null) {
+                waiters.addAll(replaced.waiters());
+            }
+            waiters.add(result);
+            pending.put(target, new Job(serializer, waiters));
+            ensureStarted();
+            lock.notifyAll();
+        }
+        return result;
+    }
+
+    public CompletableFuture<Boolean> submitDelete(File target) {
+        return submit(target, () -> null);
+    }
+
+    /**
+     * 全部 Future 都为 true 时完成为 true。
+     */
+    public static CompletableFuture<Boolean> allSucceeded(List<CompletableFuture<Boolean>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream().allMatch(CompletableFuture::join));
+    }
+
+    /**
+     * 等待已提交的快照全部写完。
+     */
+    public void flush() {
+        synchronized (lock) {
+            while ((!pending.isEmpty() || writing) && thread != null && thread.isAlive()) {
+                try {
+                    lock.wait(100L);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!pending.isEmpty() && (thread == null || !thread.isAlive())) {
+                // 写入线程已退出时在当前线程补写
+                List<Map.Entry<File, Job>> batch = new ArrayList<>(pending.entrySet());
+                pending.clear();
+                for (Map.Entry<File, Job> entry : batch) {
+                    write(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 写完剩余快照后结束写入线程。
+     */
+    public void close() {
+        Thread current;
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+            current = thread;
+        }
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (lock) {
+            thread = null;
+        }
+        flush();
+    }
+
+    private void ensureStarted() {
+        if (thread != null && thread.isAlive()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, threadName);
+        thread.setDaemon(false);
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            List<Map.Entry<File, Job>> batch;
+            synchronized (lock) {
+                while (pending.isEmpty() && running) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        running = false;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    lock.notifyAll();
+                    return;
+                }
+                batch = new ArrayList<>(pending.entrySet());
+                pending.clear();
+                writing = true;
+            }
+            try {
+                for (Map.Entry<File, Job> entry : batch) {
+                    write(entry.getKey(), entry.getValue());
+                }
+            } finally {
+                synchronized (lock) {
+                    writing = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void write(File target, Job job) {
+        boolean written = write(target, job.serializer());
+        for (CompletableFuture<Boolean> waiter : job.waiters()) {
+            waiter.complete(written);
+        }
+    }
+
+    private boolean write(File target, Serializer serializer) {
+        try {
+            long start = System.nanoTime();
+            byte[] data = serializer.serialize();
+            if (data == null) {
+                Files.deleteIfExists(target.toPath());
+                return true;
+            }
+            long serialized = System.nanoTime();
+            writeAtomically(target, data);
+            if (timers != null) {
+                timers.record(StorageTimers.Stage.SERIALIZE, serialized - start);
+                timers.since(StorageTimers.Stage.WRITE, serialized);
+            }
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            logger.warning("Failed to save " + target.getName() + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    public static void writeAtomically(File target, byte[] data) throws IOException {
+        Path path = target.toPath();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(target.getName() + ".tmp");
+        Files.write(temp, data);
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Serializer {
+        byte[] serialize() throws IOException;
+    }
+}
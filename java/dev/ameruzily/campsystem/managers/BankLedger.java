@@ -0,0 +1,383 @@
+package dev.ameruzily.campsystem.managers;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 国家银行的完整流水，每个国家一个只追加的 ledger/<国家>.bin 文件。
+ * 文件头之后是定长记录，第 i 条记录位于 HEADER + i * RECORD，按页读取时直接定位，不需要额外的索引文件。
+ * 内存中只保留最近的若干条（bank.log-size），更早的记录按需分页读取。
+ * 所有文件操作都在同一个后台线程按提交顺序执行，读取会等待之前提交的追加完成。
+ * 打开的文件按分片名（小写）缓存，同一国家名的不同大小写共用一个文件通道。
+ */
+public class BankLedger {
+    private static final int MAGIC = 0x474F424C;
+    private static final short VERSION = 1;
+    private static final int HEADER = 16;
+    // 时间(8) 类型(1) 金额(8) 余额(8) 操作者 UUID(16)
+    private static final int RECORD = 41;
+    private static final int MAX_OPEN = 32;
+    private static final String EXTENSION = ".bin";
+
+    private final Logger logger;
+    private final File folder;
+    private final ExecutorService executor;
+    // 仅在后台线程访问
+    private final Map<String, FileChannel> channels = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FileChannel> eldest) {
+            if (size() > MAX_OPEN) {
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public BankLedger(File dataFolder, Logger logger) {
+        this.logger = logger;
+        this.folder = new File(dataFolder, "ledger");
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "CampSystem-Ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 一页流水，entries 按时间从新到旧排列，total 为该国家的记录总数。
+     */
+    public record Page(List<StateManager.BankTransaction> entries, int total) {
+    }
+
+    public void append(String state, StateManager.BankTransaction tx) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD);
+        encode(record, tx);
+        record.flip();
+        executor.execute(() -> {
+            try {
+                FileChannel channel = channel(state);
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException ex) {
+                logger.warning("Failed to append bank ledger for " + state + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 重放变更日志时使用：文件尾部已有这笔记录，或已有更晚的记录时不再追加。
+     * 追加在同一线程按顺序执行，更晚的记录已落盘说明更早的也已写入。
+     */
+    public void appendIfMissing(String state, StateManager.BankTransaction tx) {
+        executor.execute(() -> {
+            try {
+                if (!containsTail(state, tx)) {
+                    ByteBuffer record = ByteBuffer.allocate(RECORD);
+                    encode(record, tx);
+                    record.flip();
+                    FileChannel channel = channel(state);
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+            } catch (IOException ex) {
+                logger.warning("Failed to append bank ledger for " + state + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    public static boolean sameEntry(StateManager.BankTransaction a, StateManager.BankTransaction b) {
+        return a.getTimestamp() == b.getTimestamp() && a.getType() == b.getType()
+                && Math.abs(a.getAmount() - b.getAmount()) < 1e-6;
+    }
+
+    /**
+     * 在后台线程读取从最新一条往前数第 offset 条开始的 limit 条记录，读取失败时返回空页。
+     */
+    public CompletableFuture<Page> pageAsync(String state, int offset, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return read(state, Math.max(0, offset), Math.max(0, limit));
+            } catch (IOException ex) {
+                logger.warning("Failed to read bank ledger for " + state + ": " + ex.getMessage());
+                return new Page(List.of(), 0);
+            }
+        }, executor);
+    }
+
+    /**
+     * 加载存档后一次性准备各国家的最近流水：没有流水文件的国家先写入旧版存档中的记录（按时间从新到旧传入），
+     * 再读取每个国家最新的 limit 条。只提交一次后台任务。
+     */
+    public Map<String, List<StateManager.BankTransaction>> loadRecent(
+            Map<String, ? extends Collection<StateManager.BankTransaction>> legacy, int limit) {
+        if (legacy.isEmpty()) {
+            return Map.of();
+        }
+        return await(executor.submit(() -> {
+            Map<String, List<StateManager.BankTransaction>> result = new HashMap<>();
+            for (Map.Entry<String, ? extends Collection<StateManager.BankTransaction>> entry : legacy.entrySet()) {
+                String state = entry.getKey();
+                try {
+                    importLegacy(state, entry.getValue());
+                    result.put(state, read(state, 0, Math.max(0, limit)).entries());
+                } catch (IOException ex) {
+                    logger.warning("Failed to load bank ledger for " + state + ": " + ex.getMessage());
+                }
+            }
+            return result;
+        }), Map.of());
+    }
+
+    public void rename(String oldName, String newName) {
+        executor.execute(() -> {
+            closeChannel(oldName);
+            closeChannel(newName);
+            File source = fileFor(oldName);
+            if (!source.exists() || source.equals(fileFor(newName))) {
+                return;
+            }
+            try {
+                archiveFile(newName);
+                Files.move(source.toPath(), fileFor(newName).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                logger.warning("Failed to rename bank ledger " + oldName + " -> " + newName + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 国家解散时把流水移到 ledger/archive/ 保留审计记录，同名的新国家从空流水开始。
+     */
+    public void archive(String state) {
+        executor.execute(() -> {
+            closeChannel(state);
+            try {
+                archiveFile(state);
+            } catch (IOException ex) {
+                logger.warning("Failed to archive bank ledger for " + state + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    public void close() {
+        executor.execute(() -> {
+            for (FileChannel channel : channels.values()) {
+                closeQuietly(channel);
+            }
+            channels.clear();
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for bank ledger writes to finish.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 该国家还没有流水文件时写入旧版记录
+    private void importLegacy(String state, Collection<StateManager.BankTransaction> newestFirst) throws IOException {
+        if (newestFirst.isEmpty() || fileFor(state).exists() || channels.containsKey(key(state))) {
+            return;
+        }
+        List<StateManager.BankTransaction> oldestFirst = new ArrayList<>(newestFirst);
+        Collections.reverse(oldestFirst);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD * oldestFirst.size());
+        for (StateManager.BankTransaction tx : oldestFirst) {
+            encode(buffer, tx);
+        }
+        buffer.flip();
+        FileChannel channel = channel(state);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Page read(String state, int offset, int limit) throws IOException {
+        FileChannel channel = channels.get(key(state));
+        boolean temporary = channel == null;
+        if (temporary) {
+            File file = fileFor(state);
+            if (!file.exists()) {
+                return new Page(List.of(), 0);
+            }
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+        try {
+            int total = (int) Math.max(0L, (channel.size() - HEADER) / RECORD);
+            int end = total - offset;
+            int start = Math.max(0, end - limit);
+            if (end <= start) {
+                return new Page(List.of(), total);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((end - start) * RECORD);
+            long position = HEADER + (long) start * RECORD;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            List<StateManager.BankTransaction> entries = new ArrayList<>(end - start);
+            while (buffer.remaining() >= RECORD) {
+                entries.add(decode(buffer));
+            }
+            Collections.reverse(entries);
+            return new Page(entries, total);
+        } finally {
+            if (temporary) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    // 从最新一条往前检查时间不早于 tx 的记录
+    private boolean containsTail(String state, StateManager.BankTransaction tx) throws IOException {
+        int offset = 0;
+        while (true) {
+            Page page = read(state, offset, 16);
+            for (StateManager.BankTransaction entry : page.entries()) {
+                if (entry.getTimestamp() < tx.getTimestamp()) {
+                    return false;
+                }
+                if (entry.getTimestamp() > tx.getTimestamp() || sameEntry(entry, tx)) {
+                    return true;
+                }
+            }
+            offset += page.entries().size();
+            if (page.entries().isEmpty() || offset >= page.total()) {
+                return false;
+            }
+        }
+    }
+
+    private FileChannel channel(String state) throws IOException {
+        FileChannel channel = channels.get(key(state));
+        if (channel != null) {
+            return channel;
+        }
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Failed to create ledger folder");
+        }
+        channel = FileChannel.open(fileFor(state).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < HEADER) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER);
+                header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD).putLong(0L);
+                header.flip();
+                channel.truncate(0L);
+                channel.write(header, 0L);
+                size = HEADER;
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(8);
+                channel.read(header, 0L);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getShort() != VERSION || header.getShort() != RECORD) {
+                    throw new IOException("unrecognized ledger file " + fileFor(state).getName());
+                }
+            }
+            // 崩溃时写了一半的尾部记录直接截掉
+            long aligned = HEADER + (size - HEADER) / RECORD * RECORD;
+            if (aligned != size) {
+                channel.truncate(aligned);
+            }
+            channel.position(aligned);
+        } catch (IOException ex) {
+            closeQuietly(channel);
+            throw ex;
+        }
+        channels.put(key(state), channel);
+        return channel;
+    }
+
+    private void closeChannel(String state) {
+        FileChannel channel = channels.remove(key(state));
+        if (channel != null) {
+            closeQuietly(channel);
+        }
+    }
+
+    private void archiveFile(String state) throws IOException {
+        File file = fileFor(state);
+        if (!file.exists()) {
+            return;
+        }
+        File archive = new File(folder, "archive");
+        if (!archive.exists() && !archive.mkdirs()) {
+            throw new IOException("Failed to create ledger archive folder");
+        }
+        File target = new File(archive, YamlStorageBackend.shardName(state) + "-" + System.currentTimeMillis() + EXTENSION);
+        Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String key(String state) {
+        return YamlStorageBackend.shardName(state);
+    }
+
+    private File fileFor(String state) {
+        return new File(folder, key(state) + EXTENSION);
+    }
+
+    // 类型按枚举顺序保存，新增类型只能追加在末尾
+    private static void encode(ByteBuffer buffer, StateManager.BankTransaction tx) {
+        buffer.putLong(tx.getTimestamp());
+        buffer.put((byte) tx.getType().ordinal());
+        buffer.putDouble(tx.getAmount());
+        buffer.putDouble(tx.getBalance());
+        UUID actor = tx.getActor();
+        buffer.putLong(actor == null ? 0L : actor.getMostSignificantBits());
+        buffer.putLong(actor == null ? 0L : actor.getLeastSignificantBits());
+    }
+
+    private static StateManager.BankTransaction decode(ByteBuffer buffer) {
+        long timestamp = buffer.getLong();
+        int typeIndex = buffer.get();
+        double amount = buffer.getDouble();
+        double balance = buffer.getDouble();
+        long most = buffer.getLong();
+        long least = buffer.getLong();
+        StateManager.BankTransactionType[] types = StateManager.BankTransactionType.values();
+        StateManager.BankTransactionType type = typeIndex >= 0 && typeIndex < types.length
+                ? types[typeIndex] : StateManager.BankTransactionType.EXPENSE;
+        UUID actor = most == 0L && least == 0L ? null : new UUID(most, least);
+        return StateManager.BankTransaction.fromData(timestamp, type, actor, amount, balance);
+    }
+
+    private <T> T await(Future<T> future, T fallback) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            logger.warning("Bank ledger operation failed: " + ex.getCause().getMessage());
+        }
+        return fallback;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
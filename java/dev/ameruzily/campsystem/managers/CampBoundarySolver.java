@@ -0,0 +1,305 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.CampBoundary;
+import org.bukkit.Location;
+
+import java.util.*;
+
+/**
+ * 营地边界求解。
+ * 单个营地变化时只与空间索引中扩展矩形（半径 + 国家间距）可能相交的营地比较，并重算受其影响的邻近营地；
+ * 重载时按 X 方向排序扫描生成候选对，避免两两比较。
+ */
+public class CampBoundarySolver {
+    private final CampSystem plugin;
+    private final StateManager stateManager;
+
+    public CampBoundarySolver(CampSystem plugin, StateManager stateManager) {
+        this.plugin = plugin;
+        this.stateManager = stateManager;
+    }
+
+    /**
+     * 重算单个营地的边界，并重算原边界或新边界附近的邻近营地。
+     */
+    public void solve(Camp camp, double baseRadius, double bonusRadius) {
+        if (camp == null) {
+            return;
+        }
+        CampSpatialIndex.Entry previous = stateManager.getSpatialIndex().get(camp.getStateName(), camp.getSectorName());
+        Location center = stateManager.getSectorLocation(camp.getStateName(), camp.getSectorName());
+        if (center == null || center.getWorld() == null) {
+            camp.setBoundary(new CampBoundary(baseRadius));
+            stateManager.reindexSector(camp.getStateName(), camp.getSectorName());
+            return;
+        }
+        double base = Math.max(1.0, baseRadius);
+        double bonus = Math.max(0.0, bonusRadius);
+        double gap = getGap();
+        String world = center.getWorld().getName();
+        double reach = base + bonus + gap;
+
+        List<Neighbor> others = findNeighbors(camp, world, center.getX() - reach, center.getZ() - reach,
+                center.getX() + reach, center.getZ() + reach, null);
+        CampBoundary boundary = clamp(camp, center.getX(), center.getZ(), base, bonus, gap, others);
+        camp.setBoundary(boundary);
+        stateManager.reindexSector(camp.getStateName(), camp.getSectorName());
+
+        Set<Camp> affected = new LinkedHashSet<>();
+        if (previous != null) {
+            collectAffected(previous.world(), previous.x() - previous.west(), previous.z() - previous.north(),
+                    previous.x() + previous.east(), previous.z() + previous.south(), gap, affected);
+        }
+        collectAffected(world, center.getX() - boundary.west(), center.getZ() - boundary.north(),
+                center.getX() + boundary.east(), center.getZ() + boundary.south(), gap, affected);
+        affected.remove(camp);
+        for (Camp neighbor : affected) {
+            refresh(neighbor, camp, base, gap);
+        }
+    }
+
+    /**
+     * 营地移除后重算原边界附近的营地，使其可以扩展到空出的区域。
+     */
+    public void release(CampSpatialIndex.Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        double base = getBaseRadius();
+        double gap = getGap();
+        Set<Camp> affected = new LinkedHashSet<>();
+        collectAffected(entry.world(), entry.x() - entry.west(), entry.z() - entry.north(),
+                entry.x() + entry.east(), entry.z() + entry.south(), gap, affected);
+        for (Camp neighbor : affected) {
+            refresh(neighbor, null, base, gap);
+        }
+    }
+
+    /**
+     * 按给定顺序批量重算边界。
+     * priorOnly 为 true 时每个营地只与排在其前面的营地比较（与逐个载入时一致），否则与所有营地的当前边界比较。
+     */
+    public void rebuild(List<Camp> ordered, boolean priorOnly) {
+        if (ordered == null || ordered.isEmpty()) {
+            return;
+        }
+        double base = getBaseRadius();
+        double gap = getGap();
+        List<Node> nodes = new ArrayList<>(ordered.size());
+        Map<String, List<Node>> byWorld = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Camp camp = ordered.get(i);
+            if (camp == null) {
+                continue;
+            }
+            Location center = stateManager.getSectorLocation(camp.getStateName(), camp.getSectorName());
+            if (center == null || center.getWorld() == null) {
+                camp.setBoundary(new CampBoundary(base));
+                continue;
+            }
+            double bonus = Math.max(0.0, plugin.war().getBoundaryBonus(camp));
+            double reach = base + bonus;
+            CampBoundary current = camp.getBoundary();
+            if (!priorOnly && current != null) {
+                reach = Math.max(reach, current.maxRadius());
+            }
+            Node node = new Node(camp, camp.getStateName(), null, i, center.getX(), center.getZ(), bonus, reach);
+            nodes.add(node);
+            byWorld.computeIfAbsent(center.getWorld().getName(), k -> new ArrayList<>()).add(node);
+        }
+        // 冷存档国家的足迹边界固定不变，作为排在最前面的邻居参与比较
+        if (plugin.cold() != null) {
+            for (ColdStorageManager.Footprint footprint : plugin.cold().footprints()) {
+                for (ColdStorageManager.SectorFootprint sector : footprint.sectors()) {
+                    List<Node> worldNodes = byWorld.get(sector.world());
+                    if (worldNodes != null) {
+                        worldNodes.add(new Node(null, footprint.name(), sector.boundary(), -1, sector.x(), sector.z(),
+                                0.0, sector.boundary().maxRadius()));
+                    }
+                }
+            }
+        }
+
+        for (List<Node> worldNodes : byWorld.values()) {
+            sweep(worldNodes, gap);
+        }
+
+        for (Node node : nodes) {
+            node.neighbors.sort(Comparator.comparingInt(other -> other.order));
+            List<Neighbor> others = new ArrayList<>(node.neighbors.size());
+            for (Node other : node.neighbors) {
+                if (priorOnly && other.order > node.order) {
+                    continue;
+                }
+                others.add(new Neighbor(other.camp, other.state, other.boundary, other.x, other.z));
+            }
+            node.camp.setBoundary(clamp(node.camp, node.x, node.z, base, node.bonus, gap, others));
+        }
+    }
+
+    private void sweep(List<Node> nodes, double gap) {
+        nodes.sort(Comparator.comparingDouble(node -> node.x - node.reach));
+        List<Node> active = new ArrayList<>();
+        for (Node node : nodes) {
+            double minX = node.x - node.reach;
+            Iterator<Node> iterator = active.iterator();
+            while (iterator.hasNext()) {
+                Node other = iterator.next();
+                if (other.x + other.reach + gap < minX) {
+                    iterator.remove();
+                    continue;
+                }
+                if (Math.abs(other.z - node.z) <= other.reach + node.reach + gap) {
+                    other.neighbors.add(node);
+                    node.neighbors.add(other);
+                }
+            }
+            active.add(node);
+        }
+    }
+
+    private void refresh(Camp camp, Camp trigger, double base, double gap) {
+        Location center = stateManager.getSectorLocation(camp.getStateName(), camp.getSectorName());
+        if (center == null || center.getWorld() == null) {
+            return;
+        }
+        double bonus = Math.max(0.0, plugin.war().getBoundaryBonus(camp));
+        double reach = base + bonus + gap;
+        List<Neighbor> others = findNeighbors(camp, center.getWorld().getName(), center.getX() - reach,
+                center.getZ() - reach, center.getX() + reach, center.getZ() + reach, trigger);
+        camp.setBoundary(clamp(camp, center.getX(), center.getZ(), base, bonus, gap, others));
+        stateManager.reindexSector(camp.getStateName(), camp.getSectorName());
+    }
+
+    private List<Neighbor> findNeighbors(Camp camp, String world, double minX, double minZ, double maxX, double maxZ, Camp extra) {
+        List<Neighbor> result = new ArrayList<>();
+        Set<Camp> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (CampSpatialIndex.Entry entry : stateManager.getSpatialIndex().queryRect(world, minX, minZ, maxX, maxZ)) {
+            Camp other = plugin.war().getCamp(entry.state(), entry.sector());
+            if (other == null && plugin.cold() != null && plugin.cold().contains(entry.state())) {
+                result.add(new Neighbor(null, entry.state(), entry.boundary(), entry.x(), entry.z()));
+                continue;
+            }
+            if (other == null || other == camp || !seen.add(other)) {
+                continue;
+            }
+            addNeighbor(result, other, world);
+        }
+        if (extra != null && extra != camp && seen.add(extra)) {
+            addNeighbor(result, extra, world);
+        }
+        return result;
+    }
+
+    private void addNeighbor(List<Neighbor> result, Camp other, String world) {
+        Location otherCenter = stateManager.getSectorLocation(other.getStateName(), other.getSectorName());
+        if (otherCenter == null || otherCenter.getWorld() == null || !world.equals(otherCenter.getWorld().getName())) {
+            return;
+        }
+        result.add(new Neighbor(other, other.getStateName(), null, otherCenter.getX(), otherCenter.getZ()));
+    }
+
+    private void collectAffected(String world, double minX, double minZ, double maxX, double maxZ, double gap, Set<Camp> affected) {
+        for (CampSpatialIndex.Entry entry : stateManager.getSpatialIndex().queryRect(world,
+                minX - gap, minZ - gap, maxX + gap, maxZ + gap)) {
+            Camp other = plugin.war().getCamp(entry.state(), entry.sector());
+            if (other != null) {
+                affected.add(other);
+            }
+        }
+    }
+
+    private CampBoundary clamp(Camp camp, double centerX, double centerZ, double base, double bonus, double gap, List<Neighbor> others) {
+        double desiredWest = base + bonus;
+        double desiredEast = base + bonus;
+        double desiredNorth = base + bonus;
+        double desiredSouth = base + bonus;
+
+        for (Neighbor neighbor : others) {
+            CampBoundary otherBoundary = neighbor.boundary();
+            if (otherBoundary == null) {
+                otherBoundary = new CampBoundary(base);
+            }
+            double requiredGap = camp.getStateName().equalsIgnoreCase(neighbor.state()) ? 0.0 : gap;
+            double obMinX = neighbor.x() - otherBoundary.west();
+            double obMaxX = neighbor.x() + otherBoundary.east();
+            double obMinZ = neighbor.z() - otherBoundary.north();
+            double obMaxZ = neighbor.z() + otherBoundary.south();
+
+            double ourMinZ = centerZ - desiredNorth;
+            double ourMaxZ = centerZ + desiredSouth;
+            double ourMinX = centerX - desiredWest;
+            double ourMaxX = centerX + desiredEast;
+
+            if (rangesOverlap(ourMinZ, ourMaxZ, obMinZ - requiredGap, obMaxZ + requiredGap)) {
+                if (neighbor.x() >= centerX) {
+                    double limit = (obMinX - requiredGap) - centerX;
+                    desiredEast = Math.min(desiredEast, Math.max(base, limit));
+                }
+                if (neighbor.x() <= centerX) {
+                    double limit = centerX - (obMaxX + requiredGap);
+                    desiredWest = Math.min(desiredWest, Math.max(base, limit));
+                }
+            }
+
+            if (rangesOverlap(ourMinX, ourMaxX, obMinX - requiredGap, obMaxX + requiredGap)) {
+                if (neighbor.z() >= centerZ) {
+                    double limit = (obMinZ - requiredGap) - centerZ;
+                    desiredSouth = Math.min(desiredSouth, Math.max(base, limit));
+                }
+                if (neighbor.z() <= centerZ) {
+                    double limit = centerZ - (obMaxZ + requiredGap);
+                    desiredNorth = Math.min(desiredNorth, Math.max(base, limit));
+                }
+            }
+        }
+
+        return new CampBoundary(desiredWest, desiredEast, desiredNorth, desiredSouth);
+    }
+
+    private boolean rangesOverlap(double minA, double maxA, double minB, double maxB) {
+        return maxA >= minB && maxB >= minA;
+    }
+
+    private double getBaseRadius() {
+        return plugin.config().settings().camp().radius();
+    }
+
+    private double getGap() {
+        return plugin.config().settings().sectors().interStateGap();
+    }
+
+    /**
+     * camp 为 null 时是冷存档国家的足迹，使用固定边界。
+     */
+    private record Neighbor(Camp camp, String state, CampBoundary fixed, double x, double z) {
+        CampBoundary boundary() {
+            return camp != null ? camp.getBoundary() : fixed;
+        }
+    }
+
+    private static final class Node {
+        private final Camp camp;
+        private final String state;
+        private final CampBoundary boundary;
+        private final int order;
+        private final double x;
+        private final double z;
+        private final double bonus;
+        private final double reach;
+        private final List<Node> neighbors = new ArrayList<>();
+
+        private Node(Camp camp, String state, CampBoundary boundary, int order, double x, double z, double bonus, double reach) {
+            this.camp = camp;
+            this.state = state;
+            this.boundary = boundary;
+            this.order = order;
+            this.x = x;
+            this.z = z;
+            this.bonus = bonus;
+            this.reach = reach;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package dev.ameruzily.campsystem.managers;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * 存档数据的二进制格式，与 YAML 存档的节点结构一一对应，可以互相转换。
+ * 布局：魔数、版本号、正文长度与 CRC32，正文为字符串表加节点树。
+ * 字符串只在表中出现一次，节点中以编号引用；形如 UUID 的字符串按两个 long 保存。
+ * 读取时省去的只是 YAML 文本的解析：解码结果仍是与 YAML 读取相同的 YamlConfiguration 节点树，
+ * 交给现有的 parseState/parseCamp 使用，加载期间的节点数量与内存占用与 YAML 存档相同，
+ * 只是重复的字符串共用字符串表中的同一个实例。
+ */
+public final class CampDataCodec {
+    public static final String EXTENSION = ".dat";
+
+    private static final int MAGIC = 0x474F4344;
+    private static final short VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_SECTION = 1;
+    private static final byte TAG_LIST = 2;
+    private static final byte TAG_STRING = 3;
+    private static final byte TAG_INT = 4;
+    private static final byte TAG_LONG = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_TRUE = 7;
+    private static final byte TAG_FALSE = 8;
+    private static final byte TAG_UUID = 9;
+
+    private CampDataCodec() {
+    }
+
+    public static byte[] encode(ConfigurationSection root) {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        collectStrings(root, strings);
+
+        Output body = new Output(4096);
+        body.varint(strings.size());
+        for (String value : strings.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            body.varint(bytes.length);
+            body.bytes(bytes);
+        }
+        writeSection(body, root, strings);
+
+        CRC32 crc = new CRC32();
+        crc.update(body.buffer.array(), 0, body.buffer.position());
+        ByteBuffer out = ByteBuffer.allocate(18 + body.buffer.position());
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putInt(body.buffer.position());
+        out.putLong(crc.getValue());
+        out.put(body.buffer.array(), 0, body.buffer.position());
+        return out.array();
+    }
+
+    /**
+     * 校验并还原为 YamlConfiguration，列表中的节点按 Map 还原。
+     */
+    public static YamlConfiguration decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("not a campinfo binary file");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported binary version " + version);
+            }
+            int length = in.getInt();
+            long checksum = in.getLong();
+            if (length < 0 || length > in.remaining()) {
+                throw new IOException("truncated binary file");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data, in.position(), length);
+            if (crc.getValue() != checksum) {
+                throw new IOException("checksum mismatch");
+            }
+
+            int count = varint(in);
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                int size = varint(in);
+                strings[i] = new String(data, in.position(), size, StandardCharsets.UTF_8);
+                in.position(in.position() + size);
+            }
+            YamlConfiguration yaml = new YamlConfiguration();
+            if (in.get() != TAG_SECTION) {
+                throw new IOException("root is not a section");
+            }
+            readSection(in, yaml, strings);
+            return yaml;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new IOException("truncated binary file", ex);
+        }
+    }
+
+    public static YamlConfiguration read(File file) throws IOException {
+        return decode(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * 将二进制存档转换为 YAML 文本，便于查看。
+     */
+    public static void toYaml(File source, File target) throws IOException {
+        AsyncSaveWriter.writeAtomically(target, read(source).saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void fromYaml(File source, File target) throws IOException {
+        AsyncSaveWriter.writeAtomically(target, encode(YamlConfiguration.loadConfiguration(source)));
+    }
+
+    private static void collectStrings(Object value, Map<String, Integer> strings) {
+        if (value instanceof ConfigurationSection section) {
+            for (String key : section.getKeys(false)) {
+                intern(key, strings);
+                collectStrings(section.get(key), strings);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                intern(String.valueOf(entry.getKey()), strings);
+                collectStrings(entry.getValue(), strings);
+            }
+        } else if (value instanceof List<?> list) {
+            for (Object element : list) {
+                collectStrings(element, strings);
+            }
+        } else if (value instanceof String text) {
+            if (asUuid(text) == null) {
+                intern(text, strings);
+            }
+        } else if (value != null && !(value instanceof Number) && !(value instanceof Boolean)) {
+            intern(value.toString(), strings);
+        }
+    }
+
+    private static void intern(String value, Map<String, Integer> strings) {
+        strings.putIfAbsent(value, strings.size());
+    }
+
+    private static void writeSection(Output out, ConfigurationSection section, Map<String, Integer> strings) {
+        Set<String> keys = section.getKeys(false);
+        out.tag(TAG_SECTION);
+        out.varint(keys.size());
+        for (String key : keys) {
+            out.varint(strings.get(key));
+            writeValue(out, section.get(key), strings);
+        }
+    }
+
+    private static void writeValue(Output out, Object value, Map<String, Integer> strings) {
+        if (value == null) {
+            out.tag(TAG_NULL);
+        } else if (value instanceof ConfigurationSection section) {
+            writeSection(out, section, strings);
+        } else if (value instanceof Map<?, ?> map) {
+            out.tag(TAG_SECTION);
+            out.varint(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.varint(strings.get(String.valueOf(entry.getKey())));
+                writeValue(out, entry.getValue(), strings);
+            }
+        } else if (value instanceof List<?> list) {
+            out.tag(TAG_LIST);
+            out.varint(list.size());
+            for (Object element : list) {
+                writeValue(out, element, strings);
+            }
+        } else if (value instanceof String text) {
+            UUID uuid = asUuid(text);
+            if (uuid != null) {
+                out.tag(TAG_UUID);
+                out.ensure(16);
+                out.buffer.putLong(uuid.getMostSignificantBits());
+                out.buffer.putLong(uuid.getLeastSignificantBits());
+            } else {
+                out.tag(TAG_STRING);
+                out.varint(strings.get(text));
+            }
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.tag(TAG_INT);
+            out.ensure(4);
+            out.buffer.putInt(((Number) value).intValue());
+        } else if (value instanceof Long number) {
+            out.tag(TAG_LONG);
+            out.ensure(8);
+            out.buffer.putLong(number);
+        } else if (value instanceof Number number) {
+            out.tag(TAG_DOUBLE);
+            out.ensure(8);
+            out.buffer.putDouble(number.doubleValue());
+        } else if (value instanceof Boolean flag) {
+            out.tag(flag ? TAG_TRUE : TAG_FALSE);
+        } else {
+            out.tag(TAG_STRING);
+            out.varint(strings.get(value.toString()));
+        }
+    }
+
+    private static void readSection(ByteBuffer in, ConfigurationSection section, String[] strings) throws IOException {
+        int count = varint(in);
+        for (int i = 0; i < count; i++) {
+            String key = strings[varint(in)];
+            byte tag = in.get();
+            if (tag == TAG_SECTION) {
+                readSection(in, section.createSection(key), strings);
+            } else {
+                section.set(key, readValue(in, tag, strings));
+            }
+        }
+    }
+
+    private static Object readValue(ByteBuffer in, byte tag, String[] strings) throws IOException {
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_SECTION: {
+                // 列表中的节点按 Map 还原，与 YAML 读取的结果一致
+                int count = varint(in);
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String key = strings[varint(in)];
+                    map.put(key, readValue(in, in.get(), strings));
+                }
+                return map;
+            }
+            case TAG_LIST: {
+                int count = varint(in);
+                List<Object> list = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    list.add(readValue(in, in.get(), strings));
+                }
+                return list;
+            }
+            case TAG_STRING:
+                return strings[varint(in)];
+            case TAG_INT:
+                return in.getInt();
+            case TAG_LONG:
+                return in.getLong();
+            case TAG_DOUBLE:
+                return in.getDouble();
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_UUID:
+                return new UUID(in.getLong(), in.getLong()).toString();
+            default:
+                throw new IOException("unknown tag " + tag);
+        }
+    }
+
+    /**
+     * 仅当字符串是标准小写形式的 UUID 时返回，保证解码后与原文完全一致。
+     */
+    private static UUID asUuid(String text) {
+        if (text.length() != 36 || text.charAt(8) != '-' || text.charAt(13) != '-'
+                || text.charAt(18) != '-' || text.charAt(23) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(text);
+            return uuid.toString().equals(text) ? uuid : null;
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static int varint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    private static final class Output {
+        private ByteBuffer buffer;
+
+        private Output(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        private void tag(byte tag) {
+            ensure(1);
+            buffer.put(tag);
+        }
+
+        private void bytes(byte[] bytes) {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+    }
+}
@@ -872,7 +872,7 @@ public class CampGuiManager implements Listener {
             if (camp.getFuel() != before && plugin.holograms() != null) {
                 plugin.holograms().update(camp);
             }
-            plugin.war().markDirty();
+            plugin.war().markDirty(camp);
             openFuel(player, camp);
         }
     }
@@ -1040,7 +1040,7 @@ public class CampGuiManager implements Listener {
                 map.put(prefix + "next_interval%", disabledText);
             }
             if (next.boundaryRadiusBonus() != null) {
-                double baseRadius = Math.max(1.0, plugin.getConfig().getDouble("camp.radius", 16.0));
+                double baseRadius = plugin.config().settings().camp().radius();
                 map.put(prefix + "next_boundary%", format.format(baseRadius + next.boundaryRadiusBonus()));
             } else {
                 map.put(prefix + "next_boundary%", disabledText);
@@ -3,6 +3,7 @@ package dev.ameruzily.campsystem.managers;
 import dev.ameruzily.campsystem.CampSystem;
 import dev.ameruzily.campsystem.models.Camp;
 import dev.ameruzily.campsystem.managers.StateManager;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.Location;
 import org.bukkit.World;
@@ -14,9 +15,14 @@ import org.bukkit.entity.Entity;
 import java.text.DecimalFormat;
 import java.util.*;
 
+/**
+ * 营地全息。update 只把营地加入待刷新集合，按 flush-ticks 合并后统一渲染，每个营地每次最多渲染一次；
+ * 渲染时只改写内容变化的行，位置不变时不再传送盔甲架。
+ */
 public class CampHologramManager {
     private final CampSystem plugin;
     private final Map<String, HologramEntry> holograms = new HashMap<>();
+    private final Set<String> pending = new LinkedHashSet<>();
     private final DecimalFormat number = new DecimalFormat("0.0");
 
     private boolean enabled;
@@ -24,6 +30,8 @@ public class CampHologramManager {
     private double spacing;
     private List<String> templates = List.of();
     private BukkitTask refreshTask;
+    private BukkitTask flushTask;
+    private long flushTicks = 1L;
 
     public CampHologramManager(CampSystem plugin) {
         this.plugin = plugin;
@@ -36,6 +44,7 @@ public class CampHologramManager {
             refreshTask.cancel();
             refreshTask = null;
         }
+        cancelFlush();
         FileConfiguration config = plugin.getConfig();
         String hologramPath = "camp.hologram";
         if (!config.isConfigurationSection(hologramPath) && config.isConfigurationSection("capital.hologram")) {
@@ -44,6 +53,7 @@ public class CampHologramManager {
         enabled = config.getBoolean(hologramPath + ".enabled", true);
         offsetY = config.getDouble(hologramPath + ".offset-y", 1.8);
         spacing = config.getDouble(hologramPath + ".line-spacing", 0.3);
+        flushTicks = Math.max(1L, config.getLong(hologramPath + ".flush-ticks", 1L));
         templates = plugin.lang().listColored("hologram.lines");
         if (templates.isEmpty()) {
             templates = List.of(
@@ -107,8 +117,36 @@ public class CampHologramManager {
             }
             return;
         }
-        ensureStands(entry);
-        updateEntry(entry, camp);
+        pending.add(key);
+        if (flushTask == null) {
+            flushTask = Bukkit.getScheduler().runTaskLater(plugin, this::flush, flushTicks);
+        }
+    }
+
+    private void flush() {
+        flushTask = null;
+        if (!enabled) {
+            pending.clear();
+            return;
+        }
+        List<String> keys = new ArrayList<>(pending);
+        pending.clear();
+        for (String key : keys) {
+            HologramEntry entry = holograms.get(key);
+            Camp camp = entry == null ? null : plugin.war().getCamp(entry.state, entry.sector);
+            if (camp != null) {
+                ensureStands(entry);
+                updateEntry(entry, camp);
+            }
+        }
+    }
+
+    private void cancelFlush() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        pending.clear();
     }
 
     public void removeCamp(String state, String sector) {
@@ -161,6 +199,7 @@ public class CampHologramManager {
             refreshTask.cancel();
             refreshTask = null;
         }
+        cancelFlush();
     }
 
     private void refreshAll() {
@@ -177,20 +216,34 @@ public class CampHologramManager {
 
     private void updateEntry(HologramEntry entry, Camp camp) {
         List<String> formatted = formatLines(camp);
-        entry.stands.removeIf(Objects::isNull);
+        boolean changed = entry.stands.removeIf(Objects::isNull);
+        int count = entry.stands.size();
         ensureStandCount(entry, formatted.size());
         Location base = entry.blockLocation.clone().add(0.5, offsetY, 0.5);
+        // 盔甲架增减或位置变化后全部重新摆放并改写
+        boolean moved = changed || entry.stands.size() != count || !base.equals(entry.renderedBase);
+        if (moved) {
+            entry.rendered.clear();
+            entry.renderedBase = base;
+        }
+        List<String> rendered = new ArrayList<>(entry.stands.size());
         for (int i = 0; i < entry.stands.size(); i++) {
             ArmorStand stand = entry.stands.get(i);
+            String line = i < formatted.size() ? formatted.get(i) : "";
+            rendered.add(line);
             if (stand == null) {
                 continue;
             }
-            Location lineLoc = base.clone().add(0.0, -spacing * i, 0.0);
-            stand.teleport(lineLoc);
-            String line = i < formatted.size() ? formatted.get(i) : "";
+            if (moved) {
+                stand.teleport(base.clone().add(0.0, -spacing * i, 0.0));
+            }
+            if (i < entry.rendered.size() && Objects.equals(entry.rendered.get(i), line)) {
+                continue;
+            }
             stand.setCustomName(line);
             stand.setCustomNameVisible(line != null && !line.isEmpty());
         }
+        entry.rendered = rendered;
     }
 
     private void ensureStands(HologramEntry entry) {
@@ -326,6 +379,9 @@ public class CampHologramManager {
         private String sector;
         private Location blockLocation;
         private final List<ArmorStand> stands = new ArrayList<>();
+        // 上次渲染的各行内容与基准位置
+        private List<String> rendered = new ArrayList<>();
+        private Location renderedBase;
 
         private HologramEntry(String state, String sector) {
             this.state = state;
@@ -339,6 +395,8 @@ public class CampHologramManager {
                 }
             }
             stands.clear();
+            rendered.clear();
+            renderedBase = null;
         }
     }
 }
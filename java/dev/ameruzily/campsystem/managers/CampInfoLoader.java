@@ -0,0 +1,195 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.models.Camp;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 启动与重载时的并行加载。存储后端把存档拆成互不重叠的若干段，工作线程逐段读取并解析为
+ * StateData、SectorData 与 Camp；主线程只按顺序登记已解析、已校验的国家，不再遍历整棵 YAML 树。
+ * 各阶段耗时写入日志，并计入 StorageTimers 的 load / apply。
+ */
+public class CampInfoLoader {
+    private final CampSystem plugin;
+    private final StorageTimers timers;
+
+    public CampInfoLoader(CampSystem plugin, StorageTimers timers) {
+        this.plugin = plugin;
+        this.timers = timers;
+    }
+
+    private record LoadedState(StateManager.StateData state, List<Camp> camps) {
+    }
+
+    private record Part(List<LoadedState> states, long readNanos, long parseNanos) {
+    }
+
+    /**
+     * 从存储后端加载全部国家与营地，返回登记的国家数。某一段读取失败时抛出 IOException，此时已登记的数据不完整。
+     */
+    public int load(StorageBackend backend) throws IOException {
+        long start = System.nanoTime();
+        StorageBackend.LoadPlan plan = backend.plan();
+        long planNanos = System.nanoTime() - start;
+
+        List<StorageBackend.Chunk> chunks = plan.chunks();
+        int threads = Math.max(1, Math.min(threadCount(), chunks.size()));
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "CampSystem-Loader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Part>> futures = new ArrayList<>(chunks.size());
+            for (StorageBackend.Chunk chunk : chunks) {
+                futures.add(pool.submit(() -> parse(chunk)));
+            }
+
+            StateManager states = plugin.state();
+            WarManager war = plugin.war();
+            states.beginLoad(plan.nextAutoId());
+            war.beginLoad();
+            List<Camp> loadedCamps = new ArrayList<>();
+            long waitNanos = 0L;
+            long registerNanos = 0L;
+            long readNanos = 0L;
+            long parseNanos = 0L;
+            int count = 0;
+            // 按提交顺序登记，后面的段仍在工作线程中解析
+            for (Future<Part> future : futures) {
+                long waitStart = System.nanoTime();
+                Part part = await(future);
+                long registerStart = System.nanoTime();
+                waitNanos += registerStart - waitStart;
+                readNanos += part.readNanos();
+                parseNanos += part.parseNanos();
+                for (LoadedState loaded : part.states()) {
+                    if (!states.registerLoadedState(loaded.state())) {
+                        continue;
+                    }
+                    count++;
+                    for (Camp camp : loaded.camps()) {
+                        war.registerLoadedCamp(camp);
+                        loadedCamps.add(camp);
+                    }
+                }
+                registerNanos += System.nanoTime() - registerStart;
+            }
+            long indexStart = System.nanoTime();
+            if (plugin.cold() != null) {
+                plugin.cold().reload();
+            }
+            states.finishLoad();
+            war.finishLoad(loadedCamps);
+            long indexNanos = System.nanoTime() - indexStart;
+
+            timers.record(StorageTimers.Stage.LOAD, planNanos + waitNanos);
+            timers.record(StorageTimers.Stage.APPLY, registerNanos + indexNanos);
+            plugin.getLogger().info(String.format(Locale.ROOT,
+                    "Loaded %d states and %d camps from %s storage in %d ms using %d threads "
+                            + "(plan %d ms, read %d ms, parse %d ms, register %d ms, index %d ms; read/parse summed across threads).",
+                    count, loadedCamps.size(), backend.getName(), toMillis(System.nanoTime() - start), threads,
+                    toMillis(planNanos), toMillis(readNanos), toMillis(parseNanos), toMillis(registerNanos), toMillis(indexNanos)));
+            return count;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 读取失败后清空已登记的部分数据，以空存档继续运行。
+     */
+    public void clear() {
+        plugin.state().beginLoad(1);
+        plugin.war().beginLoad();
+        if (plugin.cold() != null) {
+            plugin.cold().reload();
+        }
+        plugin.state().finishLoad();
+        plugin.war().finishLoad(List.of());
+    }
+
+    // 在工作线程中执行：只读取存档节点与配置快照
+    private Part parse(StorageBackend.Chunk chunk) throws IOException {
+        long start = System.nanoTime();
+        Map<String, ConfigurationSection> sections = chunk.read();
+        long parseStart = System.nanoTime();
+        List<LoadedState> result = new ArrayList<>(sections.size());
+        for (Map.Entry<String, ConfigurationSection> entry : sections.entrySet()) {
+            try {
+                LoadedState loaded = parseState(entry.getKey(), entry.getValue());
+                if (loaded != null) {
+                    result.add(loaded);
+                }
+            } catch (RuntimeException ex) {
+                plugin.getLogger().warning("Skipping state " + entry.getKey() + " due to invalid data: " + ex.getMessage());
+            }
+        }
+        return new Part(result, parseStart - start, System.nanoTime() - parseStart);
+    }
+
+    private LoadedState parseState(String stateName, ConfigurationSection stateSection) {
+        StateManager.StateData data = plugin.state().parseState(stateName, stateSection);
+        if (data == null) {
+            return null;
+        }
+        List<Camp> camps = new ArrayList<>();
+        ConfigurationSection sectorsSection = stateSection.getConfigurationSection("sectors");
+        if (sectorsSection != null) {
+            for (String sectorName : data.sectors.keySet()) {
+                ConfigurationSection sectorSection = sectorsSection.getConfigurationSection(sectorName);
+                ConfigurationSection campSection = sectorSection == null ? null : sectorSection.getConfigurationSection("camp");
+                if (campSection != null) {
+                    camps.add(plugin.war().parseCamp(stateName, sectorName, campSection));
+                }
+            }
+        }
+        return new LoadedState(data, camps);
+    }
+
+    private Part await(Future<Part> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading saved data", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private int threadCount() {
+        int configured = plugin.getConfig().getInt("storage.load-threads", 0);
+        if (configured > 0) {
+            return configured;
+        }
+        return Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -2,9 +2,6 @@ package dev.ameruzily.campsystem.managers;
 
 import dev.ameruzily.campsystem.CampSystem;
 import dev.ameruzily.campsystem.models.Camp;
-import org.bukkit.Bukkit;
-import org.bukkit.Location;
-import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.scheduler.BukkitRunnable;
@@ -13,39 +10,186 @@ import org.bukkit.scheduler.BukkitTask;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 政权存档的调度：记录哪些国家与营地有变化，定期为它们生成快照交给存储后端（storage.backend）写入。
+ * 文件后端按国家重写分片，SQLite 后端只写入变化的行。
+ * 两次保存之间的关键变更写入 MutationJournal，存储后端确认写入后压缩，启动时重放。
+ * 有写入失败时之后的保存都整体重写，直到一次整体保存成功，期间不压缩变更日志。
+ */
 public class CampInfoManager {
     private static final long SAVE_INTERVAL_MS = 5000L;
 
     private final CampSystem plugin;
-    private final File file;
+    private final StorageTimers timers = new StorageTimers();
+    private final CampInfoLoader loader;
 
+    private StorageBackend backend;
+    private MutationJournal journal;
     private boolean dirty;
+    private boolean fullSave;
     private long lastSave;
     private BukkitTask pendingTask;
+    private CompletableFuture<Boolean> lastWrite = CompletableFuture.completedFuture(true);
+    // 写入失败的累计次数，以及已被之后成功的整体保存覆盖的次数；由写入线程更新
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong coveredFailures = new AtomicLong();
+    // 小写国家名 -> 最近一次确认写入的整国快照生成时间
+    private final Map<String, Long> persistedAt = new ConcurrentHashMap<>();
 
     public CampInfoManager(CampSystem plugin) {
         this.plugin = plugin;
-        this.file = new File(plugin.getDataFolder(), "campinfo.yml");
+        this.loader = new CampInfoLoader(plugin, timers);
+        this.journal = createJournal();
+    }
+
+    public MutationJournal journal() {
+        return journal;
+    }
+
+    private MutationJournal createJournal() {
+        return new MutationJournal(plugin.getLogger(), new File(plugin.getDataFolder(), "journal"),
+                plugin.getConfig().getLong("storage.journal.group-commit-ms", 10L));
     }
 
     public synchronized void reload() {
-        ensureFile();
-        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
         if (pendingTask != null) {
             pendingTask.cancel();
             pendingTask = null;
         }
+        journal.close();
+        if (backend != null) {
+            backend.close();
+        }
+        backend = createBackend();
         dirty = false;
+        fullSave = false;
         lastSave = System.currentTimeMillis();
+        try {
+            loader.load(backend);
+        } catch (IOException ex) {
+            plugin.getLogger().severe("Failed to load data from " + backend.getName() + " storage: " + ex.getMessage());
+            loader.clear();
+        }
+        publishSnapshots();
+
+        // 在存档之上重放上次运行留下的变更日志，写回存档后再清空
+        journal = createJournal();
+        int replayed = journal.replay(new JournalReplay());
+        if (replayed > 0) {
+            plugin.getLogger().info("Replayed " + replayed + " journal entries.");
+        }
+        if (backend.needsRewrite()) {
+            fullSave = true;
+        }
+        if (replayed > 0 || fullSave) {
+            saveInternal();
+        }
+        backend.flush();
+        journal.clear();
+        if (plugin.getConfig().getBoolean("storage.journal.enabled", true)) {
+            journal.start();
+        }
+        if (backend instanceof SqliteStorageBackend && plugin.state().getStates().isEmpty()
+                && YamlStorageBackend.exists(plugin.getDataFolder())) {
+            plugin.getLogger().info("SQLite storage is empty; use /goc admin migrate to import campinfo.yml.");
+        }
+    }
 
-        plugin.state().loadFromCampInfo(yaml);
-        plugin.war().loadFromCampInfo(yaml);
+    private StorageBackend createBackend() {
+        String type = plugin.getConfig().getString("storage.backend", "yaml");
+        if ("sqlite".equalsIgnoreCase(type)) {
+            SqliteStorageBackend sqlite = new SqliteStorageBackend(plugin.getDataFolder(), plugin.getLogger(),
+                    plugin.getConfig().getString("storage.sqlite-file", "campinfo.db"), timers);
+            try {
+                sqlite.open();
+                return sqlite;
+            } catch (IOException ex) {
+                plugin.getLogger().severe("Unable to open SQLite storage, falling back to files: " + ex.getMessage());
+                sqlite.close();
+            }
+        }
+        return new YamlStorageBackend(plugin.getDataFolder(), plugin.getLogger(),
+                "binary".equalsIgnoreCase(plugin.getConfig().getString("storage.format", "yaml")), timers);
     }
 
+    private void publishSnapshots() {
+        if (plugin.snapshots() != null) {
+            plugin.snapshots().publishNow();
+        }
+    }
+
+    /**
+     * 存档各阶段的耗时统计。
+     */
+    public StorageTimers timers() {
+        return timers;
+    }
+
+    /**
+     * 把 campinfo.yml 与 states/ 中的文件存档导入当前后端，覆盖现有数据。返回导入的国家数，当前已是文件存储时返回 -1。
+     */
+    public synchronized int importFromFiles() throws IOException {
+        if (backend instanceof YamlStorageBackend) {
+            return -1;
+        }
+        if (!YamlStorageBackend.exists(plugin.getDataFolder())) {
+            throw new IOException("campinfo.yml not found");
+        }
+        if (pendingTask != null) {
+            pendingTask.cancel();
+            pendingTask = null;
+        }
+        YamlStorageBackend source = new YamlStorageBackend(plugin.getDataFolder(), plugin.getLogger(), false, timers);
+        try {
+            loader.load(source);
+        } finally {
+            source.close();
+            publishSnapshots();
+        }
+        fullSave = true;
+        saveInternal();
+        backend.flush();
+        return plugin.state().getStates().size();
+    }
+
+    /**
+     * 把所有国家导出为 YAML 到 export/ 目录，便于管理员查看二进制或数据库存档。返回导出的文件数。
+     */
+    public synchronized int exportYaml() throws IOException {
+        return backend.exportYaml(new File(plugin.getDataFolder(), "export"));
+    }
+
+    /**
+     * 该国家在 since 之后生成的整国快照是否已由存储后端确认写入。
+     */
+    public boolean isPersistedSince(String stateName, long since) {
+        Long at = persistedAt.get(stateName.toLowerCase(Locale.ROOT));
+        return at != null && at >= since;
+    }
+
+    /**
+     * 标记所有国家需要保存，用于涉及多个国家或无法确定范围的修改。
+     */
     public synchronized void markDirty() {
+        fullSave = true;
+        if (plugin.snapshots() != null) {
+            plugin.snapshots().markAll();
+        }
+        requestSave();
+    }
+
+    /**
+     * 按计划保存已标记变化的国家与营地。
+     */
+    public synchronized void requestSave() {
         dirty = true;
+        if (plugin.snapshots() != null) {
+            plugin.snapshots().requestPublish();
+        }
         long now = System.currentTimeMillis();
         if (now - lastSave >= SAVE_INTERVAL_MS) {
             saveInternal();
@@ -74,161 +218,149 @@ public class CampInfoManager {
         saveInternal();
     }
 
-    private void ensureFile() {
-        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
-            plugin.getLogger().warning("Failed to create data folder for campinfo.yml");
+    /**
+     * 提交最后一次快照并等待存储后端写完后退出，用于插件关闭。
+     */
+    public synchronized void shutdown() {
+        if (pendingTask != null) {
+            pendingTask.cancel();
+            pendingTask = null;
+        }
+        if (backend == null) {
+            return;
         }
-        if (!file.exists()) {
-            YamlConfiguration yaml = new YamlConfiguration();
-            yaml.set("meta.next-auto-id", plugin.state().getNextAutoId());
-            yaml.createSection("states");
+        lastWrite = CompletableFuture.completedFuture(false);
+        try {
+            saveNow();
+        } finally {
             try {
-                yaml.save(file);
-            } catch (IOException ex) {
-                plugin.getLogger().warning("Unable to create default campinfo.yml: " + ex.getMessage());
+                backend.close();
+            } finally {
+                backend = null;
+                journal.close();
+                // 最后一次保存与之前失败的写入都已确认落盘才清空变更日志，否则留到下次启动重放
+                if (lastWrite.getNow(false) && failedWrites.get() == coveredFailures.get()) {
+                    journal.clear();
+                }
             }
         }
     }
 
     private void saveInternal() {
-        ensureFile();
-        YamlConfiguration yaml = buildSnapshot();
-        try {
-            yaml.save(file);
-            dirty = false;
-            lastSave = System.currentTimeMillis();
-        } catch (IOException ex) {
-            plugin.getLogger().warning("Failed to save campinfo.yml: " + ex.getMessage());
+        if (backend == null) {
+            return;
         }
-    }
-
-    private YamlConfiguration buildSnapshot() {
-        YamlConfiguration yaml = new YamlConfiguration();
-        yaml.set("meta.next-auto-id", plugin.state().getNextAutoId());
-
-        ConfigurationSection statesSection = yaml.createSection("states");
-        List<StateManager.StateData> states = new ArrayList<>(plugin.state().getStates());
-        states.sort(Comparator.comparing(s -> s.name, String.CASE_INSENSITIVE_ORDER));
-
-        for (StateManager.StateData state : states) {
-            ConfigurationSection stateSection = statesSection.createSection(state.name);
-            if (state.captain != null) {
-                stateSection.set("captain", state.captain.toString());
+        // 主线程只为有变化的国家或营地生成快照，序列化与写入交给存储后端的后台线程
+        long start = System.nanoTime();
+        long failures = failedWrites.get();
+        if (failures != coveredFailures.get()) {
+            fullSave = true;
+        }
+        boolean full = fullSave;
+        long snapshotAt = System.currentTimeMillis();
+        List<String> written = new ArrayList<>();
+        List<StorageBackend.StateChange> changes = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        boolean partial = backend.supportsPartialUpdates();
+        for (StateManager.StateData state : plugin.state().getStates()) {
+            live.add(state.name);
+            if (fullSave || !backend.contains(state.name) || (!partial && (state.dirty || hasDirtyCamp(state)))) {
+                ConfigurationSection section = CampInfoSnapshot.writeState(new YamlConfiguration(), state, plugin.war()::getCamp);
+                state.dirty = false;
+                changes.add(new StorageBackend.StateChange(state.name, section, Map.of()));
+                written.add(state.name.toLowerCase(Locale.ROOT));
+                continue;
             }
-            stateSection.set("bank", state.bankBalance);
-            stateSection.set("tax", state.taxAmount);
-            if (state.ideologyId != null && !state.ideologyId.isEmpty()) {
-                stateSection.set("ideology", state.ideologyId);
+            // 国家字段变化（如存入税款）只提交不含营地的国家节点，营地仍只提交有变化的
+            ConfigurationSection section = null;
+            Map<String, ConfigurationSection> camps = null;
+            if (state.dirty) {
+                section = CampInfoSnapshot.writeState(new YamlConfiguration(), state, (name, sector) -> null);
+                state.dirty = false;
+                camps = new LinkedHashMap<>();
             }
-            if (state.ideologyChangedAt > 0L) {
-                stateSection.set("ideology-changed-at", state.ideologyChangedAt);
+            for (String sector : state.sectors.keySet()) {
+                Camp camp = plugin.war().getCamp(state.name, sector);
+                if (camp == null) {
+                    if (section != null) {
+                        camps.put(sector, null);
+                    }
+                    continue;
+                }
+                if (!camp.isDirty()) {
+                    continue;
+                }
+                if (camps == null) {
+                    camps = new LinkedHashMap<>();
+                }
+                ConfigurationSection campSection = new YamlConfiguration();
+                CampInfoSnapshot.writeCamp(campSection, camp);
+                camps.put(sector, campSection);
             }
-            if (state.capitalSector != null && !state.capitalSector.isEmpty()) {
-                stateSection.set("capital", state.capitalSector);
+            if (camps != null) {
+                changes.add(new StorageBackend.StateChange(state.name, section, camps, false));
             }
-
-            List<String> members = state.members.stream()
-                    .map(UUID::toString)
-                    .sorted(String.CASE_INSENSITIVE_ORDER)
-                    .collect(Collectors.toList());
-            stateSection.set("members", members);
-
-            Set<UUID> governorIds = state.sectors.values().stream()
-                    .map(StateManager.SectorData::getOwner)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toCollection(LinkedHashSet::new));
-            if (state.captain != null) {
-                governorIds.remove(state.captain);
+        }
+        long segment = journal.checkpoint();
+        timers.since(StorageTimers.Stage.SNAPSHOT, start);
+        MutationJournal log = journal;
+        lastWrite = backend.save(new StorageBackend.SaveBatch(plugin.state().getNextAutoId(), changes, live));
+        // 在写入线程中执行，不能获取本对象的锁：shutdown 持锁等待写入完成
+        lastWrite.thenAccept(ok -> {
+            if (!ok) {
+                failedWrites.incrementAndGet();
+                return;
             }
-            List<String> governorList = governorIds.stream()
-                    .map(UUID::toString)
-                    .sorted(String.CASE_INSENSITIVE_ORDER)
-                    .collect(Collectors.toList());
-            Set<UUID> memberRoles = new LinkedHashSet<>(state.members);
-            if (state.captain != null) {
-                memberRoles.remove(state.captain);
+            for (String name : written) {
+                persistedAt.put(name, snapshotAt);
             }
-            memberRoles.removeAll(governorIds);
-            List<String> memberRoleList = memberRoles.stream()
-                    .map(UUID::toString)
-                    .sorted(String.CASE_INSENSITIVE_ORDER)
-                    .collect(Collectors.toList());
-
-            ConfigurationSection rolesSection = stateSection.createSection("roles");
-            if (state.captain != null) {
-                rolesSection.set("captain", state.captain.toString());
+            if (full) {
+                coveredFailures.accumulateAndGet(failures, Math::max);
             }
-            rolesSection.set("governors", governorList);
-            rolesSection.set("members", memberRoleList);
-
-            List<Map<String, Object>> transactions = new ArrayList<>();
-            for (StateManager.BankTransaction tx : state.transactions) {
-                Map<String, Object> entry = new LinkedHashMap<>();
-                entry.put("timestamp", tx.getTimestamp());
-                entry.put("type", tx.getType().name());
-                entry.put("amount", tx.getAmount());
-                entry.put("balance", tx.getBalance());
-                if (tx.getActor() != null) {
-                    entry.put("actor", tx.getActor().toString());
-                }
-                transactions.add(entry);
+            // 本次快照确认落盘且没有未覆盖的失败写入时，之前分段中的变更才可以删除
+            if (failedWrites.get() == coveredFailures.get()) {
+                log.compact(segment);
             }
-            stateSection.set("transactions", transactions);
-
-            ConfigurationSection sectorsSection = stateSection.createSection("sectors");
-            for (StateManager.SectorData sector : state.sectors.values()) {
-                ConfigurationSection sectorSection = sectorsSection.createSection(sector.getName());
-                Location location = sector.getLocation();
-                if (location != null) {
-                    World world = location.getWorld();
-                    if (world != null) {
-                        sectorSection.set("world", world.getName());
-                    }
-                    sectorSection.set("x", location.getBlockX());
-                    sectorSection.set("y", location.getBlockY());
-                    sectorSection.set("z", location.getBlockZ());
-                }
-                if (sector.getOwner() != null) {
-                    sectorSection.set("owner", sector.getOwner().toString());
-                }
+        });
+        dirty = false;
+        fullSave = false;
+        lastSave = System.currentTimeMillis();
+    }
 
-                Camp camp = plugin.war().getCamp(state.name, sector.getName());
-                if (camp != null) {
-                    ConfigurationSection campSection = sectorSection.createSection("camp");
-                    campSection.set("hp", camp.getHp());
-                    campSection.set("max-hp", camp.getMaxHp());
-                    campSection.set("broken-since", camp.getBrokenSince());
-                    campSection.set("last-damaged", camp.getLastDamagedAt());
-                    campSection.set("last-maintained", camp.getLastMaintainedAt());
-                    campSection.set("next-maintenance", camp.getNextMaintenanceAt());
-                    campSection.set("maintenance-warning", camp.isMaintenanceWarningIssued());
-                    campSection.set("maintenance-overdue", camp.isMaintenanceOverdueNotified());
-                    campSection.set("last-maintenance-decay", camp.getLastMaintenanceDecayAt());
-                    campSection.set("fuel", camp.getFuel());
-                    campSection.set("max-fuel", camp.getMaxFuel());
-                    campSection.set("last-fuel-check", camp.getLastFuelCheckAt());
-                    campSection.set("heal-rate", camp.getHealRate());
-                    campSection.set("fatigue-amplifier", camp.getFatigueAmplifier());
-                    campSection.set("hp-level", camp.getHpLevel());
-                    campSection.set("fuel-level", camp.getFuelLevel());
-                    campSection.set("heal-level", camp.getHealLevel());
-                    campSection.set("fatigue-level", camp.getFatigueLevel());
-                    campSection.set("storage-level", camp.getStorageLevel());
-                    campSection.set("efficiency-level", camp.getEfficiencyLevel());
-                    if (!camp.getModules().isEmpty()) {
-                        campSection.createSection("modules", camp.getModules());
-                    }
-                    campSection.set("stored-money", camp.getStoredMoney());
-                    campSection.set("max-stored-money", camp.getMaxStoredMoney());
-                    campSection.set("max-stored-items", camp.getMaxStoredItems());
-                    campSection.set("last-production", camp.getLastProductionAt());
-                    if (!camp.getStoredItems().isEmpty()) {
-                        campSection.createSection("stored-items", camp.getStoredItems());
-                    }
-                }
-            }
-        }
-
-        return yaml;
+    private class JournalReplay implements MutationJournal.Handler {
+        @Override
+        public void bank(String state, double balance, long timestamp, String type, double amount, UUID actor) {
+            plugin.state().replayBank(state, balance, timestamp, type, amount, actor);
+        }
+
+        @Override
+        public void campHp(String state, String sector, double hp) {
+            plugin.war().replayCampHp(state, sector, hp);
+        }
+
+        @Override
+        public void transfer(String fromState, String toState, String sector) {
+            plugin.state().replayTransfer(fromState, toState, sector);
+        }
+
+        @Override
+        public void memberJoin(String state, UUID player) {
+            plugin.state().replayMemberJoin(state, player);
+        }
+
+        @Override
+        public void memberLeave(String state, UUID player) {
+            plugin.state().replayMemberLeave(state, player);
+        }
+    }
+
+    private boolean hasDirtyCamp(StateManager.StateData state) {
+        for (String sector : state.sectors.keySet()) {
+            Camp camp = plugin.war().getCamp(state.name, sector);
+            if (camp != null && camp.isDirty()) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,137 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.SectorPosition;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * 把内存中的国家数据写成 campinfo.yml 的树结构（states.<国家>），各存储后端都以此为输入。
+ * 不依赖插件实例，基准测试可直接使用。
+ */
+public final class CampInfoSnapshot {
+
+    private CampInfoSnapshot() {
+    }
+
+    /**
+     * 在 statesSection 下写入一个国家（含分区与营地），返回该国家的节点。camps 按 (国家, 分区) 查找营地。
+     */
+    public static ConfigurationSection writeState(ConfigurationSection statesSection, StateManager.StateData state,
+                                                  BiFunction<String, String, Camp> camps) {
+        ConfigurationSection stateSection = statesSection.createSection(state.name);
+        if (state.captain != null) {
+            stateSection.set("captain", state.captain.toString());
+        }
+        stateSection.set("bank", state.bankBalance);
+        stateSection.set("tax", state.taxAmount);
+        if (state.ideologyId != null && !state.ideologyId.isEmpty()) {
+            stateSection.set("ideology", state.ideologyId);
+        }
+        if (state.ideologyChangedAt > 0L) {
+            stateSection.set("ideology-changed-at", state.ideologyChangedAt);
+        }
+        if (state.capitalSector != null && !state.capitalSector.isEmpty()) {
+            stateSection.set("capital", state.capitalSector);
+        }
+        stateSection.set("last-active", state.lastActiveAt);
+
+        List<String> members = state.members.stream()
+                .map(UUID::toString)
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .collect(Collectors.toList());
+        stateSection.set("members", members);
+
+        Set<UUID> governorIds = state.sectors.values().stream()
+                .map(StateManager.SectorData::getOwner)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (state.captain != null) {
+            governorIds.remove(state.captain);
+        }
+        List<String> governorList = governorIds.stream()
+                .map(UUID::toString)
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .collect(Collectors.toList());
+        Set<UUID> memberRoles = new LinkedHashSet<>(state.members);
+        if (state.captain != null) {
+            memberRoles.remove(state.captain);
+        }
+        memberRoles.removeAll(governorIds);
+        List<String> memberRoleList = memberRoles.stream()
+                .map(UUID::toString)
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .collect(Collectors.toList());
+
+        ConfigurationSection rolesSection = stateSection.createSection("roles");
+        if (state.captain != null) {
+            rolesSection.set("captain", state.captain.toString());
+        }
+        rolesSection.set("governors", governorList);
+        rolesSection.set("members", memberRoleList);
+
+        ConfigurationSection sectorsSection = stateSection.createSection("sectors");
+        for (StateManager.SectorData sector : state.sectors.values()) {
+            ConfigurationSection sectorSection = sectorsSection.createSection(sector.getName());
+            SectorPosition position = sector.getPosition();
+            if (position != null) {
+                sectorSection.set("world", position.worldName());
+                sectorSection.set("x", position.x());
+                sectorSection.set("y", position.y());
+                sectorSection.set("z", position.z());
+            }
+            if (sector.getOwner() != null) {
+                sectorSection.set("owner", sector.getOwner().toString());
+            }
+
+            Camp camp = camps.apply(state.name, sector.getName());
+            if (camp != null) {
+                writeCamp(sectorSection.createSection("camp"), camp);
+            }
+        }
+        return stateSection;
+    }
+
+    /**
+     * 写入营地数值并清除其已修改标记。
+     */
+    public static void writeCamp(ConfigurationSection campSection, Camp camp) {
+        camp.clearDirty();
+        // 随时间变化的数值写入锚点，读取时按相同速率结算
+        Camp.Anchors anchors = camp.anchors();
+        campSection.set("hp", anchors.hp());
+        campSection.set("max-hp", camp.getMaxHp());
+        campSection.set("broken-since", anchors.brokenSince());
+        campSection.set("last-damaged", camp.getLastDamagedAt());
+        campSection.set("last-maintained", camp.getLastMaintainedAt());
+        campSection.set("next-maintenance", camp.getNextMaintenanceAt());
+        campSection.set("maintenance-warning", camp.isMaintenanceWarningIssued());
+        campSection.set("maintenance-overdue", camp.isMaintenanceOverdueNotified());
+        campSection.set("last-maintenance-decay", camp.getLastMaintenanceDecayAt());
+        campSection.set("fuel", anchors.fuel());
+        campSection.set("max-fuel", camp.getMaxFuel());
+        campSection.set("last-fuel-check", anchors.lastFuelCheckAt());
+        campSection.set("last-regen", anchors.lastRegenAt());
+        campSection.set("heal-rate", camp.getHealRate());
+        campSection.set("fatigue-amplifier", camp.getFatigueAmplifier());
+        campSection.set("hp-level", camp.getHpLevel());
+        campSection.set("fuel-level", camp.getFuelLevel());
+        campSection.set("heal-level", camp.getHealLevel());
+        campSection.set("fatigue-level", camp.getFatigueLevel());
+        campSection.set("storage-level", camp.getStorageLevel());
+        campSection.set("efficiency-level", camp.getEfficiencyLevel());
+        if (!camp.getModules().isEmpty()) {
+            campSection.createSection("modules", camp.getModules());
+        }
+        campSection.set("stored-money", anchors.storedMoney());
+        campSection.set("max-stored-money", camp.getMaxStoredMoney());
+        campSection.set("max-stored-items", camp.getMaxStoredItems());
+        campSection.set("last-production", anchors.lastProductionAt());
+        if (!anchors.storedItems().isEmpty()) {
+            campSection.createSection("stored-items", anchors.storedItems());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.models.Camp;
+
+import java.util.*;
+
+/**
+ * 营地维护事件的截止时间队列。每个营地只记录下一次需要处理（燃料消耗、生产或零燃料扣血）的时间，
+ * 维护任务只取出已到期的营地，开销与到期事件数成正比，与营地总数无关。
+ * 重新安排时不删除旧的队列项，取出时与当前记录的时间不一致的项直接丢弃；过期项过多时整体重建。
+ * 没有待处理事件的营地记为挂起，不进入队列。
+ */
+public class CampMaintenanceQueue {
+    public static final long IDLE = -1L;
+
+    private record Deadline(long at, Camp camp) {
+    }
+
+    private final PriorityQueue<Deadline> queue = new PriorityQueue<>(Comparator.comparingLong(Deadline::at));
+    private final Map<Camp, Long> scheduled = new IdentityHashMap<>();
+
+    /**
+     * 安排营地的下一次事件，at 为 IDLE 时挂起。返回之前记录的时间，未登记时返回 null。
+     */
+    public Long schedule(Camp camp, long at) {
+        Long previous = scheduled.put(camp, at);
+        if (at != IDLE && (previous == null || previous != at)) {
+            queue.add(new Deadline(at, camp));
+            if (queue.size() > 64 && queue.size() > scheduled.size() * 2) {
+                compact();
+            }
+        }
+        return previous;
+    }
+
+    public void remove(Camp camp) {
+        scheduled.remove(camp);
+    }
+
+    /**
+     * 取出截止时间不晚于 now 的营地，按到期先后排列。取出的营地需要重新安排。
+     */
+    public List<Camp> pollDue(long now) {
+        List<Camp> due = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().at() <= now) {
+            Deadline deadline = queue.poll();
+            Long current = scheduled.get(deadline.camp());
+            if (current == null || current != deadline.at()) {
+                continue;
+            }
+            scheduled.remove(deadline.camp());
+            due.add(deadline.camp());
+        }
+        return due;
+    }
+
+    public void clear() {
+        queue.clear();
+        scheduled.clear();
+    }
+
+    public int size() {
+        return scheduled.size();
+    }
+
+    private void compact() {
+        queue.clear();
+        for (Map.Entry<Camp, Long> entry : scheduled.entrySet()) {
+            if (entry.getValue() != IDLE) {
+                queue.add(new Deadline(entry.getValue(), entry.getKey()));
+            }
+        }
+    }
+}
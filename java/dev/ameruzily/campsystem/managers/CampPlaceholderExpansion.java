@@ -1,7 +1,7 @@
 package dev.ameruzily.campsystem.managers;
 
 import dev.ameruzily.campsystem.CampSystem;
-import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.WorldSnapshot;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -52,7 +52,9 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
             return "";
         }
         String id = identifier.toLowerCase(Locale.ROOT);
-        String stateName = plugin.state().getStateName(player);
+        // PAPI 可能在异步线程调用，国家、营地与战争数据只从快照读取
+        WorldSnapshot snapshot = plugin.snapshots().current();
+        String stateName = snapshot.stateOf(player.getUniqueId());
         if (id.equals("state") || id.equals("state_name")) {
             return stateName == null ? plugin.lang().messageOrDefault("placeholders.none", "无") : stateName;
         }
@@ -69,11 +71,11 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
             if (stateName == null) {
                 return plugin.lang().messageOrDefault("placeholders.none", "无");
             }
-            var data = plugin.state().getState(stateName);
-            if (data == null) {
+            WorldSnapshot.StateView data = snapshot.state(stateName);
+            if (data == null || data.captain() == null) {
                 return plugin.lang().messageOrDefault("placeholders.none", "无");
             }
-            OfflinePlayer captain = Bukkit.getOfflinePlayer(data.captain);
+            OfflinePlayer captain = Bukkit.getOfflinePlayer(data.captain());
             String name = captain.getName();
             return name == null ? plugin.lang().messageOrDefault("placeholders.none", "无") : name;
         }
@@ -81,35 +83,36 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
             if (stateName == null) {
                 return "0";
             }
-            var data = plugin.state().getState(stateName);
-            return data == null ? "0" : String.valueOf(data.sectors.size());
+            WorldSnapshot.StateView data = snapshot.state(stateName);
+            return data == null ? "0" : String.valueOf(data.sectors().size());
         }
         if (id.equals("state_capital")) {
             if (stateName == null) {
                 return plugin.lang().messageOrDefault("placeholders.none", "无");
             }
-            String capital = plugin.state().getCapital(stateName);
+            WorldSnapshot.StateView data = snapshot.state(stateName);
+            String capital = data == null ? null : data.capital();
             return capital == null ? plugin.lang().messageOrDefault("placeholders.none", "无") : capital;
         }
         if (id.equals("state_condemn_target")) {
             if (stateName == null) {
                 return plugin.lang().messageOrDefault("placeholders.none", "无");
             }
-            if (plugin.war().isCivilWarPending(stateName)) {
-                String target = plugin.war().getPendingCivilWarTarget(stateName);
+            if (snapshot.isCivilWarPending(stateName)) {
+                String target = snapshot.pendingCivilWarTarget(stateName);
                 return target == null ? plugin.lang().messageOrDefault("placeholders.none", "无") : target;
             }
-            String target = plugin.war().getCondemnationTarget(stateName);
+            String target = snapshot.condemnationTarget(stateName);
             return target == null ? plugin.lang().messageOrDefault("placeholders.none", "无") : target;
         }
         if (id.equals("state_condemn_timer")) {
             if (stateName == null) {
                 return plugin.lang().messageOrDefault("placeholders.none", "无");
             }
-            if (plugin.war().isCivilWarPending(stateName)) {
+            if (snapshot.isCivilWarPending(stateName)) {
                 return plugin.lang().messageOrDefault("war.civilwar-pending-placeholder", "Pending");
             }
-            long remaining = plugin.war().getCondemnationRemaining(stateName);
+            long remaining = snapshot.condemnationRemaining(stateName, System.currentTimeMillis());
             if (remaining < 0L) {
                 return plugin.lang().messageOrDefault("placeholders.none", "无");
             }
@@ -119,59 +122,60 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
             return plugin.war().formatDuration(remaining);
         }
         if (id.startsWith("camp_fuel_unit_")) {
-            return handleFuelTimerPlaceholder(id.substring("camp_fuel_unit_".length()), true);
+            return handleFuelTimerPlaceholder(snapshot, id.substring("camp_fuel_unit_".length()), true);
         }
         if (id.startsWith("camp_fuel_total_")) {
-            return handleFuelTimerPlaceholder(id.substring("camp_fuel_total_".length()), false);
+            return handleFuelTimerPlaceholder(snapshot, id.substring("camp_fuel_total_".length()), false);
         }
         if (id.startsWith("sector_hp_") || id.startsWith("sector_hpmax_") || id.startsWith("sector_hppercent_")) {
-            return handleSectorCampPlaceholder(stateName, id);
+            return handleSectorCampPlaceholder(snapshot, stateName, id);
         }
         if (id.startsWith("sector_maintain_timer_") || id.startsWith("sector_maintain_status_")) {
-            return handleSectorMaintenancePlaceholder(stateName, id);
+            return handleSectorMaintenancePlaceholder(snapshot, stateName, id);
         }
         if (id.startsWith("sector_fuel_unit_")) {
             String suffix = id.substring("sector_fuel_unit_".length());
-            return handleSectorFuelPlaceholder(stateName, suffix, true);
+            return handleSectorFuelPlaceholder(snapshot, stateName, suffix, true);
         }
         if (id.startsWith("sector_fuel_total_")) {
             String suffix = id.substring("sector_fuel_total_".length());
-            return handleSectorFuelPlaceholder(stateName, suffix, false);
+            return handleSectorFuelPlaceholder(snapshot, stateName, suffix, false);
         }
         if (id.startsWith("camp_hp_") || id.startsWith("camp_hpmax_") || id.startsWith("camp_hppercent_")) {
-            return handleArbitraryCampPlaceholder(id);
+            return handleArbitraryCampPlaceholder(snapshot, id);
         }
         if (id.startsWith("camp_maintain_timer_") || id.startsWith("camp_maintain_status_")) {
-            return handleArbitraryMaintenancePlaceholder(id);
+            return handleArbitraryMaintenancePlaceholder(snapshot, id);
         }
         if (id.startsWith("state_capital_hp")) {
-            return handleCapitalPlaceholder(stateName, id);
+            return handleCapitalPlaceholder(snapshot, stateName, id);
         }
         return null;
     }
 
-    private String handleCapitalPlaceholder(String stateName, String id) {
+    private String handleCapitalPlaceholder(WorldSnapshot snapshot, String stateName, String id) {
         if (stateName == null) {
             return "0";
         }
-        String capital = plugin.state().getCapital(stateName);
+        WorldSnapshot.StateView data = snapshot.state(stateName);
+        String capital = data == null ? null : data.capital();
         if (capital == null) {
             return "0";
         }
-        Camp camp = plugin.war().getCamp(stateName, capital);
+        WorldSnapshot.CampView camp = snapshot.camp(stateName, capital);
         if (camp == null) {
             return "0";
         }
         if (id.equals("state_capital_hpmax")) {
-            return number.format(camp.getMaxHp());
+            return number.format(camp.maxHp());
         }
         if (id.equals("state_capital_hppercent")) {
             return formatPercent(camp);
         }
-        return number.format(camp.getHp());
+        return number.format(camp.hp(System.currentTimeMillis()));
     }
 
-    private String handleArbitraryCampPlaceholder(String id) {
+    private String handleArbitraryCampPlaceholder(WorldSnapshot snapshot, String id) {
         String suffix;
         boolean percent = false;
         boolean max = false;
@@ -191,7 +195,7 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
         if (parts.length < 2) {
             return "";
         }
-        Camp camp = plugin.war().getCamp(parts[0], parts[1]);
+        WorldSnapshot.CampView camp = snapshot.camp(parts[0], parts[1]);
         if (camp == null) {
             return "";
         }
@@ -199,12 +203,12 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
             return formatPercent(camp);
         }
         if (max) {
-            return number.format(camp.getMaxHp());
+            return number.format(camp.maxHp());
         }
-        return number.format(camp.getHp());
+        return number.format(camp.hp(System.currentTimeMillis()));
     }
 
-    private String handleSectorCampPlaceholder(String stateName, String id) {
+    private String handleSectorCampPlaceholder(WorldSnapshot snapshot, String stateName, String id) {
         if (stateName == null) {
             return "";
         }
@@ -220,11 +224,11 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
         } else {
             sector = id.substring("sector_hp_".length());
         }
-        String resolved = plugin.state().resolveSectorName(stateName, sector);
+        String resolved = resolveSector(snapshot, stateName, sector);
         if (resolved == null) {
             return "";
         }
-        Camp camp = plugin.war().getCamp(stateName, resolved);
+        WorldSnapshot.CampView camp = snapshot.camp(stateName, resolved);
         if (camp == null) {
             return "";
         }
@@ -232,38 +236,38 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
             return formatPercent(camp);
         }
         if (max) {
-            return number.format(camp.getMaxHp());
+            return number.format(camp.maxHp());
         }
-        return number.format(camp.getHp());
+        return number.format(camp.hp(System.currentTimeMillis()));
     }
 
-    private String handleSectorMaintenancePlaceholder(String stateName, String id) {
+    private String handleSectorMaintenancePlaceholder(WorldSnapshot snapshot, String stateName, String id) {
         if (stateName == null) {
             return "";
         }
         boolean status = id.startsWith("sector_maintain_status_");
         String sector = id.substring(status ? "sector_maintain_status_".length() : "sector_maintain_timer_".length());
-        String resolved = plugin.state().resolveSectorName(stateName, sector);
+        String resolved = resolveSector(snapshot, stateName, sector);
         if (resolved == null) {
             return "";
         }
-        WarManager.CampMaintenanceInfo info = plugin.war().getMaintenanceInfo(stateName, resolved);
+        WorldSnapshot.MaintenanceView info = snapshot.maintenance(stateName, resolved, System.currentTimeMillis());
         return status ? formatMaintenanceStatus(info) : formatMaintenanceTimer(info);
     }
 
-    private String handleSectorFuelPlaceholder(String stateName, String sector, boolean unit) {
+    private String handleSectorFuelPlaceholder(WorldSnapshot snapshot, String stateName, String sector, boolean unit) {
         if (stateName == null) {
             return "";
         }
-        String resolved = plugin.state().resolveSectorName(stateName, sector);
+        String resolved = resolveSector(snapshot, stateName, sector);
         if (resolved == null) {
             return "";
         }
-        WarManager.CampMaintenanceInfo info = plugin.war().getMaintenanceInfo(stateName, resolved);
+        WorldSnapshot.MaintenanceView info = snapshot.maintenance(stateName, resolved, System.currentTimeMillis());
         return unit ? formatFuelUnit(info) : formatFuelTotal(info);
     }
 
-    private String handleArbitraryMaintenancePlaceholder(String id) {
+    private String handleArbitraryMaintenancePlaceholder(WorldSnapshot snapshot, String id) {
         boolean status = id.startsWith("camp_maintain_status_");
         String suffix = id.substring(status ? "camp_maintain_status_".length() : "camp_maintain_timer_".length());
         if (suffix.isEmpty()) {
@@ -273,11 +277,11 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
         if (parts.length < 2) {
             return "";
         }
-        WarManager.CampMaintenanceInfo info = plugin.war().getMaintenanceInfo(parts[0], parts[1]);
+        WorldSnapshot.MaintenanceView info = snapshot.maintenance(parts[0], parts[1], System.currentTimeMillis());
         return status ? formatMaintenanceStatus(info) : formatMaintenanceTimer(info);
     }
 
-    private String handleFuelTimerPlaceholder(String suffix, boolean unit) {
+    private String handleFuelTimerPlaceholder(WorldSnapshot snapshot, String suffix, boolean unit) {
         if (suffix.isEmpty()) {
             return "";
         }
@@ -285,55 +289,60 @@ public class CampPlaceholderExpansion extends PlaceholderExpansion {
         if (parts.length < 2) {
             return "";
         }
-        WarManager.CampMaintenanceInfo info = plugin.war().getMaintenanceInfo(parts[0], parts[1]);
+        WorldSnapshot.MaintenanceView info = snapshot.maintenance(parts[0], parts[1], System.currentTimeMillis());
         return unit ? formatFuelUnit(info) : formatFuelTotal(info);
     }
 
-    private String formatMaintenanceTimer(WarManager.CampMaintenanceInfo info) {
+    private String formatMaintenanceTimer(WorldSnapshot.MaintenanceView info) {
         if (info == null) {
             return plugin.lang().messageOrDefault("placeholders.fuel-disabled", plugin.lang().messageOrDefault("placeholders.none", "无"));
         }
-        if (info.isOverdue()) {
+        if (info.overdue()) {
             return plugin.lang().messageOrDefault("placeholders.fuel-empty", "EMPTY");
         }
-        return plugin.war().formatDuration(info.getRemainingMillis());
+        return plugin.war().formatDuration(info.remainingMillis());
     }
 
-    private String formatFuelUnit(WarManager.CampMaintenanceInfo info) {
-        if (info == null || info.getInterval() <= 0L) {
+    private String formatFuelUnit(WorldSnapshot.MaintenanceView info) {
+        if (info == null || info.interval() <= 0L) {
             return plugin.lang().messageOrDefault("placeholders.fuel-disabled", plugin.lang().messageOrDefault("placeholders.none", "无"));
         }
-        return plugin.war().formatDuration(info.getInterval());
+        return plugin.war().formatDuration(info.interval());
     }
 
-    private String formatFuelTotal(WarManager.CampMaintenanceInfo info) {
+    private String formatFuelTotal(WorldSnapshot.MaintenanceView info) {
         if (info == null) {
             return plugin.lang().messageOrDefault("placeholders.fuel-disabled", plugin.lang().messageOrDefault("placeholders.none", "无"));
         }
-        if (info.isOverdue()) {
+        if (info.overdue()) {
             return plugin.lang().messageOrDefault("placeholders.fuel-empty", "EMPTY");
         }
-        return plugin.war().formatDuration(info.getRemainingMillis());
+        return plugin.war().formatDuration(info.remainingMillis());
     }
 
-    private String formatMaintenanceStatus(WarManager.CampMaintenanceInfo info) {
+    private String formatMaintenanceStatus(WorldSnapshot.MaintenanceView info) {
         if (info == null) {
             return plugin.lang().messageOrDefault("placeholders.fuel-disabled", plugin.lang().messageOrDefault("placeholders.none", "无"));
         }
-        if (info.isOverdue()) {
+        if (info.overdue()) {
             return plugin.lang().messageOrDefault("placeholders.fuel-empty", "EMPTY");
         }
-        if (info.isWarning()) {
+        if (info.warning()) {
             return plugin.lang().messageOrDefault("placeholders.fuel-low", "LOW");
         }
         return plugin.lang().messageOrDefault("placeholders.fuel-ok", "OK");
     }
 
-    private String formatPercent(Camp camp) {
-        if (camp.getMaxHp() <= 0) {
+    private String resolveSector(WorldSnapshot snapshot, String stateName, String sector) {
+        WorldSnapshot.StateView data = snapshot.state(stateName);
+        WorldSnapshot.SectorView view = data == null ? null : data.sector(sector);
+        return view == null ? null : view.name();
+    }
+
+    private String formatPercent(WorldSnapshot.CampView camp) {
+        if (camp.maxHp() <= 0) {
             return "0";
         }
-        double percent = (camp.getHp() / camp.getMaxHp()) * 100.0;
-        return number.format(percent);
+        return number.format(camp.hpPercent(System.currentTimeMillis()));
     }
 }
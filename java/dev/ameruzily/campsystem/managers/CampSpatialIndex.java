@@ -0,0 +1,502 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.models.CampBoundary;
+
+import java.util.*;
+
+/**
+ * 按世界与区块划分的营地空间索引。
+ * 每个分区会登记到其边界矩形（至少为基础半径）覆盖的所有区块中，
+ * 同时按营地方块坐标建立精确查找表。
+ * 每次登记或移除都会更新所覆盖区块的版本号，供调用方判断缓存的查询结果是否仍然有效。
+ * 对已查询过的区块按需栅格化为 16x16 的分区编号表，区块内分区变化或区块卸载时丢弃。
+ * 另提供按营地方块距离的最近邻查询。
+ */
+public class CampSpatialIndex {
+    private static final int CELL_SHIFT = 4;
+
+    private final Map<String, WorldIndex> worlds = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Short> claimIds = new HashMap<>();
+    private final Deque<Short> freeClaimIds = new ArrayDeque<>();
+    private Entry[] claims = new Entry[64];
+    private int nextClaimId = 1;
+    private double minExtent = 1.0;
+    private long modCount;
+    private long generation;
+
+    public void clear() {
+        worlds.clear();
+        entries.clear();
+        claimIds.clear();
+        freeClaimIds.clear();
+        Arrays.fill(claims, null);
+        nextClaimId = 1;
+        generation = ++modCount;
+    }
+
+    public double getMinExtent() {
+        return minExtent;
+    }
+
+    /**
+     * 设置登记时使用的最小半径，调用后需重新登记所有分区。
+     */
+    public void setMinExtent(double minExtent) {
+        this.minExtent = Math.max(0.0, minExtent);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public Entry get(String state, String sector) {
+        if (state == null || sector == null) {
+            return null;
+        }
+        return entries.get(key(state, sector));
+    }
+
+    public Entry put(String state, String sector, String world, int x, int y, int z, CampBoundary boundary) {
+        remove(state, sector);
+        if (state == null || sector == null || world == null) {
+            return null;
+        }
+        CampBoundary effective = boundary == null ? new CampBoundary(minExtent) : boundary;
+        Entry entry = new Entry(state, sector, world, x, y, z,
+                effective.west(), effective.east(), effective.north(), effective.south(), minExtent);
+        String key = key(state, sector);
+        entries.put(key, entry);
+        short claimId = allocateClaimId(key);
+        if (claimId != 0) {
+            claims[claimId & 0xFFFF] = entry;
+        }
+        WorldIndex index = worlds.computeIfAbsent(world, w -> new WorldIndex());
+        index.anchors.put(blockKey(x, y, z), entry);
+        long stamp = ++modCount;
+        for (int cx = entry.minCellX; cx <= entry.maxCellX; cx++) {
+            for (int cz = entry.minCellZ; cz <= entry.maxCellZ; cz++) {
+                long cell = cellKey(cx, cz);
+                index.cells.computeIfAbsent(cell, k -> new ArrayList<>(2)).add(entry);
+                index.stamps.put(cell, stamp);
+                index.rasters.remove(cell);
+            }
+        }
+        return entry;
+    }
+
+    public Entry remove(String state, String sector) {
+        if (state == null || sector == null) {
+            return null;
+        }
+        String key = key(state, sector);
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        Short claimId = claimIds.remove(key);
+        if (claimId != null) {
+            claims[claimId & 0xFFFF] = null;
+            freeClaimIds.push(claimId);
+        }
+        WorldIndex index = worlds.get(entry.world);
+        if (index == null) {
+            return entry;
+        }
+        index.anchors.remove(blockKey(entry.x, entry.y, entry.z), entry);
+        long stamp = ++modCount;
+        for (int cx = entry.minCellX; cx <= entry.maxCellX; cx++) {
+            for (int cz = entry.minCellZ; cz <= entry.maxCellZ; cz++) {
+                long cell = cellKey(cx, cz);
+                index.stamps.put(cell, stamp);
+                index.rasters.remove(cell);
+                List<Entry> list = index.cells.get(cell);
+                if (list == null) {
+                    continue;
+                }
+                list.remove(entry);
+                if (list.isEmpty()) {
+                    index.cells.remove(cell);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 区块的版本号；区块内登记的分区发生变化或索引被清空后会改变。
+     */
+    public long getStamp(String world, int cellX, int cellZ) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index == null) {
+            return generation;
+        }
+        return index.stamps.getOrDefault(cellKey(cellX, cellZ), generation);
+    }
+
+    public void removeState(String state) {
+        if (state == null) {
+            return;
+        }
+        List<Entry> matches = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.state.equalsIgnoreCase(state)) {
+                matches.add(entry);
+            }
+        }
+        for (Entry entry : matches) {
+            remove(entry.state, entry.sector);
+        }
+    }
+
+    public boolean hasClaims(String world, int cellX, int cellZ) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        return index != null && index.cells.containsKey(cellKey(cellX, cellZ));
+    }
+
+    public Entry findAnchor(String world, int x, int y, int z) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        return index == null ? null : index.anchors.get(blockKey(x, y, z));
+    }
+
+    /**
+     * 查找边界（各方向至少为 fallback）包含该点的分区。
+     */
+    public Entry findContaining(String world, double x, double z, double fallback) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index == null) {
+            return null;
+        }
+        if (fallback <= minExtent) {
+            List<Entry> list = index.cells.get(cellKey(cell(x), cell(z)));
+            if (list == null) {
+                return null;
+            }
+            for (Entry entry : list) {
+                if (entry.contains(x, z, fallback)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+        for (Entry entry : collect(index, x - fallback, z - fallback, x + fallback, z + fallback)) {
+            if (entry.contains(x, z, fallback)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按方块列查找所属分区（各方向至少为最小半径），结果来自该区块的栅格表。
+     */
+    public Entry findOwner(String world, int x, int z) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index == null) {
+            return null;
+        }
+        long cell = cellKey(x >> CELL_SHIFT, z >> CELL_SHIFT);
+        List<Entry> list = index.cells.get(cell);
+        if (list == null) {
+            return null;
+        }
+        short[] raster = raster(index, cell, list);
+        if (raster == null) {
+            // 编号耗尽时退回逐个比较
+            for (Entry entry : list) {
+                if (entry.contains(x, z, minExtent)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+        int claimId = raster[((z & 15) << 4) | (x & 15)] & 0xFFFF;
+        return claimId == 0 ? null : claims[claimId];
+    }
+
+    /**
+     * 区块卸载时丢弃其栅格表，再次查询时重新生成。
+     */
+    public void dropRaster(String world, int cellX, int cellZ) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index != null) {
+            index.rasters.remove(cellKey(cellX, cellZ));
+        }
+    }
+
+    public int rasterCount() {
+        int count = 0;
+        for (WorldIndex index : worlds.values()) {
+            count += index.rasters.size();
+        }
+        return count;
+    }
+
+    /**
+     * 查找营地方块在水平半径与高度偏移范围内的分区。
+     */
+    public Entry findNearColumn(String world, int x, int y, int z, int radius, int minYOffset, int maxYOffset) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index == null) {
+            return null;
+        }
+        Collection<Entry> candidates;
+        if (radius <= minExtent) {
+            candidates = index.cells.getOrDefault(cellKey(x >> CELL_SHIFT, z >> CELL_SHIFT), List.of());
+        } else {
+            candidates = collect(index, x - radius, z - radius, x + radius, z + radius);
+        }
+        for (Entry entry : candidates) {
+            int dx = Math.abs(entry.x - x);
+            int dz = Math.abs(entry.z - z);
+            int dy = y - entry.y;
+            if (dx <= radius && dz <= radius && dy >= minYOffset && dy <= maxYOffset) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 收集登记矩形与给定范围相交的所有分区（去重）。
+     */
+    public Collection<Entry> queryRect(String world, double minX, double minZ, double maxX, double maxZ) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index == null) {
+            return List.of();
+        }
+        return collect(index, minX, minZ, maxX, maxZ);
+    }
+
+    /**
+     * 按营地方块的水平距离查找最近的若干个分区，结果按距离升序。
+     * 从所在区块向外逐圈扫描，已找到足够数量且外圈不可能更近时停止；
+     * 扫描的区块数超过该世界分区数量的数倍时改为直接遍历全部分区。
+     */
+    public List<Nearby> nearest(String world, double x, double z, int limit, double maxDistance) {
+        WorldIndex index = world == null ? null : worlds.get(world);
+        if (index == null || limit <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Nearby> best = new PriorityQueue<>(Comparator.comparingDouble(Nearby::distance).reversed());
+        int total = index.anchors.size();
+        int centerX = cell(x);
+        int centerZ = cell(z);
+        long scanned = 0L;
+        int found = 0;
+        for (int ring = 0; ; ring++) {
+            long ringCells = ring == 0 ? 1L : 8L * ring;
+            if (scanned + ringCells > 4L * total + 64L) {
+                best.clear();
+                for (Entry entry : index.anchors.values()) {
+                    offer(best, entry, x, z, limit, maxDistance);
+                }
+                break;
+            }
+            scanned += ringCells;
+            for (int cx = centerX - ring; cx <= centerX + ring; cx++) {
+                boolean edgeX = cx == centerX - ring || cx == centerX + ring;
+                int step = edgeX ? 1 : Math.max(1, 2 * ring);
+                for (int cz = centerZ - ring; cz <= centerZ + ring; cz += step) {
+                    List<Entry> list = index.cells.get(cellKey(cx, cz));
+                    if (list == null) {
+                        continue;
+                    }
+                    for (Entry entry : list) {
+                        // 每个分区只在营地方块所在的区块里计算一次
+                        if ((entry.x >> CELL_SHIFT) == cx && (entry.z >> CELL_SHIFT) == cz) {
+                            found++;
+                            offer(best, entry, x, z, limit, maxDistance);
+                        }
+                    }
+                }
+            }
+            double reach = Math.min(
+                    Math.min(x - ((double) (centerX - ring) * 16), ((double) (centerX + ring + 1) * 16) - x),
+                    Math.min(z - ((double) (centerZ - ring) * 16), ((double) (centerZ + ring + 1) * 16) - z));
+            if (found >= total || reach > maxDistance) {
+                break;
+            }
+            if (best.size() >= limit && best.peek().distance() <= reach) {
+                break;
+            }
+        }
+        List<Nearby> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Nearby::distance));
+        return result;
+    }
+
+    private static void offer(PriorityQueue<Nearby> best, Entry entry, double x, double z, int limit, double maxDistance) {
+        double distance = entry.distanceTo(x, z);
+        if (distance > maxDistance) {
+            return;
+        }
+        if (best.size() < limit) {
+            best.add(new Nearby(entry, distance));
+        } else if (distance < best.peek().distance()) {
+            best.poll();
+            best.add(new Nearby(entry, distance));
+        }
+    }
+
+    private Collection<Entry> collect(WorldIndex index, double minX, double minZ, double maxX, double maxZ) {
+        Set<Entry> result = new LinkedHashSet<>();
+        int fromX = cell(minX);
+        int toX = cell(maxX);
+        int fromZ = cell(minZ);
+        int toZ = cell(maxZ);
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cz = fromZ; cz <= toZ; cz++) {
+                List<Entry> list = index.cells.get(cellKey(cx, cz));
+                if (list != null) {
+                    result.addAll(list);
+                }
+            }
+        }
+        return result;
+    }
+
+    private short[] raster(WorldIndex index, long cell, List<Entry> list) {
+        short[] raster = index.rasters.get(cell);
+        if (raster != null) {
+            return raster;
+        }
+        raster = new short[256];
+        int baseX = ((int) (cell >> 32)) << CELL_SHIFT;
+        int baseZ = ((int) cell) << CELL_SHIFT;
+        for (Entry entry : list) {
+            Short claimId = claimIds.get(key(entry.state, entry.sector));
+            if (claimId == null) {
+                return null;
+            }
+            for (int dz = 0; dz < 16; dz++) {
+                for (int dx = 0; dx < 16; dx++) {
+                    int slot = (dz << 4) | dx;
+                    if (raster[slot] == 0 && entry.contains(baseX + dx, baseZ + dz, minExtent)) {
+                        raster[slot] = claimId;
+                    }
+                }
+            }
+        }
+        index.rasters.put(cell, raster);
+        return raster;
+    }
+
+    private short allocateClaimId(String key) {
+        Short existing = claimIds.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        short claimId;
+        if (!freeClaimIds.isEmpty()) {
+            claimId = freeClaimIds.pop();
+        } else if (nextClaimId <= 0xFFFF) {
+            claimId = (short) nextClaimId++;
+            if ((claimId & 0xFFFF) >= claims.length) {
+                claims = Arrays.copyOf(claims, Math.min(0x10000, claims.length * 2));
+            }
+        } else {
+            return 0;
+        }
+        claimIds.put(key, claimId);
+        return claimId;
+    }
+
+    private static String key(String state, String sector) {
+        return state.toLowerCase(Locale.ROOT) + "|" + sector.toLowerCase(Locale.ROOT);
+    }
+
+    static int cell(double coordinate) {
+        return ((int) Math.floor(coordinate)) >> CELL_SHIFT;
+    }
+
+    static long cellKey(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+
+    private static long blockKey(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFFL);
+    }
+
+    private static class WorldIndex {
+        private final Map<Long, Entry> anchors = new HashMap<>();
+        private final Map<Long, List<Entry>> cells = new HashMap<>();
+        private final Map<Long, Long> stamps = new HashMap<>();
+        private final Map<Long, short[]> rasters = new HashMap<>();
+    }
+
+    public static class Entry {
+        private final String state;
+        private final String sector;
+        private final String world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final double west;
+        private final double east;
+        private final double north;
+        private final double south;
+        private final int minCellX;
+        private final int maxCellX;
+        private final int minCellZ;
+        private final int maxCellZ;
+
+        private Entry(String state, String sector, String world, int x, int y, int z,
+                      double west, double east, double north, double south, double minExtent) {
+            this.state = state;
+            this.sector = sector;
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.west = west;
+            this.east = east;
+            this.north = north;
+            this.south = south;
+            this.minCellX = cell(x - Math.max(west, minExtent));
+            this.maxCellX = cell(x + Math.max(east, minExtent));
+            this.minCellZ = cell(z - Math.max(north, minExtent));
+            this.maxCellZ = cell(z + Math.max(south, minExtent));
+        }
+
+        public String state() { return state; }
+        public String sector() { return sector; }
+        public String world() { return world; }
+        public int x() { return x; }
+        public int y() { return y; }
+        public int z() { return z; }
+        public double west() { return west; }
+        public double east() { return east; }
+        public double north() { return north; }
+        public double south() { return south; }
+
+        public CampBoundary boundary() {
+            return new CampBoundary(west, east, north, south);
+        }
+
+        public boolean contains(double px, double pz, double fallback) {
+            return px >= x - Math.max(west, fallback) && px <= x + Math.max(east, fallback)
+                    && pz >= z - Math.max(north, fallback) && pz <= z + Math.max(south, fallback);
+        }
+
+        public double distanceTo(double px, double pz) {
+            return Math.hypot(px - x, pz - z);
+        }
+
+        /**
+         * 到边界矩形的水平距离，位于边界内时为 0。
+         */
+        public double distanceToBoundary(double px, double pz, double fallback) {
+            double dx = Math.max(0.0, Math.max((x - Math.max(west, fallback)) - px, px - (x + Math.max(east, fallback))));
+            double dz = Math.max(0.0, Math.max((z - Math.max(north, fallback)) - pz, pz - (z + Math.max(south, fallback))));
+            return Math.hypot(dx, dz);
+        }
+    }
+
+    public record Nearby(Entry entry, double distance) {
+    }
+}
@@ -0,0 +1,525 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.CampBoundary;
+import dev.ameruzily.campsystem.models.Settings;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 冷存档：所有成员长期离线的国家整体写入 cold/ 下的文件并移出内存，只保留足迹（成员、分区位置与边界）。
+ * 足迹仍登记在空间索引中，领地保护照常生效，边界求解把它们视为固定的邻居。
+ * 成员上线或有玩家把该国家作为操作目标时从文件恢复。
+ * cold/index.yml 记录全部足迹；启动时若热存档中也有同一国家，以热存档为准。
+ * 文件的读写都在后台线程进行：转入在文件写完后才移出内存，恢复在读取完成后回到主线程登记。
+ */
+public class ColdStorageManager {
+    private static final long DAY_MS = 24L * 60L * 60L * 1000L;
+    private static final String INDEX = "index.yml";
+
+    public record SectorFootprint(String name, String world, int x, int y, int z, CampBoundary boundary) {
+    }
+
+    public record Footprint(String name, UUID captain, Set<UUID> members, long lastActiveAt, long archivedAt,
+                            List<SectorFootprint> sectors) {
+    }
+
+    private final CampSystem plugin;
+    private final File folder;
+    // 键为小写国家名
+    private final Map<String, Footprint> footprints = new LinkedHashMap<>();
+    private final Map<UUID, String> memberStates = new HashMap<>();
+    private final Map<String, Long> restoredAt = new HashMap<>();
+    // 已恢复、等待热存档落盘后删除的冷存档文件，键为小写国家名
+    private final Map<String, String> restoredFiles = new HashMap<>();
+    private final Set<String> archiving = new HashSet<>();
+    private final Map<String, CompletableFuture<Boolean>> restoring = new HashMap<>();
+    private final AsyncSaveWriter writer;
+    private BukkitTask task;
+
+    public ColdStorageManager(CampSystem plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), "cold");
+        this.writer = new AsyncSaveWriter(plugin.getLogger(), "CampSystem-ColdStorage");
+    }
+
+    public boolean contains(String stateName) {
+        return stateName != null && footprints.containsKey(key(stateName));
+    }
+
+    public Collection<Footprint> footprints() {
+        return Collections.unmodifiableCollection(footprints.values());
+    }
+
+    /**
+     * 热存档登记完成后调用：读取足迹索引，恢复中断时遗留的文件，并按配置安排巡检。
+     */
+    public void reload() {
+        footprints.clear();
+        memberStates.clear();
+        restoredAt.clear();
+        restoredFiles.clear();
+        boolean changed = false;
+        File indexFile = new File(folder, INDEX);
+        if (indexFile.exists()) {
+            ConfigurationSection states = YamlConfiguration.loadConfiguration(indexFile).getConfigurationSection("states");
+            if (states != null) {
+                for (String name : states.getKeys(false)) {
+                    ConfigurationSection section = states.getConfigurationSection(name);
+                    Footprint footprint = section == null ? null : readFootprint(name, section);
+                    if (footprint == null || plugin.state().getState(name) != null) {
+                        // 转入冷存档后、热存档删除前中断时两边都有，以热存档为准
+                        changed = true;
+                        continue;
+                    }
+                    add(footprint);
+                }
+            }
+        }
+        changed |= recoverOrphans();
+        if (changed) {
+            saveIndex();
+        }
+        schedule();
+    }
+
+    public void shutdown() {
+        cancelTask();
+        writer.close();
+    }
+
+    private void cancelTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void schedule() {
+        cancelTask();
+        Settings.ColdStorage settings = plugin.config().settings().coldStorage();
+        if (!settings.enabled()) {
+            return;
+        }
+        long ticks = settings.checkIntervalTicks();
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::sweep, ticks, ticks);
+    }
+
+    /**
+     * 把超过 inactive-days 无成员在线的国家转入冷存档，返回本次开始转入的数量；文件写完后才移出内存。
+     */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        Settings.ColdStorage settings = plugin.config().settings().coldStorage();
+        long threshold = settings.inactiveMs();
+        long grace = settings.restoreGraceMs();
+        int limit = settings.maxPerSweep();
+
+        List<StateManager.StateData> candidates = new ArrayList<>();
+        boolean touched = false;
+        for (StateManager.StateData state : plugin.state().getStates()) {
+            if (hasOnlineMember(state)) {
+                touched |= touch(state, now);
+                continue;
+            }
+            if (now - state.lastActiveAt < threshold) {
+                continue;
+            }
+            Long restored = restoredAt.get(key(state.name));
+            if (restored != null && now - restored < grace) {
+                continue;
+            }
+            if (archiving.contains(key(state.name)) || !canArchive(state)) {
+                continue;
+            }
+            candidates.add(state);
+        }
+
+        List<CompletableFuture<Boolean>> archives = new ArrayList<>();
+        for (StateManager.StateData state : candidates) {
+            if (archives.size() >= limit) {
+                break;
+            }
+            archives.add(archive(state, now));
+        }
+        removeRestoredFiles();
+        if (touched) {
+            plugin.campInfo().requestSave();
+        }
+        if (!archives.isEmpty()) {
+            // 各国家在主线程完成转入后汇总
+            CompletableFuture.allOf(archives.toArray(new CompletableFuture[0])).thenRun(() -> {
+                long archived = archives.stream().filter(CompletableFuture::join).count();
+                if (archived > 0) {
+                    saveIndex();
+                    plugin.getLogger().info("Moved " + archived + " inactive states to cold storage (" + footprints.size() + " total).");
+                }
+                plugin.campInfo().requestSave();
+            });
+        }
+        return archives.size();
+    }
+
+    /**
+     * 玩家上线：所在国家在冷存档中时恢复，否则刷新国家的活跃时间。
+     */
+    public void handleJoin(Player player) {
+        String cold = memberStates.get(player.getUniqueId());
+        if (cold != null) {
+            restore(cold);
+            return;
+        }
+        String stateName = plugin.state().getStateName(player);
+        StateManager.StateData state = stateName == null ? null : plugin.state().getState(stateName);
+        if (state != null && touch(state, System.currentTimeMillis())) {
+            plugin.campInfo().requestSave();
+        }
+    }
+
+    /**
+     * 在后台读取冷存档文件，再回到主线程恢复国家及其营地，返回的 Future 在主线程完成。
+     * 国家不在冷存档中或文件无法读取时为 false；同一国家正在恢复时返回同一个 Future。
+     */
+    public CompletableFuture<Boolean> restore(String stateName) {
+        Footprint footprint = stateName == null ? null : footprints.get(key(stateName));
+        if (footprint == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        CompletableFuture<Boolean> running = restoring.get(key(footprint.name()));
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        restoring.put(key(footprint.name()), result);
+        File file = fileFor(footprint.name());
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            ConfigurationSection section = null;
+            try {
+                ConfigurationSection states = CampDataCodec.read(file).getConfigurationSection("states");
+                section = states == null ? null : states.getConfigurationSection(footprint.name());
+            } catch (IOException ex) {
+                plugin.getLogger().warning("Failed to read cold storage for " + footprint.name() + ": " + ex.getMessage());
+            }
+            ConfigurationSection loaded = section;
+            runSync(() -> {
+                restoring.remove(key(footprint.name()));
+                // 读取期间足迹可能已被重新载入替换
+                result.complete(loaded != null && footprints.get(key(footprint.name())) == footprint
+                        && register(footprint, loaded));
+            });
+        });
+        return result;
+    }
+
+    private boolean register(Footprint footprint, ConfigurationSection section) {
+        StateManager.StateData data = section == null ? null : plugin.state().parseState(footprint.name(), section);
+        if (data == null) {
+            plugin.getLogger().warning("Cold storage file for " + footprint.name() + " is missing or invalid.");
+            return false;
+        }
+
+        remove(footprint);
+        StateManager stateManager = plugin.state();
+        stateManager.getSpatialIndex().removeState(footprint.name());
+        stateManager.registerLoadedState(data);
+        stateManager.loadLedger(List.of(data));
+        ConfigurationSection sectors = section.getConfigurationSection("sectors");
+        List<Camp> camps = new ArrayList<>();
+        for (String sectorName : data.sectors.keySet()) {
+            ConfigurationSection sectorSection = sectors == null ? null : sectors.getConfigurationSection(sectorName);
+            ConfigurationSection campSection = sectorSection == null ? null : sectorSection.getConfigurationSection("camp");
+            if (campSection != null) {
+                Camp camp = plugin.war().parseCamp(data.name, sectorName, campSection);
+                plugin.war().registerLoadedCamp(camp);
+                camps.add(camp);
+            }
+            stateManager.reindexSector(data.name, sectorName);
+        }
+        for (Camp camp : camps) {
+            plugin.war().refreshCampBoundary(camp);
+        }
+        // 冷存档文件在热存档写入后的下一次巡检中删除
+        data.dirty = true;
+        markSnapshot(data.name);
+        restoredAt.put(key(data.name), System.currentTimeMillis());
+        restoredFiles.put(key(data.name), data.name);
+        saveIndex();
+        plugin.campInfo().requestSave();
+        plugin.getLogger().info("Restored state " + data.name + " from cold storage.");
+        return true;
+    }
+
+    /**
+     * 把足迹登记到空间索引，供重建索引时调用。
+     */
+    public void indexFootprints(CampSpatialIndex index) {
+        for (Footprint footprint : footprints.values()) {
+            for (SectorFootprint sector : footprint.sectors()) {
+                index.put(footprint.name(), sector.name(), sector.world(), sector.x(), sector.y(), sector.z(),
+                        sector.boundary().copy());
+            }
+        }
+    }
+
+    /**
+     * 在主线程生成快照，交给写入线程写文件，写完后回到主线程移出内存。返回的 Future 在主线程完成。
+     */
+    private CompletableFuture<Boolean> archive(StateManager.StateData state, long now) {
+        String name = state.name;
+        long lastActiveAt = state.lastActiveAt;
+        YamlConfiguration yaml = new YamlConfiguration();
+        CampInfoSnapshot.writeState(yaml.createSection("states"), state, plugin.war()::getCamp);
+        archiving.add(key(name));
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        writer.submit(fileFor(name), () -> CampDataCodec.encode(yaml)).thenAccept(written -> runSync(() -> {
+            archiving.remove(key(name));
+            result.complete(evict(state, name, lastActiveAt, now, written));
+        }));
+        return result;
+    }
+
+    private boolean evict(StateManager.StateData state, String name, long lastActiveAt, long now, boolean written) {
+        // 写入失败，或写入期间有成员上线、改名或开战时放弃转入；国家一直在热存档中，写出的文件直接删除
+        if (!written || plugin.state().getState(name) != state || !state.name.equals(name)
+                || state.lastActiveAt != lastActiveAt || hasOnlineMember(state) || !canArchive(state)) {
+            if (written) {
+                writer.submitDelete(fileFor(name));
+            }
+            // 生成快照时已清除营地的待保存标记，重新标记
+            state.dirty = true;
+            for (String sectorName : state.sectors.keySet()) {
+                Camp camp = plugin.war().getCamp(state.name, sectorName);
+                if (camp != null) {
+                    camp.markDirty();
+                }
+            }
+            return false;
+        }
+        List<SectorFootprint> sectors = new ArrayList<>();
+        CampSpatialIndex index = plugin.state().getSpatialIndex();
+        for (String sectorName : state.sectors.keySet()) {
+            CampSpatialIndex.Entry entry = index.get(state.name, sectorName);
+            if (entry != null) {
+                sectors.add(new SectorFootprint(sectorName, entry.world(), entry.x(), entry.y(), entry.z(), entry.boundary()));
+            }
+        }
+        Set<UUID> members = new LinkedHashSet<>(state.members);
+        members.remove(null);
+        add(new Footprint(state.name, state.captain, Set.copyOf(members), state.lastActiveAt, now, List.copyOf(sectors)));
+        restoredAt.remove(key(state.name));
+        plugin.war().evictStateCamps(state.name);
+        plugin.state().evictState(state);
+        markSnapshot(state.name);
+        return true;
+    }
+
+    private void markSnapshot(String stateName) {
+        if (plugin.snapshots() != null) {
+            plugin.snapshots().markState(stateName);
+        }
+    }
+
+    private boolean canArchive(StateManager.StateData state) {
+        return !plugin.war().isStateAtWar(state.name) && !plugin.war().isCivilWarPending(state.name);
+    }
+
+    // 写入线程的回调回到主线程执行，插件已停用时不再调度，国家留在热存档中
+    private void runSync(Runnable action) {
+        if (plugin.isEnabled()) {
+            Bukkit.getScheduler().runTask(plugin, action);
+        }
+    }
+
+    private boolean hasOnlineMember(StateManager.StateData state) {
+        for (UUID member : state.members) {
+            if (member != null && Bukkit.getPlayer(member) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 活跃时间精确到天即可，避免每次巡检都重写在线国家
+    private boolean touch(StateManager.StateData state, long now) {
+        if (now - state.lastActiveAt < DAY_MS) {
+            return false;
+        }
+        state.lastActiveAt = now;
+        state.dirty = true;
+        return true;
+    }
+
+    private void add(Footprint footprint) {
+        footprints.put(key(footprint.name()), footprint);
+        for (UUID member : footprint.members()) {
+            memberStates.put(member, footprint.name());
+        }
+    }
+
+    private void remove(Footprint footprint) {
+        footprints.remove(key(footprint.name()));
+        for (UUID member : footprint.members()) {
+            memberStates.remove(member, footprint.name());
+        }
+    }
+
+    /**
+     * 索引中没有记录的冷存档文件（写入索引前中断）重新登记，边界按基础半径。
+     */
+    private boolean recoverOrphans() {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(CampDataCodec.EXTENSION));
+        if (files == null) {
+            return false;
+        }
+        Set<String> known = new HashSet<>();
+        for (Footprint footprint : footprints.values()) {
+            known.add(fileFor(footprint.name()).getName());
+        }
+        boolean changed = false;
+        for (File file : files) {
+            if (known.contains(file.getName())) {
+                continue;
+            }
+            ConfigurationSection states;
+            try {
+                states = CampDataCodec.read(file).getConfigurationSection("states");
+            } catch (IOException ex) {
+                plugin.getLogger().warning("Failed to read cold storage file " + file.getName() + ": " + ex.getMessage());
+                continue;
+            }
+            if (states == null) {
+                continue;
+            }
+            for (String name : states.getKeys(false)) {
+                ConfigurationSection section = states.getConfigurationSection(name);
+                if (section == null) {
+                    continue;
+                }
+                if (plugin.state().getState(name) != null) {
+                    // 已恢复但删除前中断，热存档中的国家即为恢复结果
+                    restoredFiles.put(key(name), name);
+                    continue;
+                }
+                Footprint footprint = readFootprint(name, section);
+                if (footprint != null) {
+                    add(footprint);
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 删除已恢复且热存档已保存的国家留下的冷存档文件。
+     */
+    private void removeRestoredFiles() {
+        // 本次运行中恢复的国家要等恢复之后的整国写入确认落盘；其余国家启动时即从存储后端读出
+        Iterator<Map.Entry<String, String>> it = restoredFiles.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            if (footprints.containsKey(entry.getKey()) || archiving.contains(entry.getKey())) {
+                // 文件已属于新的冷存档
+                it.remove();
+                continue;
+            }
+            StateManager.StateData state = plugin.state().getState(entry.getValue());
+            if (state == null) {
+                it.remove();
+                continue;
+            }
+            Long restored = restoredAt.get(entry.getKey());
+            if (!state.dirty && (restored == null || plugin.campInfo().isPersistedSince(state.name, restored))) {
+                writer.submitDelete(fileFor(entry.getValue()));
+                it.remove();
+            }
+        }
+    }
+
+    // 冷存档文件中的国家节点与索引中的足迹使用相同的字段，索引额外保存分区边界
+    private Footprint readFootprint(String name, ConfigurationSection section) {
+        UUID captain = parseUuid(section.getString("captain"));
+        if (captain == null) {
+            return null;
+        }
+        Set<UUID> members = new LinkedHashSet<>();
+        members.add(captain);
+        for (String raw : section.getStringList("members")) {
+            UUID member = parseUuid(raw);
+            if (member != null) {
+                members.add(member);
+            }
+        }
+        double radius = plugin.config().settings().camp().radius();
+        List<SectorFootprint> sectors = new ArrayList<>();
+        ConfigurationSection sectorsSection = section.getConfigurationSection("sectors");
+        if (sectorsSection != null) {
+            for (String sectorName : sectorsSection.getKeys(false)) {
+                ConfigurationSection sector = sectorsSection.getConfigurationSection(sectorName);
+                String world = sector == null ? null : sector.getString("world");
+                if (world == null) {
+                    continue;
+                }
+                CampBoundary boundary = new CampBoundary(sector.getDouble("west", radius), sector.getDouble("east", radius),
+                        sector.getDouble("north", radius), sector.getDouble("south", radius));
+                sectors.add(new SectorFootprint(sectorName, world, sector.getInt("x"), sector.getInt("y"), sector.getInt("z"), boundary));
+            }
+        }
+        return new Footprint(name, captain, Set.copyOf(members), section.getLong("last-active", 0L),
+                section.getLong("archived-at", System.currentTimeMillis()), List.copyOf(sectors));
+    }
+
+    private void saveIndex() {
+        YamlConfiguration yaml = new YamlConfiguration();
+        ConfigurationSection states = yaml.createSection("states");
+        for (Footprint footprint : footprints.values()) {
+            ConfigurationSection section = states.createSection(footprint.name());
+            section.set("captain", footprint.captain().toString());
+            section.set("members", footprint.members().stream().map(UUID::toString).sorted().toList());
+            section.set("last-active", footprint.lastActiveAt());
+            section.set("archived-at", footprint.archivedAt());
+            ConfigurationSection sectors = section.createSection("sectors");
+            for (SectorFootprint sector : footprint.sectors()) {
+                ConfigurationSection sectorSection = sectors.createSection(sector.name());
+                sectorSection.set("world", sector.world());
+                sectorSection.set("x", sector.x());
+                sectorSection.set("y", sector.y());
+                sectorSection.set("z", sector.z());
+                sectorSection.set("west", sector.boundary().west());
+                sectorSection.set("east", sector.boundary().east());
+                sectorSection.set("north", sector.boundary().north());
+                sectorSection.set("south", sector.boundary().south());
+            }
+        }
+        writer.submit(new File(folder, INDEX), () -> yaml.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File fileFor(String stateName) {
+        return new File(folder, YamlStorageBackend.shardName(stateName) + CampDataCodec.EXTENSION);
+    }
+
+    private static String key(String stateName) {
+        return stateName.toLowerCase(Locale.ROOT);
+    }
+
+    private static UUID parseUuid(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(raw.trim());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
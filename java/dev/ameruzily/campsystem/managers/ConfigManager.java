@@ -1,22 +1,43 @@
 package dev.ameruzily.campsystem.managers;
 
 import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.models.Settings;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ConfigManager {
     private final CampSystem plugin;
     private FileConfiguration config;
+    private volatile Settings settings;
 
     public ConfigManager(CampSystem plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfig();
+        compile();
     }
 
-    public void reload() {
+    /**
+     * 重新读取配置文件，返回无效配置项的数量（详情已输出到控制台）。
+     */
+    public int reload() {
         plugin.reloadConfig();
         config = plugin.getConfig();
+        return compile();
+    }
+
+    private int compile() {
+        List<String> problems = new ArrayList<>();
+        settings = Settings.fromConfig(config, problems);
+        for (String problem : problems) {
+            plugin.getLogger().warning("Invalid config value " + problem);
+        }
+        return problems.size();
     }
 
+    public Settings settings() { return settings; }
+
     public FileConfiguration raw() { return config; }
 
     public int getInt(String path, int def) { return config.getInt(path, def); }
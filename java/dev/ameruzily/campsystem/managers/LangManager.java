@@ -9,9 +9,11 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class LangManager {
     private final CampSystem plugin;
@@ -92,6 +94,33 @@ public class LangManager {
         p.sendActionBar(msg);
     }
 
+    /**
+     * 向一组玩家发送同一条消息：变量只替换一次，文本不含 PlaceholderAPI 占位符时所有玩家共用同一字符串。
+     */
+    public void send(Collection<Player> players, String path, Map<String, String> vars) {
+        if (players.isEmpty()) {
+            return;
+        }
+        String msg = applyVariables(raw(path), vars);
+        boolean personal = needsPlayer(msg);
+        String shared = personal ? null : withPrefix(applyPlaceholders(null, msg, null));
+        for (Player p : players) {
+            p.sendMessage(personal ? withPrefix(applyPlaceholders(p, msg, null)) : shared);
+        }
+    }
+
+    public void sendActionBar(Collection<Player> players, String path, Map<String, String> vars) {
+        if (players.isEmpty()) {
+            return;
+        }
+        String msg = applyVariables(raw(path), vars);
+        boolean personal = needsPlayer(msg);
+        String shared = personal ? null : applyPlaceholders(null, msg, null);
+        for (Player p : players) {
+            p.sendActionBar(personal ? applyPlaceholders(p, msg, null) : shared);
+        }
+    }
+
     public void sendActionBar(Player p, String path) {
         sendActionBar(p, path, java.util.Collections.emptyMap());
     }
@@ -127,6 +156,22 @@ public class LangManager {
         return result;
     }
 
+    private String applyVariables(String message, Map<String, String> vars) {
+        String result = message;
+        if (vars != null) {
+            for (Map.Entry<String, String> entry : vars.entrySet()) {
+                result = result.replace("%" + entry.getKey() + "%", Objects.toString(entry.getValue(), ""));
+            }
+        }
+        return result;
+    }
+
+    // 剩余的 %...% 可能是 PlaceholderAPI 的玩家占位符，需按玩家分别解析
+    private boolean needsPlayer(String message) {
+        PlaceholderManager placeholders = plugin.placeholders();
+        return placeholders != null && placeholders.isHooked() && message.indexOf('%') >= 0;
+    }
+
     public String colorizeText(String input) {
         return translateColorCodes(input);
     }
@@ -0,0 +1,410 @@
+package dev.ameruzily.campsystem.managers;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 两次定时保存之间的变更日志（只追加）。
+ * 记录银行、营地血量、分区转移与成员进出等变更，由独立线程写入：同一批记录只做一次 fsync（组提交）。
+ * 每次保存时切换到新的分段文件，存储后端写完后删除旧分段；启动时在最后一次存档之上按顺序重放剩余分段。
+ * 记录保存的是变更后的结果（余额、血量）或可重复执行的操作，重复重放已写入存档的记录不会改变结果。
+ */
+public class MutationJournal {
+    private static final byte BANK = 1;
+    private static final byte CAMP_HP = 2;
+    private static final byte TRANSFER = 3;
+    private static final byte MEMBER_JOIN = 4;
+    private static final byte MEMBER_LEAVE = 5;
+    private static final int MAX_RECORD = 1 << 16;
+    private static final String EXTENSION = ".log";
+
+    private final Logger logger;
+    private final File folder;
+    private final long groupCommitNanos;
+    private final Object lock = new Object();
+    private final List<Object> pending = new ArrayList<>();
+
+    private Thread thread;
+    private boolean running;
+    // 以下字段仅在主线程读写
+    private long segment;
+    private boolean segmentUsed;
+
+    public MutationJournal(Logger logger, File folder, long groupCommitMs) {
+        this.logger = logger;
+        this.folder = folder;
+        this.groupCommitNanos = Math.max(0L, groupCommitMs) * 1_000_000L;
+    }
+
+    /**
+     * 重放时的回调，按记录写入的顺序调用。
+     */
+    public interface Handler {
+        void bank(String state, double balance, long timestamp, String type, double amount, UUID actor);
+
+        void campHp(String state, String sector, double hp);
+
+        void transfer(String fromState, String toState, String sector);
+
+        void memberJoin(String state, UUID player);
+
+        void memberLeave(String state, UUID player);
+    }
+
+    private record Rotate(long segment) {
+    }
+
+    private record Compact(long segment) {
+    }
+
+    public void bank(String state, double balance, long timestamp, String type, double amount, UUID actor) {
+        append(BANK, out -> {
+            out.writeUTF(state);
+            out.writeDouble(balance);
+            out.writeLong(timestamp);
+            out.writeUTF(type);
+            out.writeDouble(amount);
+            writeUuid(out, actor);
+        });
+    }
+
+    public void campHp(String state, String sector, double hp) {
+        append(CAMP_HP, out -> {
+            out.writeUTF(state);
+            out.writeUTF(sector);
+            out.writeDouble(hp);
+        });
+    }
+
+    public void transfer(String fromState, String toState, String sector) {
+        append(TRANSFER, out -> {
+            out.writeUTF(fromState);
+            out.writeUTF(toState);
+            out.writeUTF(sector);
+        });
+    }
+
+    public void memberJoin(String state, UUID player) {
+        append(MEMBER_JOIN, out -> {
+            out.writeUTF(state);
+            writeUuid(out, player);
+        });
+    }
+
+    public void memberLeave(String state, UUID player) {
+        append(MEMBER_LEAVE, out -> {
+            out.writeUTF(state);
+            writeUuid(out, player);
+        });
+    }
+
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, Body body) {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+        }
+        byte[] record;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.write(out);
+            record = bytes.toByteArray();
+        } catch (IOException ex) {
+            logger.warning("Failed to encode journal record: " + ex.getMessage());
+            return;
+        }
+        // 帧格式：长度、CRC32、内容；重放时以此识别崩溃时写了一半的尾部
+        int length = record.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record, 8, length);
+        ByteBuffer.wrap(record).putInt(length).putInt((int) crc.getValue());
+        segmentUsed = true;
+        enqueue(record);
+    }
+
+    /**
+     * 在主线程生成存档快照时调用：之后的记录写入新分段。返回新分段编号，自上次切换后没有记录时返回 -1。
+     */
+    public long checkpoint() {
+        if (!segmentUsed) {
+            return -1L;
+        }
+        segmentUsed = false;
+        segment++;
+        enqueue(new Rotate(segment));
+        return segment;
+    }
+
+    /**
+     * 删除编号小于 segment 的分段，调用前须确认对应的存档已写完。
+     */
+    public void compact(long segment) {
+        if (segment >= 0L) {
+            enqueue(new Compact(segment));
+        }
+    }
+
+    /**
+     * 按顺序重放目录中的全部分段，返回成功应用的记录数。应在 start 之前调用。
+     */
+    public int replay(Handler handler) {
+        File[] files = listSegments();
+        int applied = 0;
+        for (File file : files) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    int expected = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD) {
+                        logger.warning("Journal " + file.getName() + " has a corrupt record; ignoring the rest of the file.");
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expected) {
+                        logger.warning("Journal " + file.getName() + " has a corrupt record; ignoring the rest of the file.");
+                        break;
+                    }
+                    try {
+                        dispatch(new DataInputStream(new ByteArrayInputStream(payload)), handler);
+                        applied++;
+                    } catch (IOException | RuntimeException ex) {
+                        logger.warning("Skipping journal record in " + file.getName() + ": " + ex.getMessage());
+                    }
+                }
+            } catch (EOFException ex) {
+                // 崩溃时写了一半的最后一条记录
+                logger.warning("Journal " + file.getName() + " ends with an incomplete record.");
+            } catch (IOException ex) {
+                logger.warning("Failed to read journal " + file.getName() + ": " + ex.getMessage());
+            }
+        }
+        return applied;
+    }
+
+    private void dispatch(DataInputStream in, Handler handler) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case BANK -> handler.bank(in.readUTF(), in.readDouble(), in.readLong(), in.readUTF(), in.readDouble(), readUuid(in));
+            case CAMP_HP -> handler.campHp(in.readUTF(), in.readUTF(), in.readDouble());
+            case TRANSFER -> handler.transfer(in.readUTF(), in.readUTF(), in.readUTF());
+            case MEMBER_JOIN -> handler.memberJoin(in.readUTF(), readUuid(in));
+            case MEMBER_LEAVE -> handler.memberLeave(in.readUTF(), readUuid(in));
+            default -> throw new IOException("unknown record type " + type);
+        }
+    }
+
+    /**
+     * 删除全部分段，用于所有记录都已写入存档之后。应在写入线程停止时调用。
+     */
+    public void clear() {
+        for (File file : listSegments()) {
+            if (!file.delete()) {
+                logger.warning("Failed to delete journal " + file.getName());
+            }
+        }
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            if (!folder.exists() && !folder.mkdirs()) {
+                logger.warning("Failed to create journal folder " + folder.getName());
+                return;
+            }
+            File[] existing = listSegments();
+            segment = existing.length == 0 ? 0L : segmentId(existing[existing.length - 1]) + 1L;
+            segmentUsed = false;
+            running = true;
+            thread = new Thread(this::run, "CampSystem-Journal");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 写完已提交的记录后停止写入线程。
+     */
+    public void close() {
+        Thread current;
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            lock.notifyAll();
+            current = thread;
+            thread = null;
+        }
+        try {
+            current.join(10_000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Object item) {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            pending.add(item);
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        long current = segment;
+        FileChannel channel = null;
+        List<Object> batch = new ArrayList<>();
+        try {
+            while (true) {
+                boolean stop;
+                synchronized (lock) {
+                    while (pending.isEmpty() && running) {
+                        lock.wait();
+                    }
+                    // 等待一小段时间收集更多记录，合并为一次 fsync
+                    long deadline = System.nanoTime() + groupCommitNanos;
+                    long remaining;
+                    while (running && (remaining = deadline - System.nanoTime()) > 0L) {
+                        lock.wait(Math.max(1L, remaining / 1_000_000L));
+                    }
+                    batch.addAll(pending);
+                    pending.clear();
+                    stop = !running;
+                }
+                channel = writeBatch(batch, channel, current);
+                for (Object item : batch) {
+                    if (item instanceof Rotate rotate) {
+                        current = rotate.segment();
+                    }
+                }
+                batch.clear();
+                if (stop) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    private FileChannel writeBatch(List<Object> batch, FileChannel channel, long current) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Object item : batch) {
+            if (item instanceof byte[] record) {
+                buffer.write(record, 0, record.length);
+            } else if (item instanceof Rotate rotate) {
+                channel = sync(channel, current, buffer);
+                closeQuietly(channel);
+                channel = null;
+                current = rotate.segment();
+            } else if (item instanceof Compact compact) {
+                for (File file : listSegments()) {
+                    if (segmentId(file) < compact.segment() && !file.delete()) {
+                        logger.warning("Failed to delete journal " + file.getName());
+                    }
+                }
+            }
+        }
+        return sync(channel, current, buffer);
+    }
+
+    private FileChannel sync(FileChannel channel, long current, ByteArrayOutputStream buffer) {
+        if (buffer.size() == 0) {
+            return channel;
+        }
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(segmentFile(current).toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            logger.warning("Failed to write journal: " + ex.getMessage());
+            closeQuietly(channel);
+            channel = null;
+        }
+        buffer.reset();
+        return channel;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(folder, String.format("%012d", id) + EXTENSION);
+    }
+
+    private File[] listSegments() {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(EXTENSION) && segmentId(name) >= 0L);
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, Comparator.comparingLong(MutationJournal::segmentId));
+        return files;
+    }
+
+    private static long segmentId(File file) {
+        return segmentId(file.getName());
+    }
+
+    private static long segmentId(String name) {
+        try {
+            return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+        } catch (NumberFormatException ex) {
+            return -1L;
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+}
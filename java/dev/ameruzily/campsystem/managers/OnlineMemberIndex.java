@@ -0,0 +1,129 @@
+package dev.ameruzily.campsystem.managers;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 国家在线成员索引。以 StateManager 的玩家归属为准，记录每个国家当前在线的 Player，
+ * 国家消息、动作栏与音效直接遍历现成的列表，不再逐个复制成员集合并调用 Bukkit.getPlayer。
+ * 由 StateManager 在成员变动、改名与加载时更新，进出服务器由监听器通知。
+ */
+public class OnlineMemberIndex {
+    private final Map<UUID, String> stateOf = new HashMap<>(); // 在线玩家 -> 国家（小写）
+    private final Map<String, Map<UUID, Player>> members = new HashMap<>();
+    private final Map<String, List<Player>> lists = new HashMap<>();
+
+    private static String normalize(String state) {
+        return state.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 国家当前在线的成员。返回不可变列表，成员变动前可反复使用。
+     */
+    public synchronized List<Player> get(String state) {
+        if (state == null) {
+            return List.of();
+        }
+        String key = normalize(state);
+        List<Player> list = lists.get(key);
+        if (list == null) {
+            Map<UUID, Player> online = members.get(key);
+            list = online == null ? List.of() : List.copyOf(online.values());
+            lists.put(key, list);
+        }
+        return list;
+    }
+
+    /**
+     * 玩家进入服务器；state 为其所属国家，可为 null。
+     */
+    public synchronized void join(Player player, String state) {
+        remove(player.getUniqueId());
+        if (state != null) {
+            add(player, normalize(state));
+        }
+    }
+
+    public synchronized void quit(UUID playerId) {
+        remove(playerId);
+    }
+
+    /**
+     * 玩家的国家归属变更；玩家不在线时只清理旧记录。
+     */
+    public synchronized void assign(UUID playerId, String state) {
+        remove(playerId);
+        if (state == null) {
+            return;
+        }
+        Player player = Bukkit.getPlayer(playerId);
+        if (player != null) {
+            add(player, normalize(state));
+        }
+    }
+
+    public synchronized void rename(String oldName, String newName) {
+        String oldKey = normalize(oldName);
+        String newKey = normalize(newName);
+        Map<UUID, Player> online = members.remove(oldKey);
+        lists.remove(oldKey);
+        if (online == null) {
+            return;
+        }
+        for (UUID id : online.keySet()) {
+            stateOf.put(id, newKey);
+        }
+        members.merge(newKey, online, (current, moved) -> {
+            current.putAll(moved);
+            return current;
+        });
+        lists.remove(newKey);
+    }
+
+    /**
+     * 按完整的玩家归属重建，用于加载存档之后。
+     */
+    public synchronized void rebuild(Map<UUID, String> playerState) {
+        clear();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            String state = playerState.get(player.getUniqueId());
+            if (state != null) {
+                add(player, normalize(state));
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        stateOf.clear();
+        members.clear();
+        lists.clear();
+    }
+
+    private void add(Player player, String key) {
+        stateOf.put(player.getUniqueId(), key);
+        members.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(player.getUniqueId(), player);
+        lists.remove(key);
+    }
+
+    private void remove(UUID playerId) {
+        String key = stateOf.remove(playerId);
+        if (key == null) {
+            return;
+        }
+        Map<UUID, Player> online = members.get(key);
+        if (online != null) {
+            online.remove(playerId);
+            if (online.isEmpty()) {
+                members.remove(key);
+            }
+        }
+        lists.remove(key);
+    }
+}
@@ -0,0 +1,581 @@
+package dev.ameruzily.campsystem.managers;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * 嵌入式 SQLite 存储（使用服务端自带的 JDBC 驱动）。国家、成员、分区与营地各占一张表，
+ * 每批保存在后台线程的一个事务内以批量语句写入：新国家与整体保存时重写该国家的行；其余国家变化只以一条 UPDATE
+ * 写入国家字段，成员与分区只写入与上次不同的行，营地只写入有变化的。
+ * 营地字段较多且常随版本增减，整行以 CampDataCodec 编码为 BLOB 保存。
+ */
+public class SqliteStorageBackend implements StorageBackend {
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS goc_meta (key TEXT PRIMARY KEY, value TEXT)",
+            "CREATE TABLE IF NOT EXISTS goc_states (name TEXT PRIMARY KEY, captain TEXT, bank REAL NOT NULL DEFAULT 0,"
+                    + " tax REAL NOT NULL DEFAULT 0, ideology TEXT, ideology_changed_at INTEGER NOT NULL DEFAULT 0, capital TEXT,"
+                    + " last_active INTEGER NOT NULL DEFAULT 0)",
+            "CREATE TABLE IF NOT EXISTS goc_members (state TEXT NOT NULL, uuid TEXT NOT NULL, PRIMARY KEY (state, uuid))",
+            "CREATE TABLE IF NOT EXISTS goc_sectors (state TEXT NOT NULL, sector TEXT NOT NULL, world TEXT,"
+                    + " x INTEGER, y INTEGER, z INTEGER, owner TEXT, PRIMARY KEY (state, sector))",
+            "CREATE TABLE IF NOT EXISTS goc_camps (state TEXT NOT NULL, sector TEXT NOT NULL, data BLOB NOT NULL,"
+                    + " PRIMARY KEY (state, sector))",
+            // 银行流水已改为保存在 BankLedger 中，该表只用于读取旧数据
+            "CREATE TABLE IF NOT EXISTS goc_transactions (state TEXT NOT NULL, seq INTEGER NOT NULL, timestamp INTEGER NOT NULL,"
+                    + " type TEXT NOT NULL, amount REAL NOT NULL, balance REAL NOT NULL, actor TEXT, PRIMARY KEY (state, seq))"
+    };
+    private static final String[] STATE_TABLES = {"goc_members", "goc_sectors", "goc_camps", "goc_transactions"};
+
+    private final Logger logger;
+    private final File file;
+    private final ExecutorService executor;
+    private final StorageTimers timers;
+    // 仅在主线程读写
+    private final Set<String> knownStates = new HashSet<>();
+    // 各国家已写入的成员与分区行，仅在后台线程访问
+    private final Map<String, Set<String>> memberRows = new HashMap<>();
+    private final Map<String, Map<String, SectorRow>> sectorRows = new HashMap<>();
+
+    private Connection connection;
+
+    public SqliteStorageBackend(File dataFolder, Logger logger, String fileName, StorageTimers timers) {
+        this.logger = logger;
+        this.file = new File(dataFolder, fileName);
+        this.timers = timers;
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "CampSystem-SQLite");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    /**
+     * 打开数据库并建表，失败时抛出异常，由调用方回退到文件存储。
+     */
+    public void open() throws IOException {
+        await(executor.submit(() -> {
+            connection();
+            return null;
+        }));
+    }
+
+    @Override
+    public YamlConfiguration load() throws IOException {
+        YamlConfiguration yaml = await(executor.submit(this::read));
+        knownStates.clear();
+        ConfigurationSection states = yaml.getConfigurationSection("states");
+        if (states != null) {
+            knownStates.addAll(states.getKeys(false));
+        }
+        return yaml;
+    }
+
+    @Override
+    public boolean needsRewrite() {
+        return false;
+    }
+
+    @Override
+    public boolean contains(String stateName) {
+        return knownStates.contains(stateName);
+    }
+
+    @Override
+    public boolean supportsPartialUpdates() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> save(SaveBatch batch) {
+        List<String> removed = new ArrayList<>();
+        for (String name : knownStates) {
+            if (!batch.liveStates().contains(name)) {
+                removed.add(name);
+            }
+        }
+        knownStates.clear();
+        knownStates.addAll(batch.liveStates());
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                write(batch, removed);
+                result.complete(true);
+            } catch (SQLException | IOException | RuntimeException ex) {
+                logger.warning("Failed to save to " + file.getName() + ": " + ex.getMessage());
+                result.complete(false);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public int exportYaml(File folder) throws IOException {
+        YamlConfiguration yaml = await(executor.submit(this::read));
+        ConfigurationSection states = yaml.getConfigurationSection("states");
+        if (states == null) {
+            return 0;
+        }
+        int exported = 0;
+        for (String name : states.getKeys(false)) {
+            YamlConfiguration shard = new YamlConfiguration();
+            shard.createSection("states").set(name, states.getConfigurationSection(name));
+            File target = new File(folder, YamlStorageBackend.shardName(name) + ".yml");
+            AsyncSaveWriter.writeAtomically(target, shard.saveToString().getBytes(StandardCharsets.UTF_8));
+            exported++;
+        }
+        return exported;
+    }
+
+    @Override
+    public void flush() {
+        try {
+            await(executor.submit(() -> null));
+        } catch (IOException ex) {
+            logger.warning("Failed to flush " + file.getName() + ": " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.execute(() -> {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+                connection = null;
+            }
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warning("Timed out waiting for " + file.getName() + " writes to finish.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private Connection connection() throws SQLException, IOException {
+        if (connection != null) {
+            return connection;
+        }
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Failed to create data folder for " + file.getName());
+        }
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("SQLite JDBC driver not found", ex);
+        }
+        Connection opened = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement statement = opened.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+            migrate(statement);
+        } catch (SQLException ex) {
+            opened.close();
+            throw ex;
+        }
+        connection = opened;
+        return connection;
+    }
+
+    // 旧版数据库缺少的列
+    private void migrate(Statement statement) throws SQLException {
+        boolean lastActive = false;
+        try (ResultSet rs = statement.executeQuery("PRAGMA table_info(goc_states)")) {
+            while (rs.next()) {
+                lastActive |= "last_active".equalsIgnoreCase(rs.getString("name"));
+            }
+        }
+        if (!lastActive) {
+            statement.execute("ALTER TABLE goc_states ADD COLUMN last_active INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+
+    private void write(SaveBatch batch, List<String> removed) throws SQLException, IOException {
+        Connection c = connection();
+        long start = System.nanoTime();
+        long bindNanos;
+        for (String name : removed) {
+            memberRows.remove(name);
+            sectorRows.remove(name);
+        }
+        // 没有已写入行记录的国家无法比较差异，按整国重写处理
+        Set<String> rewrites = new HashSet<>();
+        for (StateChange change : batch.changes()) {
+            if (change.state() != null && (change.rewrite() || !memberRows.containsKey(change.name()))) {
+                rewrites.add(change.name());
+            }
+        }
+        c.setAutoCommit(false);
+        try {
+            // 先执行全部删除，再执行写入，保证同一国家的旧行不会覆盖新行
+            try (PreparedStatement deleteState = c.prepareStatement("DELETE FROM goc_states WHERE name = ?")) {
+                for (String name : removed) {
+                    deleteState.setString(1, name);
+                    deleteState.addBatch();
+                }
+                deleteState.executeBatch();
+            }
+            for (String table : STATE_TABLES) {
+                try (PreparedStatement delete = c.prepareStatement("DELETE FROM " + table + " WHERE state = ?")) {
+                    for (String name : removed) {
+                        delete.setString(1, name);
+                        delete.addBatch();
+                    }
+                    for (String name : rewrites) {
+                        delete.setString(1, name);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+            }
+
+            try (PreparedStatement meta = c.prepareStatement("INSERT OR REPLACE INTO goc_meta (key, value) VALUES (?, ?)");
+                 PreparedStatement state = c.prepareStatement("INSERT OR REPLACE INTO goc_states"
+                         + " (name, captain, bank, tax, ideology, ideology_changed_at, capital, last_active)"
+                         + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement update = c.prepareStatement("UPDATE goc_states SET captain = ?, bank = ?, tax = ?,"
+                         + " ideology = ?, ideology_changed_at = ?, capital = ?, last_active = ? WHERE name = ?");
+                 PreparedStatement member = c.prepareStatement("INSERT OR IGNORE INTO goc_members (state, uuid) VALUES (?, ?)");
+                 PreparedStatement deleteMember = c.prepareStatement("DELETE FROM goc_members WHERE state = ? AND uuid = ?");
+                 PreparedStatement sector = c.prepareStatement("INSERT OR REPLACE INTO goc_sectors"
+                         + " (state, sector, world, x, y, z, owner) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement deleteSector = c.prepareStatement("DELETE FROM goc_sectors WHERE state = ? AND sector = ?");
+                 PreparedStatement camp = c.prepareStatement("INSERT OR REPLACE INTO goc_camps (state, sector, data) VALUES (?, ?, ?)");
+                 PreparedStatement deleteCamp = c.prepareStatement("DELETE FROM goc_camps WHERE state = ? AND sector = ?")) {
+                meta.setString(1, "next-auto-id");
+                meta.setString(2, String.valueOf(batch.nextAutoId()));
+                meta.executeUpdate();
+
+                long bindStart = System.nanoTime();
+                for (StateChange change : batch.changes()) {
+                    if (change.state() != null && rewrites.contains(change.name())) {
+                        addState(change.name(), change.state(), state, member, sector, camp);
+                    } else if (change.state() != null) {
+                        updateState(change.name(), change.state(), update, member, deleteMember, sector, deleteSector, deleteCamp);
+                    }
+                    for (Map.Entry<String, ConfigurationSection> entry : change.camps().entrySet()) {
+                        if (entry.getValue() != null) {
+                            addCamp(change.name(), entry.getKey(), entry.getValue(), camp);
+                        } else {
+                            deleteCamp.setString(1, change.name());
+                            deleteCamp.setString(2, entry.getKey());
+                            deleteCamp.addBatch();
+                        }
+                    }
+                }
+                bindNanos = System.nanoTime() - bindStart;
+                update.executeBatch();
+                deleteMember.executeBatch();
+                deleteSector.executeBatch();
+                deleteCamp.executeBatch();
+                state.executeBatch();
+                member.executeBatch();
+                sector.executeBatch();
+                camp.executeBatch();
+            }
+            c.commit();
+            // 绑定参数（含营地编码）计入序列化，其余计入写入
+            timers.record(StorageTimers.Stage.SERIALIZE, bindNanos);
+            timers.record(StorageTimers.Stage.WRITE, System.nanoTime() - start - bindNanos);
+        } catch (SQLException | IOException | RuntimeException ex) {
+            c.rollback();
+            // 行记录可能已与数据库不一致，之后按整国重写
+            memberRows.clear();
+            sectorRows.clear();
+            throw ex;
+        } finally {
+            c.setAutoCommit(true);
+        }
+    }
+
+    private void addState(String name, ConfigurationSection section, PreparedStatement state, PreparedStatement member,
+                          PreparedStatement sector, PreparedStatement camp) throws SQLException {
+        bindState(section, state, 1);
+        state.setString(1, name);
+        state.addBatch();
+
+        Set<String> members = new HashSet<>(section.getStringList("members"));
+        for (String uuid : members) {
+            member.setString(1, name);
+            member.setString(2, uuid);
+            member.addBatch();
+        }
+        memberRows.put(name, members);
+
+        Map<String, SectorRow> rows = new HashMap<>();
+        sectorRows.put(name, rows);
+        ConfigurationSection sectors = section.getConfigurationSection("sectors");
+        if (sectors == null) {
+            return;
+        }
+        for (String sectorName : sectors.getKeys(false)) {
+            ConfigurationSection sectorSection = sectors.getConfigurationSection(sectorName);
+            if (sectorSection == null) {
+                continue;
+            }
+            SectorRow row = SectorRow.of(sectorSection);
+            bindSector(name, sectorName, row, sector);
+            rows.put(sectorName, row);
+
+            ConfigurationSection campSection = sectorSection.getConfigurationSection("camp");
+            if (campSection != null) {
+                addCamp(name, sectorName, campSection, camp);
+            }
+        }
+    }
+
+    /**
+     * 国家字段以一条 UPDATE 写入；成员与分区只写入与上次不同的行，营地由 camps 单独给出。
+     */
+    private void updateState(String name, ConfigurationSection section, PreparedStatement update, PreparedStatement member,
+                             PreparedStatement deleteMember, PreparedStatement sector, PreparedStatement deleteSector,
+                             PreparedStatement deleteCamp) throws SQLException {
+        bindState(section, update, 0);
+        update.setString(8, name);
+        update.addBatch();
+
+        Set<String> members = new HashSet<>(section.getStringList("members"));
+        Set<String> previousMembers = memberRows.put(name, members);
+        for (String uuid : members) {
+            if (!previousMembers.contains(uuid)) {
+                member.setString(1, name);
+                member.setString(2, uuid);
+                member.addBatch();
+            }
+        }
+        for (String uuid : previousMembers) {
+            if (!members.contains(uuid)) {
+                deleteMember.setString(1, name);
+                deleteMember.setString(2, uuid);
+                deleteMember.addBatch();
+            }
+        }
+
+        Map<String, SectorRow> rows = new HashMap<>();
+        ConfigurationSection sectors = section.getConfigurationSection("sectors");
+        if (sectors != null) {
+            for (String sectorName : sectors.getKeys(false)) {
+                ConfigurationSection sectorSection = sectors.getConfigurationSection(sectorName);
+                if (sectorSection != null) {
+                    rows.put(sectorName, SectorRow.of(sectorSection));
+                }
+            }
+        }
+        Map<String, SectorRow> previousRows = sectorRows.put(name, rows);
+        for (Map.Entry<String, SectorRow> entry : rows.entrySet()) {
+            if (!entry.getValue().equals(previousRows.get(entry.getKey()))) {
+                bindSector(name, entry.getKey(), entry.getValue(), sector);
+            }
+        }
+        for (String sectorName : previousRows.keySet()) {
+            if (!rows.containsKey(sectorName)) {
+                deleteSector.setString(1, name);
+                deleteSector.setString(2, sectorName);
+                deleteSector.addBatch();
+                deleteCamp.setString(1, name);
+                deleteCamp.setString(2, sectorName);
+                deleteCamp.addBatch();
+            }
+        }
+    }
+
+    // offset 为 1 时从第 2 个参数开始（INSERT 的第 1 个参数为国家名），为 0 时从第 1 个开始（UPDATE）
+    private static void bindState(ConfigurationSection section, PreparedStatement statement, int offset) throws SQLException {
+        statement.setString(1 + offset, section.getString("captain"));
+        statement.setDouble(2 + offset, section.getDouble("bank"));
+        statement.setDouble(3 + offset, section.getDouble("tax"));
+        statement.setString(4 + offset, section.getString("ideology"));
+        statement.setLong(5 + offset, section.getLong("ideology-changed-at"));
+        statement.setString(6 + offset, section.getString("capital"));
+        statement.setLong(7 + offset, section.getLong("last-active"));
+    }
+
+    private static void bindSector(String state, String sectorName, SectorRow row, PreparedStatement sector) throws SQLException {
+        sector.setString(1, state);
+        sector.setString(2, sectorName);
+        sector.setString(3, row.world());
+        sector.setInt(4, row.x());
+        sector.setInt(5, row.y());
+        sector.setInt(6, row.z());
+        sector.setString(7, row.owner());
+        sector.addBatch();
+    }
+
+    private record SectorRow(String world, int x, int y, int z, String owner) {
+        static SectorRow of(ConfigurationSection section) {
+            return new SectorRow(section.getString("world"), section.getInt("x"), section.getInt("y"), section.getInt("z"),
+                    section.getString("owner"));
+        }
+    }
+
+    private void addCamp(String state, String sector, ConfigurationSection section, PreparedStatement camp) throws SQLException {
+        camp.setString(1, state);
+        camp.setString(2, sector);
+        camp.setBytes(3, CampDataCodec.encode(section));
+        camp.addBatch();
+    }
+
+    /**
+     * 按表读取并还原为 campinfo.yml 的树结构。
+     */
+    private YamlConfiguration read() throws SQLException, IOException {
+        Connection c = connection();
+        memberRows.clear();
+        sectorRows.clear();
+        YamlConfiguration yaml = new YamlConfiguration();
+        yaml.set("meta.next-auto-id", 1);
+        ConfigurationSection states = yaml.createSection("states");
+        try (Statement statement = c.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT value FROM goc_meta WHERE key = 'next-auto-id'")) {
+                if (rs.next()) {
+                    try {
+                        yaml.set("meta.next-auto-id", Integer.parseInt(rs.getString(1)));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+
+            Map<String, ConfigurationSection> sections = new HashMap<>();
+            try (ResultSet rs = statement.executeQuery("SELECT name, captain, bank, tax, ideology, ideology_changed_at, capital, last_active FROM goc_states")) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    ConfigurationSection section = states.createSection(name);
+                    setIfPresent(section, "captain", rs.getString(2));
+                    section.set("bank", rs.getDouble(3));
+                    section.set("tax", rs.getDouble(4));
+                    setIfPresent(section, "ideology", rs.getString(5));
+                    if (rs.getLong(6) > 0L) {
+                        section.set("ideology-changed-at", rs.getLong(6));
+                    }
+                    setIfPresent(section, "capital", rs.getString(7));
+                    if (rs.getLong(8) > 0L) {
+                        section.set("last-active", rs.getLong(8));
+                    }
+                    section.createSection("sectors");
+                    sections.put(name, section);
+                    memberRows.put(name, new HashSet<>());
+                    sectorRows.put(name, new HashMap<>());
+                }
+            }
+
+            Map<String, List<String>> members = new HashMap<>();
+            try (ResultSet rs = statement.executeQuery("SELECT state, uuid FROM goc_members")) {
+                while (rs.next()) {
+                    members.computeIfAbsent(rs.getString(1), key -> new ArrayList<>()).add(rs.getString(2));
+                    Set<String> rows = memberRows.get(rs.getString(1));
+                    if (rows != null) {
+                        rows.add(rs.getString(2));
+                    }
+                }
+            }
+            members.forEach((state, list) -> {
+                ConfigurationSection section = sections.get(state);
+                if (section != null) {
+                    section.set("members", list);
+                }
+            });
+
+            Map<String, List<Map<String, Object>>> transactions = new HashMap<>();
+            try (ResultSet rs = statement.executeQuery("SELECT state, timestamp, type, amount, balance, actor FROM goc_transactions ORDER BY state, seq")) {
+                while (rs.next()) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("timestamp", rs.getLong(2));
+                    entry.put("type", rs.getString(3));
+                    entry.put("amount", rs.getDouble(4));
+                    entry.put("balance", rs.getDouble(5));
+                    if (rs.getString(6) != null) {
+                        entry.put("actor", rs.getString(6));
+                    }
+                    transactions.computeIfAbsent(rs.getString(1), key -> new ArrayList<>()).add(entry);
+                }
+            }
+            transactions.forEach((state, list) -> {
+                ConfigurationSection section = sections.get(state);
+                if (section != null) {
+                    section.set("transactions", list);
+                }
+            });
+
+            try (ResultSet rs = statement.executeQuery("SELECT state, sector, world, x, y, z, owner FROM goc_sectors")) {
+                while (rs.next()) {
+                    ConfigurationSection section = sections.get(rs.getString(1));
+                    if (section == null) {
+                        continue;
+                    }
+                    ConfigurationSection sectorSection = section.getConfigurationSection("sectors").createSection(rs.getString(2));
+                    if (rs.getString(3) != null) {
+                        sectorSection.set("world", rs.getString(3));
+                        sectorSection.set("x", rs.getInt(4));
+                        sectorSection.set("y", rs.getInt(5));
+                        sectorSection.set("z", rs.getInt(6));
+                    }
+                    setIfPresent(sectorSection, "owner", rs.getString(7));
+                    sectorRows.get(rs.getString(1)).put(rs.getString(2), SectorRow.of(sectorSection));
+                }
+            }
+
+            try (ResultSet rs = statement.executeQuery("SELECT state, sector, data FROM goc_camps")) {
+                while (rs.next()) {
+                    ConfigurationSection section = sections.get(rs.getString(1));
+                    ConfigurationSection sectorSection = section == null ? null
+                            : section.getConfigurationSection("sectors").getConfigurationSection(rs.getString(2));
+                    if (sectorSection == null) {
+                        continue;
+                    }
+                    try {
+                        sectorSection.set("camp", CampDataCodec.decode(rs.getBytes(3)));
+                    } catch (IOException ex) {
+                        logger.warning("Skipping unreadable camp " + rs.getString(1) + "/" + rs.getString(2) + ": " + ex.getMessage());
+                    }
+                }
+            }
+        }
+        return yaml;
+    }
+
+    private static void setIfPresent(ConfigurationSection section, String path, String value) {
+        if (value != null && !value.isEmpty()) {
+            section.set(path, value);
+        }
+    }
+}
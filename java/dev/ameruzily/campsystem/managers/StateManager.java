@@ -3,7 +3,10 @@ package dev.ameruzily.campsystem.managers;
 import dev.ameruzily.campsystem.CampSystem;
 import dev.ameruzily.campsystem.models.Camp;
 import dev.ameruzily.campsystem.models.CampBoundary;
-import dev.ameruzily.campsystem.models.Ideology;
+import dev.ameruzily.campsystem.models.Ideology;
+import dev.ameruzily.campsystem.models.SectorPosition;
+import dev.ameruzily.campsystem.models.Settings;
+import dev.ameruzily.campsystem.models.WorldSnapshot;
 import dev.lone.itemsadder.api.CustomStack;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
@@ -13,7 +16,6 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.inventory.ItemStack;
@@ -23,6 +25,7 @@ import org.bukkit.permissions.PermissionAttachment;
 import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -44,19 +47,25 @@ public class StateManager {
     private final Map<UUID, TpaRequest> pendingTeleports = new ConcurrentHashMap<>();
     private final Map<UUID, Long> teleportCooldowns = new ConcurrentHashMap<>();
     private final AtomicInteger idCounter = new AtomicInteger(1);
+    private final CampSpatialIndex spatialIndex = new CampSpatialIndex();
+    private final OnlineMemberIndex onlineMembers = new OnlineMemberIndex();
+    private final CampBoundarySolver boundarySolver;
 
     private BukkitTask taxTask;
     private long taxSampleTicks = 1200L;
 
     private static final Set<String> RESERVED_STATE_NAMES = Set.of("accept", "deny");
 
-    public StateManager(CampSystem plugin) { this.plugin = plugin; }
+    public StateManager(CampSystem plugin) {
+        this.plugin = plugin;
+        this.boundarySolver = new CampBoundarySolver(plugin, this);
+    }
 
     public void startBankTask() {
         if (taxTask != null) {
             taxTask.cancel();
         }
-        taxSampleTicks = Math.max(1L, plugin.getConfig().getLong("bank.tax.sample-period-ticks", 1200L));
+        taxSampleTicks = plugin.config().settings().bank().taxSamplePeriodTicks();
         taxTask = Bukkit.getScheduler().runTaskTimer(plugin, this::handleTaxSample, taxSampleTicks, taxSampleTicks);
     }
 
@@ -68,7 +77,8 @@ public class StateManager {
     }
 
     private void handleTaxSample() {
-        if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+        Settings.Bank bank = plugin.config().settings().bank();
+        if (!bank.enabled()) {
             onlineProgress.clear();
             taxRecords.clear();
             return;
@@ -79,8 +89,7 @@ public class StateManager {
             return;
         }
 
-        long intervalMinutes = Math.max(1L, plugin.getConfig().getLong("bank.tax.interval-minutes", 30));
-        long intervalMillis = intervalMinutes * 60_000L;
+        long intervalMillis = bank.taxIntervalMinutes() * 60_000L;
         if (intervalMillis <= 0) {
             return;
         }
@@ -191,6 +200,8 @@ public class StateManager {
         if (wasCaptain) {
             if (state.members.isEmpty()) {
                 states.remove(state.name);
+                plugin.ledger().archive(state.name);
+                spatialIndex.removeState(state.name);
                 plugin.war().removeStateCamps(state.name);
                 if (plugin.holograms() != null) {
                     plugin.holograms().removeState(state.name);
@@ -235,8 +246,9 @@ public class StateManager {
         pendingInvites.remove(playerId);
         pendingJoinRequests.remove(playerId);
 
-        String stateName = playerState.remove(playerId);
+        String stateName = unassignPlayer(playerId);
         if (stateName != null) {
+            plugin.campInfo().journal().memberLeave(stateName, playerId);
             StateData data = states.get(stateName);
             if (data != null) {
                 data.members.remove(playerId);
@@ -315,6 +327,24 @@ public class StateManager {
         }
     }
 
+    /**
+     * 只标记单个国家需要保存，不影响其他国家的分片。
+     */
+    private void markDirty(StateData data) {
+        if (data == null) {
+            markDirty();
+            return;
+        }
+        data.dirty = true;
+        if (plugin.snapshots() != null) {
+            plugin.snapshots().markState(data.name);
+        }
+        CampInfoManager info = plugin.campInfo();
+        if (info != null) {
+            info.requestSave();
+        }
+    }
+
     private boolean isItemsAdderAvailable() {
         return Bukkit.getPluginManager().getPlugin("ItemsAdder") != null;
     }
@@ -424,7 +454,7 @@ public class StateManager {
         }
 
         Location location = player.getLocation();
-        double radius = Math.max(1.0, plugin.getConfig().getDouble("camp.radius", 16.0));
+        double radius = plugin.config().settings().camp().radius();
         CampSectorInfo occupied = findCampInRadius(location, radius);
         if (occupied != null) {
             plugin.lang().send(player, "state.create-inside-other", Map.of(
@@ -476,7 +506,7 @@ public class StateManager {
         String targetStateName = autoNames != null ? autoNames.state() : trimmedState;
         String resolvedSectorName = autoNames != null ? autoNames.sector() : trimmedSector;
 
-        if (states.containsKey(targetStateName)) {
+        if (states.containsKey(targetStateName) || isColdState(targetStateName)) {
             plugin.lang().send(player, "state.exists", Map.of("state", targetStateName));
             return;
         }
@@ -498,9 +528,9 @@ public class StateManager {
         }
 
         StateData data = new StateData(targetStateName, player.getUniqueId());
-        data.taxAmount = plugin.getConfig().getDouble("bank.tax.amount", 0.0);
+        data.taxAmount = plugin.config().settings().bank().taxAmount();
         states.put(targetStateName, data);
-        playerState.put(player.getUniqueId(), targetStateName);
+        assignPlayer(player.getUniqueId(), targetStateName);
         refreshIdeologyPermission(player.getUniqueId());
         clearTracking(player.getUniqueId());
         createCooldown.put(player.getUniqueId(), now);
@@ -680,7 +710,7 @@ public class StateManager {
         double cost = Math.max(0.0, normalizeAmount(settings.cost()));
         PaymentSource source = PaymentSource.NONE;
         Economy economy = plugin.economy();
-        boolean bankEnabled = plugin.getConfig().getBoolean("bank.enabled", true);
+        boolean bankEnabled = plugin.config().settings().bank().enabled();
 
         if (cost > 0) {
             if (bankEnabled && data.bankBalance + 1e-6 >= cost) {
@@ -719,6 +749,7 @@ public class StateManager {
         breakCampBlock(location, false);
 
         sector.setLocation(null);
+        spatialIndex.remove(stateName, resolved);
 
         if (!requirements.isEmpty()) {
             consumeMaterials(player, requirements);
@@ -799,7 +830,7 @@ public class StateManager {
 
         String previous = clearGovernorOwnership(data, targetId, resolved);
         sector.setOwner(targetId);
-        markDirty();
+        markDirty(data);
         return AssignGovernorResult.of(AssignGovernorStatus.SUCCESS, stateName, resolved, target.getName(), targetId, previous);
     }
 
@@ -838,7 +869,7 @@ public class StateManager {
             return RemoveGovernorResult.of(RemoveGovernorStatus.NOT_GOVERNOR, null, target.getName(), targetId);
         }
 
-        markDirty();
+        markDirty(data);
         return RemoveGovernorResult.of(RemoveGovernorStatus.SUCCESS, stateName, removed, targetId);
     }
 
@@ -883,6 +914,7 @@ public class StateManager {
         }
 
         data.sectors.remove(resolved);
+        spatialIndex.remove(stateName, resolved);
 
         String newCapital = null;
         boolean capitalCleared = false;
@@ -897,7 +929,7 @@ public class StateManager {
             }
         }
 
-        markDirty();
+        markDirty(data);
         return RemoveSectorResult.of(RemoveSectorStatus.SUCCESS, stateName, resolved, newCapital, capitalCleared);
     }
 
@@ -909,6 +941,8 @@ public class StateManager {
         if (data == null) {
             return;
         }
+        plugin.ledger().archive(stateName);
+        spatialIndex.removeState(stateName);
 
         Map<String, String> messageVars = new HashMap<>();
         messageVars.put("state", stateName);
@@ -990,6 +1024,8 @@ public class StateManager {
         }
 
         states.remove(state);
+        plugin.ledger().archive(state);
+        spatialIndex.removeState(state);
         plugin.war().removeStateCamps(state);
         if (plugin.holograms() != null) {
             plugin.holograms().removeState(state);
@@ -1018,18 +1054,22 @@ public class StateManager {
             return null;
         }
 
+        CampBoundary boundary = getSectorBoundary(source.name, resolved);
         SectorData sector = source.sectors.remove(resolved);
         if (sector == null) {
             return null;
         }
+        spatialIndex.remove(source.name, resolved);
 
         sector.setOwner(target.captain);
         String uniqueName = resolveUniqueSectorName(target, resolved);
         target.sectors.put(uniqueName, sector);
+        indexSector(target.name, sector, uniqueName, boundary);
         if (target.capitalSector == null) {
             target.capitalSector = uniqueName;
         }
 
+        plugin.campInfo().journal().transfer(source.name, target.name, resolved);
         markDirty();
         return uniqueName;
     }
@@ -1107,7 +1147,7 @@ public class StateManager {
             return false;
         }
 
-        if (states.containsKey(trimmed)) {
+        if (states.containsKey(trimmed) || isColdState(trimmed)) {
             plugin.lang().send(player, "state.exists", Map.of("state", trimmed));
             return false;
         }
@@ -1115,13 +1155,17 @@ public class StateManager {
         states.remove(old);
         data.name = trimmed;
         states.put(trimmed, data);
+        plugin.ledger().rename(old, trimmed);
         for (UUID member : data.members) {
             playerState.put(member, trimmed);
         }
+        onlineMembers.rename(old, trimmed);
         pendingCampPlacement.values().stream()
                 .filter(pending -> pending.getState().equals(old))
                 .forEach(pending -> pending.setState(trimmed));
         plugin.war().renameState(old, trimmed);
+        spatialIndex.removeState(old);
+        reindexState(data);
         if (plugin.holograms() != null) {
             plugin.holograms().renameState(old, trimmed);
         }
@@ -1158,7 +1202,7 @@ public class StateManager {
             plugin.lang().send(player, "state.rename-sector-failed");
             return false;
         }
-        double radius = Math.max(1.0, plugin.getConfig().getDouble("camp.radius", 16.0));
+        double radius = plugin.config().settings().camp().radius();
         CampSectorInfo info = findCampInRadius(location, radius);
         if (info == null || !stateName.equalsIgnoreCase(info.stateName())) {
             plugin.lang().send(player, "state.rename-sector-failed");
@@ -1235,7 +1279,7 @@ public class StateManager {
         UUID owner = sector.getOwner();
 
         data.sectors.remove(resolved);
-        SectorData renamed = new SectorData(trimmed, sectorLocation, owner);
+        SectorData renamed = new SectorData(trimmed, sector.getPosition(), owner);
         data.sectors.put(trimmed, renamed);
 
         boolean capital = data.capitalSector != null && data.capitalSector.equalsIgnoreCase(resolved);
@@ -1244,6 +1288,8 @@ public class StateManager {
         }
 
         plugin.war().renameSector(stateName, resolved, trimmed);
+        spatialIndex.remove(stateName, resolved);
+        reindexSector(stateName, trimmed);
         plugin.war().refreshMaintenanceSchedule(stateName, trimmed);
         if (plugin.holograms() != null) {
             plugin.holograms().renameSector(stateName, resolved, trimmed, sectorLocation);
@@ -1256,7 +1302,7 @@ public class StateManager {
                 plugin.capitalSetSound().play(player);
             }
         }
-        markDirty();
+        markDirty(data);
         return true;
     }
 
@@ -1308,7 +1354,7 @@ public class StateManager {
         double cost = Math.max(0.0, normalizeAmount(settings.cost()));
         PaymentSource source = PaymentSource.NONE;
         Economy economy = plugin.economy();
-        boolean bankEnabled = plugin.getConfig().getBoolean("bank.enabled", true);
+        boolean bankEnabled = plugin.config().settings().bank().enabled();
 
         if (cost > 0.0) {
             if (bankEnabled && data.bankBalance + 1e-6 >= cost) {
@@ -1361,12 +1407,12 @@ public class StateManager {
             setCapitalMoveCooldown(stateName);
         }
 
-        markDirty();
+        markDirty(data);
         return CapitalMoveResponse.of(CapitalMoveStatus.SUCCESS, resolved, cost, source, requirementText, 0L);
     }
 
     public BankActionResponse deposit(Player player, double amount) {
-        if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+        if (!plugin.config().settings().bank().enabled()) {
             return BankActionResponse.of(BankResult.DISABLED, 0, 0);
         }
 
@@ -1409,7 +1455,7 @@ public class StateManager {
     }
 
     public BankActionResponse withdraw(Player player, double amount) {
-        if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+        if (!plugin.config().settings().bank().enabled()) {
             return BankActionResponse.of(BankResult.DISABLED, 0, 0);
         }
 
@@ -1463,6 +1509,18 @@ public class StateManager {
         return List.copyOf(state.transactions);
     }
 
+    /**
+     * 分页读取完整流水，page 从 1 开始。
+     */
+    public CompletableFuture<BankLedger.Page> getTransactionPage(String stateName, int page, int pageSize) {
+        StateData state = states.get(stateName);
+        if (state == null) {
+            return CompletableFuture.completedFuture(new BankLedger.Page(List.of(), 0));
+        }
+        int offset = Math.max(0, page - 1) * pageSize;
+        return plugin.ledger().pageAsync(state.name, offset, pageSize);
+    }
+
     public double getTaxAmount(String stateName) {
         StateData state = states.get(stateName);
         if (state == null) {
@@ -1472,7 +1530,7 @@ public class StateManager {
     }
 
     public TaxUpdateResponse setTaxAmount(Player player, double amount) {
-        if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+        if (!plugin.config().settings().bank().enabled()) {
             return TaxUpdateResponse.of(TaxUpdateStatus.DISABLED, 0.0);
         }
 
@@ -1513,7 +1571,7 @@ public class StateManager {
     }
 
     public BankActionResponse depositToState(String stateName, double amount, UUID actor, BankTransactionType type) {
-        if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+        if (!plugin.config().settings().bank().enabled()) {
             return BankActionResponse.of(BankResult.DISABLED, 0, 0);
         }
 
@@ -1540,7 +1598,7 @@ public class StateManager {
     }
 
     public BankActionResponse withdrawFromState(String stateName, double amount, UUID actor, BankTransactionType type) {
-        if (!plugin.getConfig().getBoolean("bank.enabled", true)) {
+        if (!plugin.config().settings().bank().enabled()) {
             return BankActionResponse.of(BankResult.DISABLED, 0, 0);
         }
 
@@ -1575,12 +1633,88 @@ public class StateManager {
     }
 
     private void recordTransaction(StateData state, BankTransaction transaction) {
+        addRecentTransaction(state, transaction);
+        plugin.ledger().append(state.name, transaction);
+        plugin.campInfo().journal().bank(state.name, state.bankBalance, transaction.getTimestamp(),
+                transaction.getType().name(), transaction.getAmount(), transaction.getActor());
+        markDirty(state);
+    }
+
+    /**
+     * 重放变更日志中的银行记录：恢复余额，流水中还没有这笔记录时补上。
+     */
+    public void replayBank(String stateName, double balance, long timestamp, String type, double amount, UUID actor) {
+        StateData state = findState(stateName);
+        if (state == null) {
+            return;
+        }
+        BankTransactionType txType = BankTransactionType.valueOf(type);
+        BankTransaction transaction = BankTransaction.fromData(timestamp, txType, actor, amount, balance);
+        state.bankBalance = balance;
+        boolean recent = false;
+        for (BankTransaction tx : state.transactions) {
+            if (BankLedger.sameEntry(tx, transaction)) {
+                recent = true;
+                break;
+            }
+        }
+        if (!recent) {
+            addRecentTransaction(state, transaction);
+        }
+        // 流水文件可能已经写入了这笔记录，由账本对照文件尾部判断；重放不再写入变更日志
+        plugin.ledger().appendIfMissing(state.name, transaction);
+        markDirty(state);
+    }
+
+    private void addRecentTransaction(StateData state, BankTransaction transaction) {
         state.transactions.addFirst(transaction);
-        int limit = Math.max(1, plugin.getConfig().getInt("bank.log-size", 30));
+        int limit = plugin.config().settings().bank().logSize();
         while (state.transactions.size() > limit) {
             state.transactions.removeLast();
         }
-        markDirty();
+    }
+
+    /**
+     * 重放分区转移；分区已不在原国家时说明存档中已包含这次转移。
+     */
+    public void replayTransfer(String fromState, String toState, String sector) {
+        String newSector = transferSector(fromState, toState, sector);
+        if (newSector != null) {
+            plugin.war().applySectorTransfer(fromState, sector, toState, newSector);
+        }
+    }
+
+    public void replayMemberJoin(String stateName, UUID playerId) {
+        StateData data = states.get(stateName);
+        if (data == null || playerId == null) {
+            return;
+        }
+        String previous = playerState.get(playerId);
+        if (previous != null && !previous.equals(stateName) && states.containsKey(previous)) {
+            StateData old = states.get(previous);
+            if (playerId.equals(old.captain)) {
+                return;
+            }
+            old.members.remove(playerId);
+            markDirty(old);
+        }
+        data.members.add(playerId);
+        assignPlayer(playerId, stateName);
+        markDirty(data);
+    }
+
+    public void replayMemberLeave(String stateName, UUID playerId) {
+        StateData data = states.get(stateName);
+        // 国家首领的离开涉及国家解散或换届，由下一次存档保存
+        if (data == null || playerId == null || playerId.equals(data.captain)) {
+            return;
+        }
+        data.members.remove(playerId);
+        reassignSectors(data, playerId, data.captain);
+        if (stateName.equals(playerState.get(playerId))) {
+            unassignPlayer(playerId);
+        }
+        markDirty(data);
     }
 
     public RepairOutcome repairCamp(Player player, String sectorInput) {
@@ -1628,7 +1762,7 @@ public class StateManager {
         double cost = Math.max(0.0, normalizeAmount(settings.cost()));
         PaymentSource source = PaymentSource.NONE;
         Economy economy = plugin.economy();
-        boolean bankEnabled = plugin.getConfig().getBoolean("bank.enabled", true);
+        boolean bankEnabled = plugin.config().settings().bank().enabled();
 
         if (cost > 0) {
             if (bankEnabled && state.bankBalance + 1e-6 >= cost) {
@@ -1713,7 +1847,7 @@ public class StateManager {
         double cost = Math.max(0.0, normalizeAmount(settings.cost()));
         PaymentSource source = PaymentSource.NONE;
         Economy economy = plugin.economy();
-        boolean bankEnabled = plugin.getConfig().getBoolean("bank.enabled", true);
+        boolean bankEnabled = plugin.config().settings().bank().enabled();
 
         if (cost > 0) {
             if (bankEnabled && state.bankBalance + 1e-6 >= cost) {
@@ -2365,7 +2499,9 @@ public class StateManager {
         pendingInvites.remove(player.getUniqueId());
         pendingJoinRequests.remove(player.getUniqueId());
         data.members.add(player.getUniqueId());
-        playerState.put(player.getUniqueId(), invite.state);
+        assignPlayer(player.getUniqueId(), invite.state);
+        plugin.campInfo().journal().memberJoin(invite.state, player.getUniqueId());
+        markDirty(data);
         refreshIdeologyPermission(player.getUniqueId());
         clearTracking(player.getUniqueId());
         plugin.lang().send(player, "state.join-success", Map.of("state", invite.state));
@@ -2610,7 +2746,7 @@ public class StateManager {
             return;
         }
 
-        StateData target = findState(query);
+        StateData target = findOrRestoreState(query);
         if (target == null) {
             plugin.lang().send(player, "state.join-target-not-found", Map.of(
                     "state", query
@@ -2749,7 +2885,9 @@ public class StateManager {
         if (accept) {
             pendingJoinRequests.remove(target.playerId);
             state.members.add(target.playerId);
-            playerState.put(target.playerId, stateName);
+            assignPlayer(target.playerId, stateName);
+            plugin.campInfo().journal().memberJoin(stateName, target.playerId);
+            markDirty(state);
             refreshIdeologyPermission(target.playerId);
             clearTracking(target.playerId);
             plugin.lang().send(captain, "state.join-accept-success", Map.of("player", target.playerName));
@@ -2800,7 +2938,7 @@ public class StateManager {
             return SectorGiftRequestResult.of(SectorGiftRequestStatus.TARGET_NOT_FOUND, null, null, 0L);
         }
 
-        StateData target = findState(cleanedTarget);
+        StateData target = findOrRestoreState(cleanedTarget);
         if (target == null) {
             return SectorGiftRequestResult.of(SectorGiftRequestStatus.TARGET_NOT_FOUND, cleanedTarget, null, 0L);
         }
@@ -3084,9 +3222,9 @@ public class StateManager {
         String rebelName = resolveUniqueStateName(baseName);
 
         StateData rebelState = new StateData(rebelName, player.getUniqueId());
-        rebelState.taxAmount = plugin.getConfig().getDouble("bank.tax.amount", 0.0);
+        rebelState.taxAmount = plugin.config().settings().bank().taxAmount();
         states.put(rebelName, rebelState);
-        playerState.put(player.getUniqueId(), rebelName);
+        assignPlayer(player.getUniqueId(), rebelName);
         refreshIdeologyPermission(player.getUniqueId());
         clearTracking(player.getUniqueId());
 
@@ -3138,9 +3276,13 @@ public class StateManager {
         }
     }
 
-    public void loadFromCampInfo(YamlConfiguration yaml) {
+    /**
+     * 清空运行时数据，准备登记新读取的国家。
+     */
+    public void beginLoad(int nextAutoId) {
         states.clear();
         playerState.clear();
+        onlineMembers.clear();
         pendingCampPlacement.clear();
         pendingInvites.clear();
         pendingJoinRequests.clear();
@@ -3149,99 +3291,119 @@ public class StateManager {
         onlineProgress.clear();
         taxRecords.clear();
         capitalMoveCooldowns.clear();
+        spatialIndex.clear();
+        idCounter.set(Math.max(1, nextAutoId));
+    }
 
-        int nextId = yaml == null ? 1 : yaml.getInt("meta.next-auto-id", 1);
-        idCounter.set(Math.max(1, nextId));
-
-        if (yaml == null) {
-            return;
+    /**
+     * 把存档中的一个国家解析为 StateData（含分区），只读取配置快照，可在加载线程中调用。
+     * 数据无效时返回 null。
+     */
+    public StateData parseState(String stateName, ConfigurationSection stateSection) {
+        UUID captain = parseUuid(stateSection.getString("captain"));
+        if (captain == null) {
+            plugin.getLogger().warning("Skipping state " + stateName + " in campinfo.yml due to invalid captain UUID.");
+            return null;
         }
 
-        ConfigurationSection statesSection = yaml.getConfigurationSection("states");
-        if (statesSection == null) {
-            return;
+        StateData data = new StateData(stateName, captain);
+        data.members.clear();
+        data.members.add(captain);
+        data.bankBalance = Math.max(0.0, stateSection.getDouble("bank", 0.0));
+        data.taxAmount = Math.max(0.0, stateSection.getDouble("tax",
+                plugin.config().settings().bank().taxAmount()));
+        data.ideologyId = trimToNull(stateSection.getString("ideology"));
+        data.ideologyChangedAt = stateSection.getLong("ideology-changed-at", 0L);
+        data.capitalSector = trimToNull(stateSection.getString("capital"));
+        data.lastActiveAt = stateSection.getLong("last-active", System.currentTimeMillis());
+
+        for (String memberRaw : stateSection.getStringList("members")) {
+            UUID memberId = parseUuid(memberRaw);
+            if (memberId != null) {
+                data.members.add(memberId);
+            }
         }
 
-        int logLimit = Math.max(1, plugin.getConfig().getInt("bank.log-size", 30));
-
-        for (String stateName : statesSection.getKeys(false)) {
-            ConfigurationSection stateSection = statesSection.getConfigurationSection(stateName);
-            if (stateSection == null) {
+        data.transactions.clear();
+        for (Map<?, ?> entry : stateSection.getMapList("transactions")) {
+            if (entry == null) {
                 continue;
             }
-
-            UUID captain = parseUuid(stateSection.getString("captain"));
-            if (captain == null) {
-                plugin.getLogger().warning("Skipping state " + stateName + " in campinfo.yml due to invalid captain UUID.");
-                continue;
+            String typeRaw = entry.get("type") instanceof String str ? str : null;
+            BankTransactionType type;
+            try {
+                type = typeRaw == null ? null : BankTransactionType.valueOf(typeRaw.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                type = null;
             }
-
-            StateData data = new StateData(stateName, captain);
-            data.members.clear();
-            data.members.add(captain);
-            data.bankBalance = Math.max(0.0, stateSection.getDouble("bank", 0.0));
-            data.taxAmount = Math.max(0.0, stateSection.getDouble("tax",
-                    plugin.getConfig().getDouble("bank.tax.amount", 0.0)));
-            data.ideologyId = trimToNull(stateSection.getString("ideology"));
-            data.ideologyChangedAt = stateSection.getLong("ideology-changed-at", 0L);
-            data.capitalSector = trimToNull(stateSection.getString("capital"));
-
-            for (String memberRaw : stateSection.getStringList("members")) {
-                UUID memberId = parseUuid(memberRaw);
-                if (memberId != null) {
-                    data.members.add(memberId);
-                }
+            if (type == null) {
+                continue;
             }
-
-            data.transactions.clear();
-            for (Map<?, ?> entry : stateSection.getMapList("transactions")) {
-                if (entry == null) {
-                    continue;
-                }
-                String typeRaw = entry.get("type") instanceof String str ? str : null;
-                BankTransactionType type;
-                try {
-                    type = typeRaw == null ? null : BankTransactionType.valueOf(typeRaw.toUpperCase(Locale.ROOT));
-                } catch (IllegalArgumentException ex) {
-                    type = null;
-                }
-                if (type == null) {
+            UUID actor = parseUuid(entry.get("actor") instanceof String s ? s : null);
+            double amount = entry.get("amount") instanceof Number num ? num.doubleValue() : 0.0;
+            double balance = entry.get("balance") instanceof Number num2 ? num2.doubleValue() : 0.0;
+            long timestamp = entry.get("timestamp") instanceof Number num3 ? num3.longValue() : System.currentTimeMillis();
+            data.transactions.addLast(BankTransaction.fromData(timestamp, type, actor, amount, balance));
+        }
+        // 旧版存档把流水保存在国家数据中，登记后由 loadLedger 转入流水文件
+
+        ConfigurationSection sectorsSection = stateSection.getConfigurationSection("sectors");
+        if (sectorsSection != null) {
+            for (String sectorName : sectorsSection.getKeys(false)) {
+                ConfigurationSection sectorSection = sectorsSection.getConfigurationSection(sectorName);
+                if (sectorSection == null) {
                     continue;
                 }
-                UUID actor = parseUuid(entry.get("actor") instanceof String s ? s : null);
-                double amount = entry.get("amount") instanceof Number num ? num.doubleValue() : 0.0;
-                double balance = entry.get("balance") instanceof Number num2 ? num2.doubleValue() : 0.0;
-                long timestamp = entry.get("timestamp") instanceof Number num3 ? num3.longValue() : System.currentTimeMillis();
-                data.transactions.addLast(BankTransaction.fromData(timestamp, type, actor, amount, balance));
-            }
-            while (data.transactions.size() > logLimit) {
-                data.transactions.removeLast();
+                String worldName = trimToNull(sectorSection.getString("world"));
+                int x = sectorSection.getInt("x", 0);
+                int y = sectorSection.getInt("y", 0);
+                int z = sectorSection.getInt("z", 0);
+                SectorPosition position = SectorPosition.of(worldName, x, y, z);
+                UUID owner = parseUuid(sectorSection.getString("owner"));
+                SectorData sectorData = new SectorData(sectorName, position, owner);
+                data.sectors.put(sectorName, sectorData);
             }
+        }
+        return data;
+    }
 
-            ConfigurationSection sectorsSection = stateSection.getConfigurationSection("sectors");
-            if (sectorsSection != null) {
-                for (String sectorName : sectorsSection.getKeys(false)) {
-                    ConfigurationSection sectorSection = sectorsSection.getConfigurationSection(sectorName);
-                    if (sectorSection == null) {
-                        continue;
-                    }
-                    String worldName = trimToNull(sectorSection.getString("world"));
-                    World world = worldName == null ? null : Bukkit.getWorld(worldName);
-                    int x = sectorSection.getInt("x", 0);
-                    int y = sectorSection.getInt("y", 0);
-                    int z = sectorSection.getInt("z", 0);
-                    Location location = world == null ? null : new Location(world, x, y, z);
-                    UUID owner = parseUuid(sectorSection.getString("owner"));
-                    SectorData sectorData = new SectorData(sectorName, location, owner);
-                    data.sectors.put(sectorName, sectorData);
-                }
-            }
+    /**
+     * 在主线程登记已解析的国家。同名国家已登记时返回 false。
+     */
+    public boolean registerLoadedState(StateData data) {
+        if (states.containsKey(data.name)) {
+            plugin.getLogger().warning("Skipping duplicate state " + data.name + " in saved data.");
+            return false;
+        }
+        states.put(data.name, data);
+        for (UUID memberId : data.members) {
+            assignPlayer(memberId, data.name);
+        }
+        refreshIdeologyPermissions(data);
+        return true;
+    }
 
-            states.put(stateName, data);
-            for (UUID memberId : data.members) {
-                playerState.put(memberId, stateName);
+    public void finishLoad() {
+        loadLedger(states.values());
+        rebuildSpatialIndex();
+    }
+
+    /**
+     * 把新登记国家的旧版流水转入流水文件，并以文件中最近的记录替换内存中的流水，对所有国家只等待账本线程一次。
+     */
+    public void loadLedger(Collection<StateData> loaded) {
+        Map<String, List<BankTransaction>> legacy = new HashMap<>();
+        for (StateData data : loaded) {
+            legacy.put(data.name, new ArrayList<>(data.transactions));
+        }
+        Map<String, List<BankTransaction>> recent = plugin.ledger().loadRecent(legacy,
+                plugin.config().settings().bank().logSize());
+        for (StateData data : loaded) {
+            List<BankTransaction> entries = recent.get(data.name);
+            if (entries != null) {
+                data.transactions.clear();
+                data.transactions.addAll(entries);
             }
-            refreshIdeologyPermissions(data);
         }
     }
 
@@ -3250,10 +3412,71 @@ public class StateManager {
     public String getStateName(Player p) { return playerState.get(p.getUniqueId()); }
     public StateData getState(String name) { return states.get(name); }
 
+    /**
+     * 国家当前在线的成员（含首领），返回的列表不可修改。
+     */
+    public List<Player> getOnlineMembers(String stateName) {
+        return onlineMembers.get(stateName);
+    }
+
+    public void handleJoin(Player player) {
+        onlineMembers.join(player, playerState.get(player.getUniqueId()));
+    }
+
+    public void handleQuit(Player player) {
+        onlineMembers.quit(player.getUniqueId());
+    }
+
+    // 玩家归属与在线成员索引一并更新
+    private void assignPlayer(UUID playerId, String stateName) {
+        playerState.put(playerId, stateName);
+        onlineMembers.assign(playerId, stateName);
+    }
+
+    private String unassignPlayer(UUID playerId) {
+        String previous = playerState.remove(playerId);
+        if (previous != null) {
+            onlineMembers.assign(playerId, null);
+        }
+        return previous;
+    }
+
     public Collection<StateData> getStates() {
         return Collections.unmodifiableCollection(states.values());
     }
 
+    // 快照
+    public Map<String, WorldSnapshot.StateView> snapshotStates() {
+        Map<String, WorldSnapshot.StateView> result = new HashMap<>();
+        for (StateData data : states.values()) {
+            result.put(data.name.toLowerCase(Locale.ROOT), snapshotState(data));
+        }
+        return result;
+    }
+
+    public WorldSnapshot.StateView snapshotState(StateData data) {
+        Map<String, WorldSnapshot.SectorView> sectors = new LinkedHashMap<>();
+        for (Map.Entry<String, SectorData> entry : data.sectors.entrySet()) {
+            SectorPosition position = entry.getValue().getPosition();
+            sectors.put(entry.getKey(), new WorldSnapshot.SectorView(entry.getKey(),
+                    position == null ? null : position.worldName(), position == null ? 0 : position.x(),
+                    position == null ? 0 : position.y(), position == null ? 0 : position.z(),
+                    entry.getValue().getOwner()));
+        }
+        Set<UUID> members = new HashSet<>(data.members);
+        members.remove(null);
+        return new WorldSnapshot.StateView(data.name, data.captain, members, data.capitalSector, data.ideologyId,
+                data.bankBalance, sectors);
+    }
+
+    public Map<UUID, String> snapshotPlayerStates() {
+        return new HashMap<>(playerState);
+    }
+
+    public String getStateName(UUID playerId) {
+        return playerId == null ? null : playerState.get(playerId);
+    }
+
     public int getNextAutoId() {
         return idCounter.get();
     }
@@ -3272,6 +3495,39 @@ public class StateManager {
         }
         return null;
     }
+
+    /**
+     * 按名称查找国家，用于玩家指定目标国家的操作。国家在冷存档中时在后台开始恢复，完成前返回 null；
+     * 冷存档国家的成员（含首领）都已长期离线，需要对方首领在线的操作本来也无法继续。
+     */
+    public StateData findOrRestoreState(String name) {
+        StateData data = findState(name);
+        if (data == null && plugin.cold() != null) {
+            plugin.cold().restore(name);
+        }
+        return data;
+    }
+
+    private boolean isColdState(String name) {
+        return plugin.cold() != null && plugin.cold().contains(name);
+    }
+
+    /**
+     * 把国家移出内存，供冷存档使用。成员映射一并移除，空间索引中的分区保留为足迹。
+     */
+    public void evictState(StateData data) {
+        if (states.remove(data.name) == null) {
+            return;
+        }
+        for (UUID memberId : data.members) {
+            if (playerState.remove(memberId, data.name)) {
+                onlineMembers.assign(memberId, null);
+            }
+        }
+        pendingInvites.values().removeIf(invite -> invite.state.equalsIgnoreCase(data.name));
+        pendingJoinRequests.values().removeIf(request -> request.state.equalsIgnoreCase(data.name));
+    }
+
     public Collection<StateData> all() { return states.values(); }
 
     public boolean isCaptain(Player player) {
@@ -3546,65 +3802,55 @@ public class StateManager {
         return new LinkedHashSet<>(data.sectors.keySet());
     }
 
-    public CampSectorInfo findCampByLocation(Location location) {
+    /**
+     * 距离给定位置最近的若干个分区（同一世界），按营地方块的水平距离升序。
+     */
+    public List<CampSpatialIndex.Nearby> findNearestSectors(Location location, int limit) {
         if (location == null || location.getWorld() == null) {
-            return null;
+            return List.of();
         }
+        return spatialIndex.nearest(location.getWorld().getName(), location.getX(), location.getZ(), limit, Double.MAX_VALUE);
+    }
 
-        for (StateData state : states.values()) {
-            for (SectorData sector : state.sectors.values()) {
-                Location stored = sector.getLocation();
-                if (stored == null || stored.getWorld() == null) {
-                    continue;
-                }
-                if (!stored.getWorld().getName().equals(location.getWorld().getName())) {
-                    continue;
-                }
-                if (stored.getBlockX() == location.getBlockX()
-                        && stored.getBlockY() == location.getBlockY()
-                        && stored.getBlockZ() == location.getBlockZ()) {
-                    return new CampSectorInfo(state.name, sector.getName());
-                }
-            }
+    public CampSectorInfo findCampByLocation(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return null;
         }
-        return null;
+        CampSpatialIndex.Entry entry = spatialIndex.findAnchor(location.getWorld().getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        return entry == null ? null : new CampSectorInfo(entry.state(), entry.sector());
     }
 
     public CampSectorInfo findCampInRadius(Location location, double radius) {
         if (location == null || location.getWorld() == null) {
             return null;
         }
-
         double fallback = Math.max(1.0, radius);
-        String worldName = location.getWorld().getName();
-
-        for (StateData state : states.values()) {
-            for (SectorData sector : state.sectors.values()) {
-                Location stored = sector.getLocation();
-                if (stored == null || stored.getWorld() == null) {
-                    continue;
-                }
-                if (!worldName.equals(stored.getWorld().getName())) {
-                    continue;
-                }
-                CampBoundary boundary = getSectorBoundary(state.name, sector.getName());
-                if (boundary == null) {
-                    continue;
-                }
-                CampBoundary effective = new CampBoundary(
-                        Math.max(boundary.west(), fallback),
-                        Math.max(boundary.east(), fallback),
-                        Math.max(boundary.north(), fallback),
-                        Math.max(boundary.south(), fallback)
-                );
-                if (isWithinBoundary(location, stored, effective, 0.0)) {
-                    return new CampSectorInfo(state.name, sector.getName());
-                }
-            }
-        }
-        return null;
+        CampSpatialIndex.Entry entry = spatialIndex.findContaining(location.getWorld().getName(),
+                location.getX(), location.getZ(), fallback);
+        return entry == null ? null : new CampSectorInfo(entry.state(), entry.sector());
     }
 
+    /**
+     * 按方块列查询领地归属；半径与索引最小半径一致时直接读取区块栅格表。
+     */
+    public CampSectorInfo findCampClaim(Location location, double radius) {
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        CampSpatialIndex.Entry entry = findClaimEntry(location.getWorld().getName(),
+                location.getBlockX(), location.getBlockZ(), radius);
+        return entry == null ? null : new CampSectorInfo(entry.state(), entry.sector());
+    }
+
+    public CampSpatialIndex.Entry findClaimEntry(String world, int x, int z, double radius) {
+        double fallback = Math.max(1.0, radius);
+        if (fallback == spatialIndex.getMinExtent()) {
+            return spatialIndex.findOwner(world, x, z);
+        }
+        return spatialIndex.findContaining(world, x, z, fallback);
+    }
+
     public CampSectorInfo findCampNearColumn(Location location, int horizontalRadius, int minYOffset, int maxYOffset) {
         if (location == null || location.getWorld() == null) {
             return null;
@@ -3612,31 +3858,61 @@ public class StateManager {
         int radius = Math.max(0, horizontalRadius);
         int min = Math.min(minYOffset, maxYOffset);
         int max = Math.max(minYOffset, maxYOffset);
-        String world = location.getWorld().getName();
+        CampSpatialIndex.Entry entry = spatialIndex.findNearColumn(location.getWorld().getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ(), radius, min, max);
+        return entry == null ? null : new CampSectorInfo(entry.state(), entry.sector());
+    }
 
-        for (StateData state : states.values()) {
-            for (SectorData sector : state.sectors.values()) {
-                Location center = sector.getLocation();
-                if (center == null || center.getWorld() == null) {
-                    continue;
-                }
-                if (!world.equals(center.getWorld().getName())) {
-                    continue;
-                }
-                int dx = Math.abs(center.getBlockX() - location.getBlockX());
-                int dz = Math.abs(center.getBlockZ() - location.getBlockZ());
-                int dy = location.getBlockY() - center.getBlockY();
-                if (dx <= radius && dz <= radius && dy >= min && dy <= max) {
-                    return new CampSectorInfo(state.name, sector.getName());
-                }
-            }
+    public CampSpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * 按当前位置与边界重新登记某个分区；分区不存在或没有位置时移出索引。
+     */
+    public void reindexSector(String stateName, String sectorName) {
+        StateData data = stateName == null ? null : findState(stateName);
+        String resolved = data == null ? null : resolveSectorName(data, sectorName);
+        SectorData sector = resolved == null ? null : data.sectors.get(resolved);
+        if (sector == null) {
+            spatialIndex.remove(stateName, sectorName);
+            return;
         }
-        return null;
+        indexSector(data.name, sector, resolved, getSectorBoundary(data.name, resolved));
+    }
+
+    private void reindexState(StateData data) {
+        if (data == null) {
+            return;
+        }
+        for (Map.Entry<String, SectorData> entry : data.sectors.entrySet()) {
+            indexSector(data.name, entry.getValue(), entry.getKey(), getSectorBoundary(data.name, entry.getKey()));
+        }
+    }
+
+    private void indexSector(String stateName, SectorData sector, String sectorName, CampBoundary boundary) {
+        SectorPosition position = sector == null ? null : sector.getPosition();
+        if (position == null) {
+            spatialIndex.remove(stateName, sectorName);
+            return;
+        }
+        spatialIndex.put(stateName, sectorName, position.worldName(), position.x(), position.y(), position.z(), boundary);
+    }
+
+    public void rebuildSpatialIndex() {
+        spatialIndex.clear();
+        spatialIndex.setMinExtent(plugin.config().settings().camp().radius());
+        for (StateData data : states.values()) {
+            reindexState(data);
+        }
+        if (plugin.cold() != null) {
+            plugin.cold().indexFootprints(spatialIndex);
+        }
     }
 
     public CampBoundary getSectorBoundary(String stateName, String sectorName) {
         Camp camp = plugin.war().getCamp(stateName, sectorName);
-        double baseRadius = Math.max(1.0, plugin.getConfig().getDouble("camp.radius", 16.0));
+        double baseRadius = plugin.config().settings().camp().radius();
         if (camp == null) {
             return new CampBoundary(baseRadius);
         }
@@ -3647,111 +3923,46 @@ public class StateManager {
         return boundary.copy();
     }
 
-    public void recalculateCampBoundary(Camp camp, double baseRadius, double bonusRadius) {
-        if (camp == null) {
-            return;
-        }
-        Location center = getSectorLocation(camp.getStateName(), camp.getSectorName());
-        if (center == null || center.getWorld() == null) {
-            camp.setBoundary(new CampBoundary(baseRadius));
-            return;
-        }
-        double base = Math.max(1.0, baseRadius);
-        double bonus = Math.max(0.0, bonusRadius);
-        double desiredWest = base + bonus;
-        double desiredEast = base + bonus;
-        double desiredNorth = base + bonus;
-        double desiredSouth = base + bonus;
-        double gap = Math.max(0.0, plugin.getConfig().getDouble("sectors.inter-state-gap", 10.0));
-
-        for (Camp other : plugin.war().getCamps()) {
-            if (other == null || camp == other) {
-                continue;
-            }
-            Location otherCenter = getSectorLocation(other.getStateName(), other.getSectorName());
-            if (otherCenter == null || otherCenter.getWorld() == null) {
-                continue;
-            }
-            if (!center.getWorld().getName().equals(otherCenter.getWorld().getName())) {
-                continue;
-            }
-            CampBoundary otherBoundary = other.getBoundary();
-            if (otherBoundary == null) {
-                otherBoundary = new CampBoundary(base);
-            }
-            double requiredGap = camp.getStateName().equalsIgnoreCase(other.getStateName()) ? 0.0 : gap;
-            double obMinX = otherCenter.getX() - otherBoundary.west();
-            double obMaxX = otherCenter.getX() + otherBoundary.east();
-            double obMinZ = otherCenter.getZ() - otherBoundary.north();
-            double obMaxZ = otherCenter.getZ() + otherBoundary.south();
-
-            double ourMinZ = center.getZ() - desiredNorth;
-            double ourMaxZ = center.getZ() + desiredSouth;
-            double ourMinX = center.getX() - desiredWest;
-            double ourMaxX = center.getX() + desiredEast;
-
-            if (rangesOverlap(ourMinZ, ourMaxZ, obMinZ - requiredGap, obMaxZ + requiredGap)) {
-                if (otherCenter.getX() >= center.getX()) {
-                    double limit = (obMinX - requiredGap) - center.getX();
-                    desiredEast = Math.min(desiredEast, Math.max(base, limit));
-                }
-                if (otherCenter.getX() <= center.getX()) {
-                    double limit = center.getX() - (obMaxX + requiredGap);
-                    desiredWest = Math.min(desiredWest, Math.max(base, limit));
-                }
-            }
-
-            if (rangesOverlap(ourMinX, ourMaxX, obMinX - requiredGap, obMaxX + requiredGap)) {
-                if (otherCenter.getZ() >= center.getZ()) {
-                    double limit = (obMinZ - requiredGap) - center.getZ();
-                    desiredSouth = Math.min(desiredSouth, Math.max(base, limit));
-                }
-                if (otherCenter.getZ() <= center.getZ()) {
-                    double limit = center.getZ() - (obMaxZ + requiredGap);
-                    desiredNorth = Math.min(desiredNorth, Math.max(base, limit));
-                }
-            }
-        }
-
-        camp.setBoundary(new CampBoundary(desiredWest, desiredEast, desiredNorth, desiredSouth));
-    }
-
-    private boolean rangesOverlap(double minA, double maxA, double minB, double maxB) {
-        return maxA >= minB && maxB >= minA;
-    }
-
-    private boolean isWithinBoundary(Location point, Location center, CampBoundary boundary, double buffer) {
-        double minX = center.getX() - boundary.west() - buffer;
-        double maxX = center.getX() + boundary.east() + buffer;
-        double minZ = center.getZ() - boundary.north() - buffer;
-        double maxZ = center.getZ() + boundary.south() + buffer;
-        return point.getX() >= minX && point.getX() <= maxX && point.getZ() >= minZ && point.getZ() <= maxZ;
-    }
-
-    private boolean boundariesIntersect(Location aCenter, CampBoundary a, Location bCenter, CampBoundary b) {
+    public void recalculateCampBoundary(Camp camp, double baseRadius, double bonusRadius) {
+        boundarySolver.solve(camp, baseRadius, bonusRadius);
+    }
+
+    /**
+     * 批量重算营地边界后重建空间索引，用于载入与重载配置。
+     */
+    public void rebuildCampBoundaries(List<Camp> ordered, boolean priorOnly) {
+        boundarySolver.rebuild(ordered, priorOnly);
+        rebuildSpatialIndex();
+    }
+
+    public void releaseCampBoundary(CampSpatialIndex.Entry entry) {
+        boundarySolver.release(entry);
+    }
+
+    private boolean boundariesIntersect(Location aCenter, CampBoundary a, SectorPosition bCenter, CampBoundary b) {
         double aMinX = aCenter.getX() - a.west();
         double aMaxX = aCenter.getX() + a.east();
         double aMinZ = aCenter.getZ() - a.north();
         double aMaxZ = aCenter.getZ() + a.south();
 
-        double bMinX = bCenter.getX() - b.west();
-        double bMaxX = bCenter.getX() + b.east();
-        double bMinZ = bCenter.getZ() - b.north();
-        double bMaxZ = bCenter.getZ() + b.south();
+        double bMinX = bCenter.x() - b.west();
+        double bMaxX = bCenter.x() + b.east();
+        double bMinZ = bCenter.z() - b.north();
+        double bMaxZ = bCenter.z() + b.south();
 
         return aMinX < bMaxX && aMaxX > bMinX && aMinZ < bMaxZ && aMaxZ > bMinZ;
     }
 
-    private double boundarySeparation(Location aCenter, CampBoundary a, Location bCenter, CampBoundary b) {
+    private double boundarySeparation(Location aCenter, CampBoundary a, SectorPosition bCenter, CampBoundary b) {
         double aMinX = aCenter.getX() - a.west();
         double aMaxX = aCenter.getX() + a.east();
         double aMinZ = aCenter.getZ() - a.north();
         double aMaxZ = aCenter.getZ() + a.south();
 
-        double bMinX = bCenter.getX() - b.west();
-        double bMaxX = bCenter.getX() + b.east();
-        double bMinZ = bCenter.getZ() - b.north();
-        double bMaxZ = bCenter.getZ() + b.south();
+        double bMinX = bCenter.x() - b.west();
+        double bMaxX = bCenter.x() + b.east();
+        double bMinZ = bCenter.z() - b.north();
+        double bMaxZ = bCenter.z() + b.south();
 
         double gapX = Math.max(0.0, Math.max(bMinX - aMaxX, aMinX - bMaxX));
         double gapZ = Math.max(0.0, Math.max(bMinZ - aMaxZ, aMinZ - bMaxZ));
@@ -3806,9 +4017,9 @@ public class StateManager {
             }
         }
 
-        double baseRadius = Math.max(1.0, plugin.getConfig().getDouble("camp.radius", 16.0));
+        double baseRadius = plugin.config().settings().camp().radius();
         CampBoundary pendingBoundary = new CampBoundary(baseRadius);
-        double extraGap = Math.max(0.0, plugin.getConfig().getDouble("sectors.inter-state-gap", 10.0));
+        double extraGap = plugin.config().settings().sectors().interStateGap();
         String gapDisplay;
         if (Math.abs(extraGap - Math.rint(extraGap)) < 1e-9) {
             gapDisplay = String.valueOf((long) Math.round(extraGap));
@@ -3816,43 +4027,43 @@ public class StateManager {
             gapDisplay = String.format(Locale.ROOT, "%.2f", extraGap);
         }
 
-        String worldName = location.getWorld().getName();
-        for (StateData state : states.values()) {
-            for (SectorData sector : state.sectors.values()) {
-                Location stored = sector.getLocation();
-                if (stored == null || stored.getWorld() == null) {
-                    continue;
-                }
-                if (!worldName.equals(stored.getWorld().getName())) {
-                    continue;
-                }
-                CampBoundary boundary = getSectorBoundary(state.name, sector.getName());
-                boolean sameState = pending.getState().equals(state.name);
-                if (sameState && sector.getName().equalsIgnoreCase(pending.getSector())) {
-                    continue;
-                }
+        // 只有登记矩形与“待放置边界 + 间隔”相交的分区才可能重叠或距离过近
+        double reach = baseRadius + extraGap;
+        Collection<CampSpatialIndex.Entry> candidates = spatialIndex.queryRect(location.getWorld().getName(),
+                location.getX() - reach, location.getZ() - reach, location.getX() + reach, location.getZ() + reach);
+        for (CampSpatialIndex.Entry entry : candidates) {
+            StateData state = states.get(entry.state());
+            SectorData sector = state == null ? null : state.sectors.get(entry.sector());
+            SectorPosition stored = sector == null ? null : sector.getPosition();
+            if (stored == null) {
+                continue;
+            }
+            CampBoundary boundary = getSectorBoundary(state.name, sector.getName());
+            boolean sameState = pending.getState().equals(state.name);
+            if (sameState && sector.getName().equalsIgnoreCase(pending.getSector())) {
+                continue;
+            }
 
-                if (boundariesIntersect(location, pendingBoundary, stored, boundary)) {
-                    if (sameState) {
-                        return PlacementValidationResult.denied("state.sector-overlap-own", Map.of(
-                                "sector", sector.getName()
-                        ));
-                    }
-                    return PlacementValidationResult.denied("state.sector-overlap-other", Map.of(
-                            "state", state.name,
+            if (boundariesIntersect(location, pendingBoundary, stored, boundary)) {
+                if (sameState) {
+                    return PlacementValidationResult.denied("state.sector-overlap-own", Map.of(
                             "sector", sector.getName()
                     ));
                 }
+                return PlacementValidationResult.denied("state.sector-overlap-other", Map.of(
+                        "state", state.name,
+                        "sector", sector.getName()
+                ));
+            }
 
-                double requiredGap = sameState ? 0.0 : extraGap;
-                double separation = boundarySeparation(location, pendingBoundary, stored, boundary);
-                if (!sameState && separation < requiredGap) {
-                    return PlacementValidationResult.denied("state.sector-gap-enemy", Map.of(
-                            "state", state.name,
-                            "sector", sector.getName(),
-                            "gap", gapDisplay
-                    ));
-                }
+            double requiredGap = sameState ? 0.0 : extraGap;
+            double separation = boundarySeparation(location, pendingBoundary, stored, boundary);
+            if (!sameState && separation < requiredGap) {
+                return PlacementValidationResult.denied("state.sector-gap-enemy", Map.of(
+                        "state", state.name,
+                        "sector", sector.getName(),
+                        "gap", gapDisplay
+                ));
             }
         }
 
@@ -3902,6 +4113,7 @@ public class StateManager {
         } else {
             plugin.war().registerCamp(state.name, data.getSector());
         }
+        reindexSector(state.name, data.getSector());
 
         if (plugin.holograms() != null) {
             Location holoLocation = data.getPlacedLocation() == null ? null : data.getPlacedLocation().clone();
@@ -3942,7 +4154,7 @@ public class StateManager {
         if (plugin.protection() != null && player != null) {
             plugin.protection().showBoundary(player, state.name, data.getSector());
         }
-        markDirty();
+        markDirty(state);
     }
 
     public String resolveSectorName(String state, String sector) {
@@ -4845,11 +5057,15 @@ public class StateManager {
         public Deque<BankTransaction> transactions = new ArrayDeque<>();
         public String ideologyId;
         public long ideologyChangedAt;
+        // 最近一次有成员在线的时间，精确到天，用于判断是否转入冷存档
+        public long lastActiveAt;
+        public boolean dirty;
 
         public StateData(String name, UUID captain) {
             this.name = name;
             this.captain = captain;
             this.members.add(captain);
+            this.lastActiveAt = System.currentTimeMillis();
         }
     }
 
@@ -5069,12 +5285,16 @@ public class StateManager {
 
     public static class SectorData {
         private final String name;
-        private Location location;
+        private SectorPosition position;
         private UUID owner;
 
         public SectorData(String name, Location location, UUID owner) {
+            this(name, SectorPosition.of(location), owner);
+        }
+
+        public SectorData(String name, SectorPosition position, UUID owner) {
             this.name = name;
-            setLocation(location);
+            this.position = position;
             this.owner = owner;
         }
 
@@ -5082,12 +5302,23 @@ public class StateManager {
             return name;
         }
 
+        public SectorPosition getPosition() {
+            return position;
+        }
+
+        public void setPosition(SectorPosition position) {
+            this.position = position;
+        }
+
+        /**
+         * 所在世界未加载时返回 null。
+         */
         public Location getLocation() {
-            return location == null ? null : location.clone();
+            return position == null ? null : position.toLocation();
         }
 
         public void setLocation(Location location) {
-            this.location = location == null ? null : location.clone();
+            this.position = SectorPosition.of(location);
         }
 
         public UUID getOwner() {
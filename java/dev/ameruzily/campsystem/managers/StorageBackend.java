@@ -0,0 +1,133 @@
+package dev.ameruzily.campsystem.managers;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 政权存档的存储后端。加载结果与保存输入都使用 campinfo.yml 的树结构（meta / states.<国家>），
+ * 各管理器的加载逻辑因此与具体存储方式无关。save 在主线程调用，实际写入由后端在后台完成。
+ */
+public interface StorageBackend {
+
+    String getName();
+
+    /**
+     * 读取全部数据，阻塞直到完成。
+     */
+    YamlConfiguration load() throws IOException;
+
+    /**
+     * 按段读取存档，供启动时在多个线程中并行解析。默认整体读取后按国家切分。
+     */
+    default LoadPlan plan() throws IOException {
+        return LoadPlan.of(load());
+    }
+
+    /**
+     * 上次 load 后存档是否需要整体重写（旧版存档拆分、格式转换等）。
+     */
+    boolean needsRewrite();
+
+    /**
+     * 该国家是否已存在于存档中。不存在的国家总是整体写入。
+     */
+    boolean contains(String stateName);
+
+    /**
+     * 是否支持只写入变化的营地；不支持时，营地变化会让所在国家整体重写。
+     */
+    boolean supportsPartialUpdates();
+
+    /**
+     * 提交一批保存。返回的 Future 在本批全部写入后完成，任一写入失败时为 false。
+     */
+    CompletableFuture<Boolean> save(SaveBatch batch);
+
+    /**
+     * 把所有国家导出为 YAML 到指定目录，返回导出的文件数。
+     */
+    int exportYaml(File folder) throws IOException;
+
+    /**
+     * 等待已提交的写入全部完成。
+     */
+    void flush();
+
+    void close();
+
+    /**
+     * state 为整个国家的节点，为 null 时只有 camps 中的营地（分区名 -> camp 节点）有变化。
+     * rewrite 为 true 时 state 含全部营地，整国重写；为 false 时 state 不含营地，只写入与已存数据不同的部分，
+     * 营地仍只看 camps，其中值为 null 的分区表示没有营地。
+     */
+    record StateChange(String name, ConfigurationSection state, Map<String, ConfigurationSection> camps, boolean rewrite) {
+        public StateChange(String name, ConfigurationSection state, Map<String, ConfigurationSection> camps) {
+            this(name, state, camps, state != null);
+        }
+    }
+
+    /**
+     * liveStates 为当前存在的全部国家，不在其中的已存档国家会被删除。
+     */
+    record SaveBatch(int nextAutoId, List<StateChange> changes, Set<String> liveStates) {
+    }
+
+    /**
+     * 存档中可独立读取的一段，可在任意线程调用，返回其中的国家名 -> 国家节点。
+     */
+    @FunctionalInterface
+    interface Chunk {
+        Map<String, ConfigurationSection> read() throws IOException;
+    }
+
+    /**
+     * 分段读取计划。各段之间没有重复的国家，可以任意顺序并行读取。
+     */
+    record LoadPlan(int nextAutoId, List<Chunk> chunks) {
+
+        public static LoadPlan of(YamlConfiguration yaml) {
+            List<Chunk> chunks = new ArrayList<>();
+            ConfigurationSection states = yaml.getConfigurationSection("states");
+            if (states != null) {
+                for (String name : states.getKeys(false)) {
+                    ConfigurationSection state = states.getConfigurationSection(name);
+                    if (state != null) {
+                        chunks.add(() -> Map.of(name, state));
+                    }
+                }
+            }
+            return new LoadPlan(yaml.getInt("meta.next-auto-id", 1), chunks);
+        }
+
+        /**
+         * 读取全部分段并组装回 campinfo.yml 的树结构。
+         */
+        public YamlConfiguration toYaml() throws IOException {
+            List<Map<String, ConfigurationSection>> parts;
+            try {
+                parts = chunks.parallelStream().map(chunk -> {
+                    try {
+                        return chunk.read();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }).toList();
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.set("meta.next-auto-id", nextAutoId);
+            ConfigurationSection states = yaml.createSection("states");
+            for (Map<String, ConfigurationSection> part : parts) {
+                part.forEach(states::set);
+            }
+            return yaml;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package dev.ameruzily.campsystem.managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 存档各阶段的耗时统计。每个阶段保留最近 WINDOW 次的样本，按需计算分位数，供 /goc admin stats 查看。
+ * 记录来自主线程与各写入线程，使用同一把锁；每次记录只是一次数组写入。
+ */
+public class StorageTimers {
+    private static final int WINDOW = 1024;
+
+    public enum Stage {
+        SNAPSHOT("snapshot"),
+        SERIALIZE("serialize"),
+        WRITE("write"),
+        LOAD("load"),
+        APPLY("apply");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * 单个阶段的统计，时间单位为毫秒，分位数基于最近 WINDOW 次样本。
+     */
+    public record Summary(Stage stage, long count, double meanMs, double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+    }
+
+    private final long[][] samples = new long[Stage.values().length][WINDOW];
+    private final long[] counts = new long[Stage.values().length];
+
+    public void since(Stage stage, long startNanos) {
+        record(stage, System.nanoTime() - startNanos);
+    }
+
+    public synchronized void record(Stage stage, long nanos) {
+        int index = stage.ordinal();
+        samples[index][(int) (counts[index] % WINDOW)] = nanos;
+        counts[index]++;
+    }
+
+    public synchronized List<Summary> summaries() {
+        List<Summary> result = new ArrayList<>();
+        for (Stage stage : Stage.values()) {
+            long count = counts[stage.ordinal()];
+            if (count == 0L) {
+                continue;
+            }
+            long[] window = Arrays.copyOf(samples[stage.ordinal()], (int) Math.min(count, WINDOW));
+            Arrays.sort(window);
+            long total = 0L;
+            for (long value : window) {
+                total += value;
+            }
+            result.add(new Summary(stage, count, toMs(total / window.length), toMs(percentile(window, 0.50)),
+                    toMs(percentile(window, 0.95)), toMs(percentile(window, 0.99)), toMs(window[window.length - 1])));
+        }
+        return result;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0L);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double toMs(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -2,9 +2,13 @@ package dev.ameruzily.campsystem.managers;
 
 import dev.ameruzily.campsystem.CampSystem;
 import dev.ameruzily.campsystem.integrations.RealisticSeasonsHook;
-import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.CampBoundary;
+import dev.ameruzily.campsystem.models.SectorPosition;
+import dev.ameruzily.campsystem.models.Settings;
 import dev.ameruzily.campsystem.models.SoundSettings;
-import dev.ameruzily.campsystem.models.WarData;
+import dev.ameruzily.campsystem.models.WarData;
+import dev.ameruzily.campsystem.models.WorldSnapshot;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -30,7 +34,7 @@ public class WarManager {
     );
 
     private final Map<String, Camp> camps = new HashMap<>();
-    private final Map<String, WarData> wars = new HashMap<>(); // key: a:b
+    private final WarRegistry wars = new WarRegistry();
     private final Map<String, Long> lastWarCommand = new HashMap<>();
     private final Map<String, Long> lastCondemnCommand = new HashMap<>();
     private final Map<String, Long> lastMoveCommand = new HashMap<>();
@@ -40,8 +44,8 @@ public class WarManager {
     private final Map<String, String> capitalHoldAttackers = new HashMap<>();
     private final Map<String, PendingCivilWar> pendingCivilWars = new HashMap<>();
     private final Map<String, BukkitTask> raiderTasks = new HashMap<>();
+    private final CampMaintenanceQueue maintenanceQueue = new CampMaintenanceQueue();
     private BukkitTask maintenanceTask;
-    private BukkitTask autoHealTask;
 
     private final Map<CampUpgradeType, UpgradeTree> upgradeTrees = new EnumMap<>(CampUpgradeType.class);
     private final Map<String, ModuleDefinition> moduleDefinitions = new LinkedHashMap<>();
@@ -56,6 +60,7 @@ public class WarManager {
     private long baseProductionIntervalMs;
     private double productionMoney;
     private Map<StateManager.ItemDescriptor, Integer> productionItems = new HashMap<>();
+    private Map<String, Integer> productionItemRates = Map.of();
     private double baseStoredMoneyCap;
     private int baseStoredItemCap;
 
@@ -65,7 +70,6 @@ public class WarManager {
         reloadUpgradeSettings();
         loadModuleSettings();
         loadProductionSettings();
-        startAutoHealTask();
         startMaintenanceTask();
     }
 
@@ -74,11 +78,10 @@ public class WarManager {
         loadModuleSettings();
         loadProductionSettings();
         reapplyUpgrades();
-        startAutoHealTask();
         startMaintenanceTask();
     }
 
-    private String warKey(String a, String b) { return a.compareTo(b) < 0 ? a + ":" + b : b + ":" + a; }
+    private String warKey(String a, String b) { return WarRegistry.key(a, b); }
     private String campKey(String state, String sector) { return state.toLowerCase() + "|" + sector.toLowerCase(); }
 
     public void markDirty() {
@@ -88,6 +91,44 @@ public class WarManager {
         }
     }
 
+    /**
+     * 只标记营地所属国家需要保存，用于营地自身数值的变化。
+     */
+    public void markDirty(Camp camp) {
+        if (camp == null) {
+            markDirty();
+            return;
+        }
+        camp.markDirty();
+        markSnapshot(camp);
+        scheduleMaintenance(camp);
+        requestSave();
+    }
+
+    private void markSnapshot(Camp camp) {
+        if (plugin.snapshots() != null) {
+            plugin.snapshots().markCamp(camp.getStateName(), camp.getSectorName());
+        }
+    }
+
+    private void requestSave() {
+        CampInfoManager info = plugin.campInfo();
+        if (info != null) {
+            info.requestSave();
+        }
+    }
+
+    /**
+     * 重放变更日志中的营地血量。
+     */
+    public void replayCampHp(String state, String sector, double hp) {
+        Camp camp = camps.get(campKey(state, sector));
+        if (camp != null) {
+            camp.setHp(hp);
+            markDirty(camp);
+        }
+    }
+
     private void updateDynmap(Camp camp) { }
 
     public Collection<WarData> getActiveWars() { return wars.values(); }
@@ -105,39 +146,16 @@ public class WarManager {
         return states;
     }
 
-    private Set<UUID> collectOnlineMembers(String stateName) {
-        if (stateName == null) {
-            return Collections.emptySet();
-        }
-        StateManager.StateData data = plugin.state().getState(stateName);
-        if (data == null) {
-            return Collections.emptySet();
-        }
-        Set<UUID> ids = new HashSet<>(data.members);
-        if (data.captain != null) {
-            ids.add(data.captain);
-        }
-        ids.removeIf(id -> Bukkit.getPlayer(id) == null);
-        return ids;
-    }
-
     private void sendStateMessage(String stateName, String path, Map<String, String> vars) {
-        for (UUID id : collectOnlineMembers(stateName)) {
-            Player online = Bukkit.getPlayer(id);
-            if (online != null) {
-                plugin.lang().send(online, path, vars);
-            }
-        }
+        plugin.lang().send(plugin.state().getOnlineMembers(stateName), path, vars);
     }
 
     private void sendStateActionBar(String stateName, String path, Map<String, String> vars, SoundSettings sound) {
-        for (UUID id : collectOnlineMembers(stateName)) {
-            Player online = Bukkit.getPlayer(id);
-            if (online != null) {
-                plugin.lang().sendActionBar(online, path, vars);
-                if (sound != null) {
-                    sound.play(online);
-                }
+        List<Player> online = plugin.state().getOnlineMembers(stateName);
+        plugin.lang().sendActionBar(online, path, vars);
+        if (sound != null) {
+            for (Player player : online) {
+                sound.play(player);
             }
         }
     }
@@ -171,30 +189,23 @@ public class WarManager {
     }
 
     private long getWarCooldownMs() {
-        long declareSeconds = plugin.config().getLong("war.cooldowns.declare-seconds", -1L);
-        if (declareSeconds < 0L) {
-            long minutes = plugin.config().getLong("war.cooldown-minutes", 60L);
-            declareSeconds = Math.max(0L, minutes * 60L);
-        }
-        return clampToMillis(declareSeconds);
+        return plugin.config().settings().war().declareCooldownMs();
     }
 
     private long getCondemnCooldownMs() {
-        long seconds = plugin.config().getLong("war.cooldowns.condemn-seconds", 600L);
-        return clampToMillis(seconds);
+        return plugin.config().settings().war().condemnCooldownMs();
     }
 
     private long getMoveCooldownMs() {
-        long seconds = plugin.config().getLong("war.cooldowns.movecapital-seconds", 1800L);
-        return clampToMillis(seconds);
+        return plugin.config().settings().war().moveCooldownMs();
     }
 
     private int getMinimumWarMembers() {
-        return Math.max(0, plugin.config().getInt("war.requirements.minimum-members", 0));
+        return plugin.config().settings().war().minimumMembers();
     }
 
     private int getMinimumWarSectors() {
-        return Math.max(0, plugin.config().getInt("war.requirements.minimum-sectors", 0));
+        return plugin.config().settings().war().minimumSectors();
     }
 
     public int getRequiredMembersForWar() {
@@ -206,14 +217,14 @@ public class WarManager {
     }
 
     private long getCondemnDelayMs() {
-        long seconds = plugin.config().getLong("war.condemn-delay-seconds", 604800L);
-        return clampToMillis(seconds);
+        return plugin.config().settings().war().condemnDelayMs();
     }
 
     private void reloadUpgradeSettings() {
-        this.baseMaxHp = plugin.config().getDouble("camp.max-hp", 100.0);
-        this.baseMaxFuel = Math.max(0, plugin.config().getInt("camp.fuel.max", 25));
-        this.baseHealRate = Math.max(0.0, plugin.config().getDouble("camp.heal-rate", 0.5));
+        Settings.CampSettings settings = plugin.config().settings().camp();
+        this.baseMaxHp = settings.maxHp();
+        this.baseMaxFuel = settings.fuel().max();
+        this.baseHealRate = settings.healRate();
         this.baseFatigueAmplifier = Math.max(0, plugin.getConfig().getInt("protection.mining-fatigue.amplifier", 1));
 
         upgradeTrees.clear();
@@ -233,6 +244,11 @@ public class WarManager {
         this.baseStoredMoneyCap = Math.max(0.0, plugin.getConfig().getDouble("camp.production.storage.money", 0.0));
         this.baseStoredItemCap = Math.max(0, plugin.getConfig().getInt("camp.production.storage.items", 0));
         this.productionItems = plugin.state().loadItemRequirements("camp.production.items");
+        Map<String, Integer> rates = new LinkedHashMap<>();
+        for (Map.Entry<StateManager.ItemDescriptor, Integer> entry : productionItems.entrySet()) {
+            rates.merge(entry.getKey().getIdentity(), entry.getValue(), Integer::sum);
+        }
+        this.productionItemRates = Collections.unmodifiableMap(rates);
     }
 
     private UpgradeTree loadUpgradeTree(CampUpgradeType type) {
@@ -305,9 +321,12 @@ public class WarManager {
     }
 
     private void reapplyUpgrades() {
-        for (Camp camp : camps.values()) {
-            applyCampUpgrades(camp);
+        List<Camp> ordered = new ArrayList<>(camps.values());
+        for (Camp camp : ordered) {
+            applyCampUpgrades(camp, false);
+            applyResourceRates(camp);
         }
+        plugin.state().rebuildCampBoundaries(ordered, false);
     }
 
     private long getSurrenderTimeoutMs() {
@@ -316,44 +335,24 @@ public class WarManager {
     }
 
     private long getMaintenanceIntervalMs(boolean capital) {
-        String basePath = capital ? "camp.maintenance.capital.interval-seconds" : "camp.maintenance.regular.interval-seconds";
-        long seconds = plugin.config().getLong(basePath, -1L);
-        if (seconds <= 0L) {
-            seconds = plugin.config().getLong("camp.maintenance.interval-seconds", 86400L);
-        }
-        if (seconds <= 0L) {
-            return -1L;
-        }
-        return seconds * 1000L;
+        Settings.Maintenance maintenance = plugin.config().settings().camp().maintenance();
+        return capital ? maintenance.capitalIntervalMs() : maintenance.regularIntervalMs();
     }
 
     private long getMaintenanceWarningMs() {
-        long seconds = plugin.config().getLong("camp.maintenance.warning-seconds", 3600L);
-        if (seconds <= 0L) {
-            return 0L;
-        }
-        return seconds * 1000L;
+        return plugin.config().settings().camp().maintenance().warningMs();
     }
 
     private long getMaintenanceDecayIntervalMs() {
-        long seconds = plugin.config().getLong("camp.maintenance.decay-interval-seconds", 600L);
-        if (seconds <= 0L) {
-            return 1000L;
-        }
-        return seconds * 1000L;
+        return plugin.config().settings().camp().maintenance().decayIntervalMs();
     }
 
     private double getMaintenanceDecayAmount() {
-        double amount = plugin.config().getDouble("camp.maintenance.decay-amount", 0.0);
-        return Math.max(0.0, amount);
+        return plugin.config().settings().camp().maintenance().decayAmount();
     }
 
     private long getMaintenanceCheckIntervalTicks() {
-        long ticks = plugin.config().getLong("camp.fuel.check-interval-ticks", 600L);
-        if (ticks < 20L) {
-            ticks = 20L;
-        }
-        return ticks;
+        return plugin.config().settings().camp().fuel().checkIntervalTicks();
     }
 
     private int getMaxFuel() {
@@ -365,12 +364,11 @@ public class WarManager {
     }
 
     private long getFuelIntervalMs() {
-        long seconds = plugin.getConfig().getLong("camp.fuel.interval-seconds", 3600L);
-        return seconds <= 0 ? -1L : seconds * 1000L;
+        return plugin.config().settings().camp().fuel().intervalMs();
     }
 
     private int getFuelDrainAmount() {
-        return Math.max(0, plugin.getConfig().getInt("camp.fuel.drain-amount", 1));
+        return plugin.config().settings().camp().fuel().drainAmount();
     }
 
     private long remaining(Map<String, Long> map, String key, long cooldownMs) {
@@ -387,6 +385,10 @@ public class WarManager {
         return Math.max(0L, remaining);
     }
 
+    private String renamedFrom(String state, String oldName, String newName) {
+        return state.equalsIgnoreCase(newName) ? oldName : state;
+    }
+
     private <T> void moveKey(Map<String, T> map, String oldKey, String newKey) {
         if (oldKey == null || newKey == null || oldKey.equals(newKey)) {
             return;
@@ -559,8 +561,7 @@ public class WarManager {
 
         String attackerName = attackerData.name;
         String defenderName = defenderData.name;
-        String k = warKey(attackerName, defenderName);
-        if (wars.containsKey(k)) {
+        if (wars.contains(attackerName, defenderName)) {
             return WarStartResult.ALREADY_AT_WAR;
         }
 
@@ -599,7 +600,7 @@ public class WarManager {
 
         long now = System.currentTimeMillis();
         WarData data = new WarData(attackerName, defenderName, now);
-        wars.put(k, data);
+        wars.put(data);
         if (!bypassCooldown) {
             lastWarCommand.put(attackerKey, now);
         }
@@ -615,7 +616,7 @@ public class WarManager {
             plugin.getGraveXListener().disableForStates(attackerName, defenderName);
         }
 
-        startRaiderTask(k, data);
+        startRaiderTask(warKey(attackerName, defenderName), data);
         Bukkit.getScheduler().runTask(plugin, () -> resolvePreBrokenCapitals(attackerName, defenderName));
         return WarStartResult.SUCCESS;
     }
@@ -695,40 +696,15 @@ public class WarManager {
 
         plugin.state().disbandState(pending.getRebel(), "war.civilwar-failed-rebel", vars);
 
-        StateManager.StateData origin = plugin.state().getState(pending.getOrigin());
-        if (origin != null) {
-            for (UUID member : new HashSet<>(origin.members)) {
-                Player online = Bukkit.getPlayer(member);
-                if (online != null) {
-                    plugin.lang().send(online, "war.civilwar-failed-origin", vars);
-                }
-            }
-        }
+        plugin.lang().send(plugin.state().getOnlineMembers(pending.getOrigin()), "war.civilwar-failed-origin", vars);
     }
 
     private void notifyCivilWarStart(String rebel, String origin) {
         Map<String, String> rebelVars = Map.of("enemy", origin);
         Map<String, String> originVars = Map.of("enemy", rebel);
 
-        StateManager.StateData rebelData = plugin.state().getState(rebel);
-        if (rebelData != null) {
-            for (UUID member : new HashSet<>(rebelData.members)) {
-                Player online = Bukkit.getPlayer(member);
-                if (online != null) {
-                    plugin.lang().send(online, "war.civilwar-war-start", rebelVars);
-                }
-            }
-        }
-
-        StateManager.StateData originData = plugin.state().getState(origin);
-        if (originData != null) {
-            for (UUID member : new HashSet<>(originData.members)) {
-                Player online = Bukkit.getPlayer(member);
-                if (online != null) {
-                    plugin.lang().send(online, "war.civilwar-war-start", originVars);
-                }
-            }
-        }
+        plugin.lang().send(plugin.state().getOnlineMembers(rebel), "war.civilwar-war-start", rebelVars);
+        plugin.lang().send(plugin.state().getOnlineMembers(origin), "war.civilwar-war-start", originVars);
     }
 
     public CondemnationResult condemnState(String attacker, String target) {
@@ -805,7 +781,7 @@ public class WarManager {
 
     public void endWar(String a, String b, String winner) {
         String k = warKey(a, b);
-        WarData data = wars.remove(k);
+        WarData data = wars.remove(a, b);
         if (data == null) {
             return;
         }
@@ -872,6 +848,7 @@ public class WarManager {
             camp.restoreFull();
             initializeMaintenance(camp, plugin.state().isCapitalSector(winner, newSector));
             camps.put(campKey(winner, newSector), camp);
+            plugin.state().reindexSector(winner, newSector);
 
             if (plugin.protection() != null) {
                 plugin.protection().clearCampEffects(loser, oldSector);
@@ -971,35 +948,26 @@ public class WarManager {
         if (a == null || b == null) {
             return false;
         }
-        return wars.containsKey(warKey(a, b));
+        return wars.areOpposed(a, b);
     }
 
     public boolean isStateAtWar(String state) {
         if (state == null) {
             return false;
         }
-        for (WarData data : wars.values()) {
-            if (data.getAttacker().equalsIgnoreCase(state) || data.getDefender().equalsIgnoreCase(state)) {
-                return true;
-            }
-        }
-        return false;
+        return wars.isAtWar(state);
     }
 
     public WarData getWar(String a, String b) {
-        return wars.get(warKey(a, b));
+        return wars.get(a, b);
     }
 
     public WarData adminStopWar(String a, String b) {
-        String key = findWarKeyBetween(a, b);
-        if (key == null) {
-            return null;
-        }
-
-        WarData data = wars.remove(key);
-        if (data == null) {
+        WarData data = wars.findShared(a, b);
+        if (data == null || !wars.remove(data)) {
             return null;
         }
+        String key = warKey(data.getAttacker(), data.getDefender());
 
         cancelRaiderTask(key);
         surrenderRequests.remove(key);
@@ -1017,38 +985,8 @@ public class WarManager {
         return data;
     }
 
-    private boolean warContainsState(WarData war, String state) {
-        if (war == null || state == null) {
-            return false;
-        }
-        for (String attacker : war.getAttackerSide()) {
-            if (attacker.equalsIgnoreCase(state)) {
-                return true;
-            }
-        }
-        for (String defender : war.getDefenderSide()) {
-            if (defender.equalsIgnoreCase(state)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private String findWarKeyBetween(String a, String b) {
-        if (a == null || b == null) {
-            return null;
-        }
-        for (Map.Entry<String, WarData> entry : wars.entrySet()) {
-            WarData data = entry.getValue();
-            if (warContainsState(data, a) && warContainsState(data, b)) {
-                return entry.getKey();
-            }
-        }
-        return null;
-    }
-
     private Optional<WarData> findWar(String state) {
-        return wars.values().stream().filter(w -> w.involves(state)).findFirst();
+        return Optional.ofNullable(wars.findWar(state));
     }
 
     public Optional<WarData> getWarForState(String state) {
@@ -1094,6 +1032,7 @@ public class WarManager {
         camp.setMaintenanceWarningIssued(false);
         camp.setMaintenanceOverdueNotified(false);
         camp.setLastMaintenanceDecayAt(0L);
+        scheduleMaintenance(camp, now);
     }
 
     public Camp registerCamp(String state, String sector) {
@@ -1126,7 +1065,7 @@ public class WarManager {
             plugin.holograms().update(created);
         }
         updateDynmap(created);
-        markDirty();
+        markDirty(created);
         return created;
     }
 
@@ -1139,6 +1078,8 @@ public class WarManager {
         if (camp == null) {
             return null;
         }
+        maintenanceQueue.remove(camp);
+        CampSpatialIndex.Entry previous = plugin.state().getSpatialIndex().get(camp.getStateName(), camp.getSectorName());
         cancelHold(key);
         if (plugin.protection() != null) {
             plugin.protection().clearCampEffects(camp.getStateName(), camp.getSectorName());
@@ -1146,13 +1087,34 @@ public class WarManager {
         if (plugin.holograms() != null) {
             plugin.holograms().removeCamp(camp.getStateName(), camp.getSectorName());
         }
+        plugin.state().reindexSector(camp.getStateName(), camp.getSectorName());
+        plugin.state().releaseCampBoundary(previous);
         markDirty();
         return camp;
     }
 
-    public void applyCampUpgrades(Camp camp) {
-        if (camp == null) {
-            return;
+    public void applyCampUpgrades(Camp camp) {
+        applyCampUpgrades(camp, true);
+        applyResourceRates(camp);
+        scheduleMaintenance(camp);
+    }
+
+    /**
+     * 按配置与营地当前属性设置燃料消耗、血量恢复与生产的速率。
+     */
+    private void applyResourceRates(Camp camp) {
+        if (camp == null) {
+            return;
+        }
+        long regenIntervalMs = plugin.config().settings().camp().healIntervalTicks() * 50L;
+        double regenAmount = camp.getHealRate() > 0 ? camp.getHealRate() : baseHealRate;
+        camp.setResourceRates(getFuelIntervalMs(), getFuelDrainAmount(), regenIntervalMs, regenAmount,
+                productionEnabled ? productionMoney : 0.0, productionEnabled ? productionItemRates : Map.of());
+    }
+
+    private void applyCampUpgrades(Camp camp, boolean recalculateBoundary) {
+        if (camp == null) {
+            return;
         }
         double maxHp = baseMaxHp;
         int maxFuel = baseMaxFuel;
@@ -1160,9 +1122,7 @@ public class WarManager {
         int fatigue = baseFatigueAmplifier;
         double storageMoney = baseStoredMoneyCap;
         int storageItems = baseStoredItemCap;
-        long productionInterval = productionEnabled ? baseProductionIntervalMs : 0L;
-        double baseRadius = Math.max(1.0, plugin.getConfig().getDouble("camp.radius", 16.0));
-        double boundaryBonus = 0.0;
+        long productionInterval = productionEnabled ? baseProductionIntervalMs : 0L;
 
         UpgradeTier hpTier = getTier(CampUpgradeType.HP, camp.getHpLevel());
         if (hpTier != null && hpTier.maxHp() != null) {
@@ -1189,14 +1149,10 @@ public class WarManager {
                 storageItems = storageTier.storedItemCap();
             }
         }
-        UpgradeTier efficiencyTier = getTier(CampUpgradeType.EFFICIENCY, camp.getEfficiencyLevel());
-        UpgradeTier boundaryTier = getTier(CampUpgradeType.BOUNDARY, camp.getBoundaryLevel());
-        if (efficiencyTier != null && efficiencyTier.productionIntervalSeconds() != null) {
-            productionInterval = efficiencyTier.productionIntervalSeconds() * 1000L;
-        }
-        if (boundaryTier != null && boundaryTier.boundaryRadiusBonus() != null) {
-            boundaryBonus = boundaryTier.boundaryRadiusBonus();
-        }
+        UpgradeTier efficiencyTier = getTier(CampUpgradeType.EFFICIENCY, camp.getEfficiencyLevel());
+        if (efficiencyTier != null && efficiencyTier.productionIntervalSeconds() != null) {
+            productionInterval = efficiencyTier.productionIntervalSeconds() * 1000L;
+        }
 
         camp.setMaxHp(maxHp);
         camp.setMaxFuel(maxFuel);
@@ -1204,9 +1160,30 @@ public class WarManager {
         camp.setFatigueAmplifier(fatigue);
         camp.setMaxStoredMoney(storageMoney);
         camp.setMaxStoredItems(storageItems);
-        camp.setProductionIntervalMs(productionInterval);
-        plugin.state().recalculateCampBoundary(camp, baseRadius, boundaryBonus);
-    }
+        camp.setProductionIntervalMs(productionInterval);
+        if (recalculateBoundary) {
+            refreshCampBoundary(camp);
+        }
+    }
+
+    public void refreshCampBoundary(Camp camp) {
+        if (camp == null) {
+            return;
+        }
+        double baseRadius = plugin.config().settings().camp().radius();
+        plugin.state().recalculateCampBoundary(camp, baseRadius, getBoundaryBonus(camp));
+    }
+
+    public double getBoundaryBonus(Camp camp) {
+        if (camp == null) {
+            return 0.0;
+        }
+        UpgradeTier boundaryTier = getTier(CampUpgradeType.BOUNDARY, camp.getBoundaryLevel());
+        if (boundaryTier != null && boundaryTier.boundaryRadiusBonus() != null) {
+            return boundaryTier.boundaryRadiusBonus();
+        }
+        return 0.0;
+    }
 
     public void applyModuleEffects(Player player, StateManager.CampSectorInfo info) {
         if (player == null || info == null) {
@@ -1267,6 +1244,7 @@ public class WarManager {
             camp.setSectorName(toSector);
             initializeMaintenance(camp, plugin.state().isCapitalSector(toState, toSector));
             camps.put(campKey(toState, toSector), camp);
+            plugin.state().reindexSector(toState, toSector);
             if (plugin.protection() != null) {
                 plugin.protection().clearCampEffects(fromState, fromSector);
             }
@@ -1284,11 +1262,12 @@ public class WarManager {
             return;
         }
         camps.put(campKey(camp.getStateName(), camp.getSectorName()), camp);
+        refreshCampBoundary(camp);
         if (plugin.holograms() != null) {
             plugin.holograms().update(camp);
         }
         updateDynmap(camp);
-        markDirty();
+        markDirty(camp);
     }
 
     public boolean isCampOperational(String state, String sector) {
@@ -1310,6 +1289,57 @@ public class WarManager {
         return computeFuelRemainingMillis(camp, interval);
     }
 
+    // 快照
+    public Map<String, WorldSnapshot.CampView> snapshotCamps() {
+        Map<String, WorldSnapshot.CampView> result = new HashMap<>();
+        for (Camp camp : camps.values()) {
+            result.put(WorldSnapshot.campKey(camp.getStateName(), camp.getSectorName()), snapshotCamp(camp));
+        }
+        return result;
+    }
+
+    public WorldSnapshot.CampView snapshotCamp(Camp camp) {
+        double radius = plugin.config().settings().camp().radius();
+        CampBoundary boundary = camp.getBoundary();
+        return new WorldSnapshot.CampView(camp.getStateName(), camp.getSectorName(),
+                camp.anchors(), camp.rates(), camp.getMaxHp(), camp.getMaxFuel(),
+                boundary == null ? radius : boundary.west(), boundary == null ? radius : boundary.east(),
+                boundary == null ? radius : boundary.north(), boundary == null ? radius : boundary.south());
+    }
+
+    public List<WorldSnapshot.WarView> snapshotWars() {
+        List<WorldSnapshot.WarView> result = new ArrayList<>(wars.size());
+        for (WarData data : wars.values()) {
+            result.add(new WorldSnapshot.WarView(data.getAttacker(), data.getDefender(), data.getStartTime(),
+                    data.getAttackerSide(), data.getDefenderSide()));
+        }
+        return result;
+    }
+
+    public Map<String, WorldSnapshot.CondemnationView> snapshotCondemnations() {
+        Map<String, WorldSnapshot.CondemnationView> result = new HashMap<>();
+        condemnations.forEach((key, data) -> {
+            if (data.getTarget() != null) {
+                result.put(key, new WorldSnapshot.CondemnationView(data.getTarget(), data.getStartTime()));
+            }
+        });
+        return result;
+    }
+
+    public Map<String, String> snapshotPendingCivilWars() {
+        Map<String, String> result = new HashMap<>();
+        pendingCivilWars.forEach((key, data) -> {
+            if (data.getOrigin() != null) {
+                result.put(key, data.getOrigin());
+            }
+        });
+        return result;
+    }
+
+    public long getCondemnDelayMillis() {
+        return getCondemnDelayMs();
+    }
+
     public CampMaintenanceInfo getMaintenanceInfo(String state, String sector) {
         if (state == null || sector == null) {
             return null;
@@ -1334,8 +1364,12 @@ public class WarManager {
         return new CampMaintenanceInfo(camp, remainingMillis, overdueMillis, warning, overdue, nextDue, interval);
     }
 
-    public void loadFromCampInfo(YamlConfiguration yaml) {
+    /**
+     * 清空营地并取消进行中的首都占领计时，准备登记新读取的营地。
+     */
+    public void beginLoad() {
         camps.clear();
+        maintenanceQueue.clear();
         for (BukkitTask task : capitalHoldTasks.values()) {
             if (task != null) {
                 task.cancel();
@@ -1343,91 +1377,101 @@ public class WarManager {
         }
         capitalHoldTasks.clear();
         capitalHoldAttackers.clear();
+    }
 
-        if (yaml == null) {
-            return;
+    /**
+     * 把存档中的营地节点解析为 Camp，只读取配置快照，可在加载线程中调用。
+     */
+    public Camp parseCamp(String stateName, String sectorName, ConfigurationSection campSection) {
+        double defaultMaxHp = plugin.config().settings().camp().maxHp();
+        double maxHp = campSection.getDouble("max-hp", defaultMaxHp);
+        Camp camp = new Camp(campKey(stateName, sectorName), stateName, sectorName, maxHp);
+        double hp = campSection.getDouble("hp", maxHp);
+        camp.setHp(hp);
+        long brokenSince = campSection.getLong("broken-since", camp.isBroken() ? System.currentTimeMillis() : -1L);
+        camp.setBrokenSince(brokenSince);
+        camp.setLastDamagedAt(campSection.getLong("last-damaged", 0L));
+
+        long lastMaintained = campSection.getLong("last-maintained", System.currentTimeMillis());
+        camp.setLastMaintainedAt(lastMaintained);
+        camp.setNextMaintenanceAt(campSection.getLong("next-maintenance", lastMaintained));
+        camp.setMaintenanceWarningIssued(campSection.getBoolean("maintenance-warning", false));
+        camp.setMaintenanceOverdueNotified(campSection.getBoolean("maintenance-overdue", false));
+        camp.setLastMaintenanceDecayAt(campSection.getLong("last-maintenance-decay", 0L));
+        camp.setMaxFuel(campSection.getInt("max-fuel", getMaxFuel()));
+        camp.setFuel(campSection.getInt("fuel", camp.getMaxFuel()));
+        camp.setLastFuelCheckAt(campSection.getLong("last-fuel-check", System.currentTimeMillis()));
+        camp.setHealRate(campSection.getDouble("heal-rate", baseHealRate));
+        camp.setFatigueAmplifier(campSection.getInt("fatigue-amplifier", baseFatigueAmplifier));
+        camp.setHpLevel(campSection.getInt("hp-level", 0));
+        camp.setFuelLevel(campSection.getInt("fuel-level", 0));
+        camp.setHealLevel(campSection.getInt("heal-level", 0));
+        camp.setFatigueLevel(campSection.getInt("fatigue-level", 0));
+        camp.setStorageLevel(campSection.getInt("storage-level", 0));
+        camp.setEfficiencyLevel(campSection.getInt("efficiency-level", 0));
+        camp.setBoundaryLevel(campSection.getInt("boundary-level", 0));
+        ConfigurationSection moduleSection = campSection.getConfigurationSection("modules");
+        if (moduleSection != null) {
+            Map<String, Boolean> moduleStates = new HashMap<>();
+            for (String moduleKey : moduleSection.getKeys(false)) {
+                moduleStates.put(moduleKey, moduleSection.getBoolean(moduleKey, false));
+            }
+            camp.setModules(moduleStates);
+        }
+        applyCampUpgrades(camp, false);
+
+        camp.setStoredMoney(campSection.getDouble("stored-money", 0.0));
+        ConfigurationSection stored = campSection.getConfigurationSection("stored-items");
+        if (stored != null) {
+            for (String itemKey : stored.getKeys(false)) {
+                int amount = stored.getInt(itemKey, 0);
+                if (amount > 0) {
+                    camp.addStoredItem(itemKey, amount);
+                }
+            }
         }
+        camp.setLastProductionAt(campSection.getLong("last-production", System.currentTimeMillis()));
+        camp.setLastRegenAt(campSection.getLong("last-regen", System.currentTimeMillis()));
+        // 锚点全部读入后再设置速率，之后的读取按存档时间结算离线期间的变化
+        applyResourceRates(camp);
+        return camp;
+    }
 
-        ConfigurationSection statesSection = yaml.getConfigurationSection("states");
-        if (statesSection == null) {
-            return;
+    /**
+     * 在主线程登记已解析的营地并刷新其全息与地图标记。
+     */
+    public void registerLoadedCamp(Camp camp) {
+        camps.put(campKey(camp.getStateName(), camp.getSectorName()), camp);
+        scheduleMaintenance(camp);
+        if (plugin.holograms() != null) {
+            plugin.holograms().update(camp);
         }
+        updateDynmap(camp);
+    }
 
-        double defaultMaxHp = plugin.config().getDouble("camp.max-hp", 100.0);
+    public void finishLoad(List<Camp> loaded) {
+        plugin.state().rebuildCampBoundaries(loaded, true);
+    }
 
-        for (String stateName : statesSection.getKeys(false)) {
-            ConfigurationSection stateSection = statesSection.getConfigurationSection(stateName);
-            if (stateSection == null) {
-                continue;
+    /**
+     * 国家转入冷存档时移除其营地与全息，不改动边界、空间索引与地图标记。
+     */
+    public void evictStateCamps(String state) {
+        camps.values().removeIf(camp -> {
+            if (!camp.getStateName().equalsIgnoreCase(state)) {
+                return false;
             }
-            ConfigurationSection sectorsSection = stateSection.getConfigurationSection("sectors");
-            if (sectorsSection == null) {
-                continue;
+            maintenanceQueue.remove(camp);
+            if (plugin.protection() != null) {
+                plugin.protection().clearCampEffects(camp.getStateName(), camp.getSectorName());
             }
-            for (String sectorName : sectorsSection.getKeys(false)) {
-                ConfigurationSection sectorSection = sectorsSection.getConfigurationSection(sectorName);
-                if (sectorSection == null) {
-                    continue;
-                }
-                ConfigurationSection campSection = sectorSection.getConfigurationSection("camp");
-                if (campSection == null) {
-                    continue;
-                }
-
-                double maxHp = campSection.getDouble("max-hp", defaultMaxHp);
-                Camp camp = new Camp(campKey(stateName, sectorName), stateName, sectorName, maxHp);
-                double hp = campSection.getDouble("hp", maxHp);
-                camp.setHp(hp);
-                long brokenSince = campSection.getLong("broken-since", camp.isBroken() ? System.currentTimeMillis() : -1L);
-                camp.setBrokenSince(brokenSince);
-                camp.setLastDamagedAt(campSection.getLong("last-damaged", 0L));
-
-                long lastMaintained = campSection.getLong("last-maintained", System.currentTimeMillis());
-                camp.setLastMaintainedAt(lastMaintained);
-                camp.setNextMaintenanceAt(campSection.getLong("next-maintenance", lastMaintained));
-                camp.setMaintenanceWarningIssued(campSection.getBoolean("maintenance-warning", false));
-                camp.setMaintenanceOverdueNotified(campSection.getBoolean("maintenance-overdue", false));
-                camp.setLastMaintenanceDecayAt(campSection.getLong("last-maintenance-decay", 0L));
-                camp.setMaxFuel(campSection.getInt("max-fuel", getMaxFuel()));
-                camp.setFuel(campSection.getInt("fuel", camp.getMaxFuel()));
-                camp.setLastFuelCheckAt(campSection.getLong("last-fuel-check", System.currentTimeMillis()));
-                camp.setHealRate(campSection.getDouble("heal-rate", baseHealRate));
-                camp.setFatigueAmplifier(campSection.getInt("fatigue-amplifier", baseFatigueAmplifier));
-                camp.setHpLevel(campSection.getInt("hp-level", 0));
-                camp.setFuelLevel(campSection.getInt("fuel-level", 0));
-                camp.setHealLevel(campSection.getInt("heal-level", 0));
-                camp.setFatigueLevel(campSection.getInt("fatigue-level", 0));
-                camp.setStorageLevel(campSection.getInt("storage-level", 0));
-                camp.setEfficiencyLevel(campSection.getInt("efficiency-level", 0));
-                camp.setBoundaryLevel(campSection.getInt("boundary-level", 0));
-                ConfigurationSection moduleSection = campSection.getConfigurationSection("modules");
-                if (moduleSection != null) {
-                    Map<String, Boolean> moduleStates = new HashMap<>();
-                    for (String moduleKey : moduleSection.getKeys(false)) {
-                        moduleStates.put(moduleKey, moduleSection.getBoolean(moduleKey, false));
-                    }
-                    camp.setModules(moduleStates);
-                }
-                applyCampUpgrades(camp);
-
-                camp.setStoredMoney(campSection.getDouble("stored-money", 0.0));
-                ConfigurationSection stored = campSection.getConfigurationSection("stored-items");
-                if (stored != null) {
-                    for (String itemKey : stored.getKeys(false)) {
-                        int amount = stored.getInt(itemKey, 0);
-                        if (amount > 0) {
-                            camp.addStoredItem(itemKey, amount);
-                        }
-                    }
-                }
-                camp.setLastProductionAt(campSection.getLong("last-production", System.currentTimeMillis()));
-
-                camps.put(campKey(stateName, sectorName), camp);
-                if (plugin.holograms() != null) {
-                    plugin.holograms().update(camp);
-                }
-                updateDynmap(camp);
+            if (plugin.holograms() != null) {
+                plugin.holograms().removeCamp(camp.getStateName(), camp.getSectorName());
             }
+            return true;
+        });
+        if (plugin.holograms() != null) {
+            plugin.holograms().removeState(state);
         }
     }
 
@@ -1439,6 +1483,7 @@ public class WarManager {
             Camp camp = entry.getValue();
             if (camp.getStateName().equalsIgnoreCase(state)) {
                 cancelHold(entry.getKey());
+                maintenanceQueue.remove(camp);
                 if (plugin.protection() != null) {
                     plugin.protection().clearCampEffects(camp.getStateName(), camp.getSectorName());
                 }
@@ -1506,14 +1551,12 @@ public class WarManager {
             capitalHoldAttackers.remove(k);
         });
 
-        wars.replaceAll((k, data) -> {
-            data.renameState(oldName, newName);
-            return data;
-        });
-        Map<String, WarData> rebuilt = new HashMap<>();
-        wars.values().forEach(data -> rebuilt.put(warKey(data.getAttacker(), data.getDefender()), data));
-        wars.clear();
-        wars.putAll(rebuilt);
+        wars.rename(oldName, newName);
+        for (WarData data : wars.values()) {
+            String previousKey = warKey(renamedFrom(data.getAttacker(), oldName, newName),
+                    renamedFrom(data.getDefender(), oldName, newName));
+            moveKey(raiderTasks, previousKey, warKey(data.getAttacker(), data.getDefender()));
+        }
 
         String oldKey = normalizeState(oldName);
         String newKey = normalizeState(newName);
@@ -1566,7 +1609,7 @@ public class WarManager {
         cancelHold(oldKey);
         camp.setSectorName(newSector);
         camps.put(campKey(state, newSector), camp);
-        markDirty();
+        markDirty(camp);
     }
 
     public EmergencyMoveResult requestEmergencyMove(String stateName, String sector) {
@@ -1630,7 +1673,7 @@ public class WarManager {
             }
             updateDynmap(camp);
             boolean capital = plugin.state().isCapitalSector(defenderState, sector);
-            long hold = plugin.config().getLong("war.capital-hold-seconds", 120L);
+            long hold = plugin.config().settings().war().capitalHoldSeconds();
             return CampDamageResult.broken(camp, capital, hold);
         }
 
@@ -1652,13 +1695,15 @@ public class WarManager {
         sendStateActionBar(defenderState, "war.camp-damage", damageVars, plugin.campDamageSound());
         sendStateActionBar(attackerState, "war.camp-damage", damageVars, plugin.campDamageSound());
 
-        markDirty();
+        plugin.campInfo().journal().campHp(defenderState, sector, hp);
+        markDirty(camp);
         if (broken) {
             camp.setFuel(0);
+            scheduleMaintenance(camp);
             handleCampBroken(camp, attackerState);
             markDirty();
             return CampDamageResult.broken(camp, plugin.state().isCapitalSector(defenderState, sector),
-                    plugin.config().getLong("war.capital-hold-seconds", 120L));
+                    plugin.config().settings().war().capitalHoldSeconds());
         }
 
         return CampDamageResult.success(hp, maxHp);
@@ -1698,7 +1743,7 @@ public class WarManager {
     }
 
     private void scheduleCapitalHold(Camp camp, String attackerState) {
-        long holdSeconds = Math.max(5L, plugin.config().getLong("war.capital-hold-seconds", 120L));
+        long holdSeconds = Math.max(5L, plugin.config().settings().war().capitalHoldSeconds());
         String key = campKey(camp.getStateName(), camp.getSectorName());
         cancelHold(key);
         capitalHoldAttackers.put(key, attackerState);
@@ -1764,7 +1809,8 @@ public class WarManager {
             plugin.holograms().update(camp);
         }
         updateDynmap(camp);
-        markDirty();
+        plugin.campInfo().journal().campHp(state, sector, camp.getHp());
+        markDirty(camp);
         return CampRepairResult.success(camp, Math.max(0.0, camp.getHp() - before), brokenBefore);
     }
 
@@ -1787,7 +1833,7 @@ public class WarManager {
             plugin.holograms().update(camp);
         }
         updateDynmap(camp);
-        markDirty();
+        markDirty(camp);
         return CampMaintenanceResult.success(camp, now + interval, interval);
     }
 
@@ -1821,50 +1867,18 @@ public class WarManager {
             plugin.holograms().update(camp);
         }
         updateDynmap(camp);
-        markDirty();
-    }
-
-    // 自动回血
-    private void startAutoHealTask() {
-        if (autoHealTask != null) {
-            autoHealTask.cancel();
-        }
-        long interval = Math.max(1L, plugin.config().getLong("camp.heal-interval", 600L));
-
-        autoHealTask = new BukkitRunnable() {
-            @Override public void run() {
-                boolean changed = false;
-                for (Camp c : camps.values()) {
-                    if (c.getFuel() <= 0) continue;
-                    double rate = c.getHealRate() > 0 ? c.getHealRate() : baseHealRate;
-                    double before = c.getHp();
-                    if (c.isBroken()) {
-                        c.repair(rate);
-                    } else {
-                        c.heal(rate);
-                    }
-                    if (before <= 0 && c.getHp() > 0) {
-                        cancelHold(campKey(c.getStateName(), c.getSectorName()));
-                    }
-                    if (c.getHp() != before) {
-                        changed = true;
-                        if (plugin.holograms() != null) {
-                            plugin.holograms().update(c);
-                        }
-                        updateDynmap(c);
-                    }
-                }
-                if (changed) {
-                    markDirty();
-                }
-            }
-        }.runTaskTimer(plugin, interval, interval);
+        markDirty(camp);
     }
 
     private void startMaintenanceTask() {
         if (maintenanceTask != null) {
             maintenanceTask.cancel();
         }
+        maintenanceQueue.clear();
+        long now = System.currentTimeMillis();
+        for (Camp camp : camps.values()) {
+            scheduleMaintenance(camp, now);
+        }
         long interval = getMaintenanceCheckIntervalTicks();
         maintenanceTask = new BukkitRunnable() {
             @Override
@@ -1875,37 +1889,32 @@ public class WarManager {
     }
 
     private void tickMaintenance() {
-        long fuelIntervalMs = getFuelIntervalMs();
-        int fuelDrain = getFuelDrainAmount();
-        double zeroFuelDamage = Math.max(0.0, plugin.getConfig().getDouble("camp.fuel.zero-damage", 0.0));
+        double zeroFuelDamage = plugin.config().settings().camp().fuel().zeroDamage();
         long now = System.currentTimeMillis();
 
         boolean changed = false;
-        for (Camp camp : camps.values()) {
-            long fuelLast = camp.getLastFuelCheckAt();
-            if (fuelLast <= 0L) {
-                fuelLast = now;
-            }
-            long fuelElapsed = now - fuelLast;
-            if (fuelIntervalMs > 0 && fuelDrain > 0 && fuelElapsed >= fuelIntervalMs) {
-                long steps = Math.max(1L, fuelElapsed / fuelIntervalMs);
-                int drained = (int) Math.min(Integer.MAX_VALUE, steps * (long) fuelDrain);
-                int beforeFuel = camp.getFuel();
-                camp.setFuel(beforeFuel - drained);
-                camp.setLastFuelCheckAt(fuelLast + steps * fuelIntervalMs);
-                if (camp.getFuel() != beforeFuel) {
-                    changed = true;
-                    if (camp.getFuel() <= 0 && plugin.protection() != null) {
-                        plugin.protection().clearCampEffects(camp.getStateName(), camp.getSectorName());
-                    }
-                    if (plugin.holograms() != null) {
-                        plugin.holograms().update(camp);
-                    }
+        for (Camp camp : maintenanceQueue.pollDue(now)) {
+            if (camps.get(campKey(camp.getStateName(), camp.getSectorName())) != camp) {
+                continue;
+            }
+            boolean campChanged = false;
+            int events = camp.takeEvents(now);
+            if ((events & Camp.EVENT_FUEL_EMPTY) != 0) {
+                campChanged = true;
+                if (plugin.protection() != null) {
+                    plugin.protection().clearCampEffects(camp.getStateName(), camp.getSectorName());
+                }
+                if (plugin.holograms() != null) {
+                    plugin.holograms().update(camp);
                 }
             }
-
-            if (handleProduction(camp, now)) {
-                changed = true;
+            if ((events & Camp.EVENT_REVIVED) != 0) {
+                campChanged = true;
+                cancelHold(campKey(camp.getStateName(), camp.getSectorName()));
+                if (plugin.holograms() != null) {
+                    plugin.holograms().update(camp);
+                }
+                updateDynmap(camp);
             }
 
             if (zeroFuelDamage > 0 && camp.getFuel() <= 0) {
@@ -1914,7 +1923,7 @@ public class WarManager {
                 double toApply = Math.min(zeroFuelDamage, maxDamage);
                 if (toApply > 0.0) {
                     boolean broken = camp.damage(toApply);
-                    changed = true;
+                    campChanged = true;
                     handleMaintenanceDamage(camp, toApply);
                     if (plugin.holograms() != null) {
                         plugin.holograms().update(camp);
@@ -1925,12 +1934,40 @@ public class WarManager {
                     }
                 }
             }
+            if (campChanged) {
+                camp.markDirty();
+                markSnapshot(camp);
+                changed = true;
+            }
+            scheduleMaintenance(camp, now);
         }
         if (changed) {
-            markDirty();
+            requestSave();
+        }
+    }
+
+    /**
+     * 重新计算营地下一次维护事件的时间，燃料、升级或归属变化后调用。
+     */
+    public void scheduleMaintenance(Camp camp) {
+        if (camp != null) {
+            scheduleMaintenance(camp, System.currentTimeMillis());
         }
     }
 
+    private void scheduleMaintenance(Camp camp, long now) {
+        maintenanceQueue.schedule(camp, nextMaintenanceEvent(camp, now));
+    }
+
+    private long nextMaintenanceEvent(Camp camp, long now) {
+        long next = camp.nextResourceEvent(now);
+        if (camp.getFuel() <= 0 && plugin.config().settings().camp().fuel().zeroDamage() > 0) {
+            // 燃料耗尽后零燃料扣血每次检查都要处理
+            next = now;
+        }
+        return next == Long.MAX_VALUE ? CampMaintenanceQueue.IDLE : next;
+    }
+
     private long computeFuelRemainingMillis(Camp camp, long interval) {
         if (camp == null || interval <= 0L) {
             return 0L;
@@ -1941,57 +1978,6 @@ public class WarManager {
         return Math.max(0L, total - elapsed);
     }
 
-    private boolean handleProduction(Camp camp, long now) {
-        if (!productionEnabled || camp == null) {
-            return false;
-        }
-        if (camp.getFuel() <= 0 || camp.getProductionIntervalMs() <= 0L) {
-            camp.setLastProductionAt(now);
-            return false;
-        }
-        long last = camp.getLastProductionAt();
-        if (last <= 0L) {
-            camp.setLastProductionAt(now);
-            return false;
-        }
-        long elapsed = now - last;
-        long interval = camp.getProductionIntervalMs();
-        if (elapsed < interval) {
-            return false;
-        }
-        long steps = Math.max(1L, elapsed / interval);
-        camp.setLastProductionAt(last + steps * interval);
-
-        boolean changed = false;
-        double moneyToAdd = productionMoney * steps;
-        if (moneyToAdd > 0.0 && camp.getMaxStoredMoney() > 0.0 && camp.getStoredMoney() < camp.getMaxStoredMoney()) {
-            double before = camp.getStoredMoney();
-            camp.addStoredMoney(moneyToAdd);
-            changed |= Math.abs(before - camp.getStoredMoney()) > 1e-6;
-        }
-
-        if (!productionItems.isEmpty() && camp.getMaxStoredItems() > 0) {
-            int totalAvailable = Math.max(0, camp.getMaxStoredItems() - camp.getStoredItemTotal());
-            if (totalAvailable > 0) {
-                for (Map.Entry<StateManager.ItemDescriptor, Integer> entry : productionItems.entrySet()) {
-                    int amount = (int) Math.min(Integer.MAX_VALUE, entry.getValue() * steps);
-                    if (amount <= 0) {
-                        continue;
-                    }
-                    int allowed = Math.max(0, camp.getMaxStoredItems() - camp.getStoredItemTotal());
-                    if (allowed <= 0) {
-                        break;
-                    }
-                    int toStore = Math.min(allowed, amount);
-                    int before = camp.getStoredItemTotal();
-                    camp.addStoredItem(entry.getKey().getIdentity(), toStore);
-                    changed |= camp.getStoredItemTotal() != before;
-                }
-            }
-        }
-        return changed;
-    }
-
     private StateManager.ItemDescriptor findProductionDescriptor(String identity) {
         if (identity == null) {
             return null;
@@ -2091,6 +2077,7 @@ public class WarManager {
         if (!plugin.state().canManageCamp(player, camp)) {
             return ProductionClaimResult.noPermission();
         }
+        camp.settle(System.currentTimeMillis());
         double storedMoney = camp.getStoredMoney();
         int storedItems = camp.getStoredItemTotal();
         if (storedItems <= 0 && storedMoney <= 1e-6) {
@@ -2131,7 +2118,7 @@ public class WarManager {
         if (storedMoney > 0.0) {
             if (economy == null) {
                 if (itemsDelivered) {
-                    markDirty();
+                    markDirty(camp);
                 }
                 return ProductionClaimResult.noEconomy(deliveredItems, itemsDelivered);
             }
@@ -2140,7 +2127,7 @@ public class WarManager {
             camp.setStoredMoney(0.0);
         }
 
-        markDirty();
+        markDirty(camp);
         return ProductionClaimResult.success(moneyClaimed, deliveredItems, itemsDelivered);
     }
 
@@ -2288,16 +2275,16 @@ public class WarManager {
                 continue;
             }
             for (StateManager.SectorData sector : enemy.sectors.values()) {
-                Location location = sector.getLocation();
-                if (location == null) {
+                SectorPosition position = sector.getPosition();
+                if (position == null) {
                     continue;
                 }
                 plugin.lang().send(player, "war.reveal-line", Map.of(
                         "sector", sector.getName(),
-                        "x", String.valueOf(location.getBlockX()),
-                        "y", String.valueOf(location.getBlockY()),
-                        "z", String.valueOf(location.getBlockZ()),
-                        "world", location.getWorld() == null ? "" : location.getWorld().getName()
+                        "x", String.valueOf(position.x()),
+                        "y", String.valueOf(position.y()),
+                        "z", String.valueOf(position.z()),
+                        "world", position.worldName()
                 ));
             }
         }
@@ -0,0 +1,261 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.models.WarData;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 进行中的战争登记表。每场战争占一个槽位，按两国规范化名称组成的键查找；
+ * 每个国家分别记录所在进攻方与防守方的槽位位集，判断交战、查找国家所在战争时不再遍历全部战争。
+ * 阵营成员只能经由这里修改，国家改名时键与位集一并迁移。
+ */
+public class WarRegistry {
+    private final Map<String, WarData> wars = new LinkedHashMap<>(); // key: a:b（小写）
+    private final Collection<WarData> view = Collections.unmodifiableCollection(wars.values());
+    private final Map<WarData, Integer> slots = new IdentityHashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private WarData[] slotWars = new WarData[8];
+    private int nextSlot;
+
+    private final Map<String, BitSet> attackerWars = new HashMap<>();
+    private final Map<String, BitSet> defenderWars = new HashMap<>();
+
+    public static String normalize(String state) {
+        return state == null ? null : state.toLowerCase(Locale.ROOT);
+    }
+
+    public static String key(String a, String b) {
+        String first = normalize(a);
+        String second = normalize(b);
+        return first.compareTo(second) < 0 ? first + ":" + second : second + ":" + first;
+    }
+
+    public Collection<WarData> values() { return view; }
+    public int size() { return wars.size(); }
+    public boolean isEmpty() { return wars.isEmpty(); }
+
+    public boolean contains(String a, String b) {
+        return a != null && b != null && wars.containsKey(key(a, b));
+    }
+
+    public WarData get(String a, String b) {
+        return a == null || b == null ? null : wars.get(key(a, b));
+    }
+
+    /**
+     * 登记一场战争；两国之间已有战争时返回 false。
+     */
+    public boolean put(WarData war) {
+        String key = key(war.getAttacker(), war.getDefender());
+        if (wars.containsKey(key)) {
+            return false;
+        }
+        int slot = allocateSlot();
+        slotWars[slot] = war;
+        slots.put(war, slot);
+        wars.put(key, war);
+        indexSides(war, slot, true);
+        return true;
+    }
+
+    public WarData remove(String a, String b) {
+        WarData war = get(a, b);
+        if (war != null) {
+            remove(war);
+        }
+        return war;
+    }
+
+    public boolean remove(WarData war) {
+        Integer slot = war == null ? null : slots.remove(war);
+        if (slot == null) {
+            return false;
+        }
+        wars.remove(key(war.getAttacker(), war.getDefender()));
+        indexSides(war, slot, false);
+        slotWars[slot] = null;
+        freeSlots.push(slot);
+        return true;
+    }
+
+    public void clear() {
+        wars.clear();
+        slots.clear();
+        freeSlots.clear();
+        Arrays.fill(slotWars, null);
+        nextSlot = 0;
+        attackerWars.clear();
+        defenderWars.clear();
+    }
+
+    /**
+     * 国家是否在任何一场战争的任一阵营中。
+     */
+    public boolean isAtWar(String state) {
+        return bits(attackerWars, state) != null || bits(defenderWars, state) != null;
+    }
+
+    /**
+     * 两国是否在同一场战争中分属对立阵营。
+     */
+    public boolean areOpposed(String a, String b) {
+        return intersects(bits(attackerWars, a), bits(defenderWars, b))
+                || intersects(bits(defenderWars, a), bits(attackerWars, b));
+    }
+
+    /**
+     * 国家所在的第一场战争（按槽位顺序）。
+     */
+    public WarData findWar(String state) {
+        BitSet attacking = bits(attackerWars, state);
+        BitSet defending = bits(defenderWars, state);
+        int slot = first(attacking, defending);
+        return slot < 0 ? null : slotWars[slot];
+    }
+
+    /**
+     * 两国都参与的第一场战争，不论阵营。
+     */
+    public WarData findShared(String a, String b) {
+        BitSet first = union(bits(attackerWars, a), bits(defenderWars, a));
+        BitSet second = union(bits(attackerWars, b), bits(defenderWars, b));
+        if (first == null || second == null) {
+            return null;
+        }
+        first.and(second);
+        int slot = first.nextSetBit(0);
+        return slot < 0 ? null : slotWars[slot];
+    }
+
+    /**
+     * 把国家加入已登记战争的一方阵营，用于盟友参战或内战阵营合并；国家已在另一方时先移出。
+     */
+    public void join(WarData war, String state, boolean attackerSide) {
+        Integer slot = slots.get(war);
+        if (slot == null || state == null) {
+            return;
+        }
+        war.leaveSides(state);
+        clearBit(attackerWars, state, slot);
+        clearBit(defenderWars, state, slot);
+        war.joinSide(state, attackerSide);
+        setBit(attackerSide ? attackerWars : defenderWars, state, slot);
+    }
+
+    /**
+     * 国家改名：更新涉及该国的战争、重建其键，并把位集迁移到新名称下。
+     */
+    public void rename(String oldName, String newName) {
+        BitSet involved = union(bits(attackerWars, oldName), bits(defenderWars, oldName));
+        if (involved == null) {
+            return;
+        }
+        for (int slot = involved.nextSetBit(0); slot >= 0; slot = involved.nextSetBit(slot + 1)) {
+            WarData war = slotWars[slot];
+            wars.remove(key(war.getAttacker(), war.getDefender()));
+            war.renameState(oldName, newName);
+            wars.put(key(war.getAttacker(), war.getDefender()), war);
+        }
+        moveBits(attackerWars, oldName, newName);
+        moveBits(defenderWars, oldName, newName);
+    }
+
+    private int allocateSlot() {
+        Integer free = freeSlots.poll();
+        if (free != null) {
+            return free;
+        }
+        if (nextSlot == slotWars.length) {
+            slotWars = Arrays.copyOf(slotWars, slotWars.length * 2);
+        }
+        return nextSlot++;
+    }
+
+    private void indexSides(WarData war, int slot, boolean set) {
+        for (String state : war.getAttackerSide()) {
+            if (set) {
+                setBit(attackerWars, state, slot);
+            } else {
+                clearBit(attackerWars, state, slot);
+            }
+        }
+        for (String state : war.getDefenderSide()) {
+            if (set) {
+                setBit(defenderWars, state, slot);
+            } else {
+                clearBit(defenderWars, state, slot);
+            }
+        }
+    }
+
+    private static void setBit(Map<String, BitSet> index, String state, int slot) {
+        index.computeIfAbsent(normalize(state), k -> new BitSet()).set(slot);
+    }
+
+    private static void clearBit(Map<String, BitSet> index, String state, int slot) {
+        String key = normalize(state);
+        BitSet bits = index.get(key);
+        if (bits == null) {
+            return;
+        }
+        bits.clear(slot);
+        if (bits.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static void moveBits(Map<String, BitSet> index, String oldName, String newName) {
+        BitSet bits = index.remove(normalize(oldName));
+        if (bits == null) {
+            return;
+        }
+        BitSet existing = index.get(normalize(newName));
+        if (existing != null) {
+            existing.or(bits);
+        } else {
+            index.put(normalize(newName), bits);
+        }
+    }
+
+    // 空位集会从索引中移除，因此这里返回 null 即表示不在任何战争中
+    private static BitSet bits(Map<String, BitSet> index, String state) {
+        return state == null ? null : index.get(normalize(state));
+    }
+
+    private static boolean intersects(BitSet a, BitSet b) {
+        return a != null && b != null && a.intersects(b);
+    }
+
+    private static BitSet union(BitSet a, BitSet b) {
+        if (a == null && b == null) {
+            return null;
+        }
+        BitSet result = new BitSet();
+        if (a != null) {
+            result.or(a);
+        }
+        if (b != null) {
+            result.or(b);
+        }
+        return result;
+    }
+
+    private static int first(BitSet a, BitSet b) {
+        int first = a == null ? -1 : a.nextSetBit(0);
+        int second = b == null ? -1 : b.nextSetBit(0);
+        if (first < 0) {
+            return second;
+        }
+        return second < 0 ? first : Math.min(first, second);
+    }
+}
@@ -0,0 +1,136 @@
+package dev.ameruzily.campsystem.managers;
+
+import dev.ameruzily.campsystem.CampSystem;
+import dev.ameruzily.campsystem.models.Camp;
+import dev.ameruzily.campsystem.models.WorldSnapshot;
+import org.bukkit.Bukkit;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 维护供异步线程读取的只读快照。
+ * 数据变化时只记下变化的国家与营地，下一 tick 在主线程以上一份快照为基础替换这些条目并整体发布，
+ * 同一 tick 内的多次修改只发布一次；无法确定范围的修改才整体重建。
+ */
+public class WorldSnapshotManager {
+    private final CampSystem plugin;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private volatile WorldSnapshot current = WorldSnapshot.EMPTY;
+    private long version;
+
+    // 待发布的变化，按小写名称去重
+    private final Map<String, String> dirtyStates = new HashMap<>();
+    private final Map<String, CampRef> dirtyCamps = new HashMap<>();
+    private boolean rebuild = true;
+
+    public WorldSnapshotManager(CampSystem plugin) {
+        this.plugin = plugin;
+    }
+
+    public WorldSnapshot current() {
+        return current;
+    }
+
+    /**
+     * 国家字段、成员或分区有变化，该国家的营地一并刷新。
+     */
+    public synchronized void markState(String stateName) {
+        if (stateName != null) {
+            dirtyStates.put(stateName.toLowerCase(Locale.ROOT), stateName);
+        }
+    }
+
+    public synchronized void markCamp(String stateName, String sectorName) {
+        if (stateName != null && sectorName != null) {
+            dirtyCamps.put(WorldSnapshot.campKey(stateName, sectorName), new CampRef(stateName, sectorName));
+        }
+    }
+
+    public synchronized void markAll() {
+        rebuild = true;
+    }
+
+    public void requestPublish() {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin, this::publish);
+    }
+
+    public void publishNow() {
+        markAll();
+        pending.set(false);
+        publish();
+    }
+
+    private void publish() {
+        pending.set(false);
+        if (plugin.state() == null || plugin.war() == null) {
+            return;
+        }
+        Collection<String> states;
+        Collection<CampRef> camps;
+        boolean full;
+        synchronized (this) {
+            states = new ArrayList<>(dirtyStates.values());
+            camps = new ArrayList<>(dirtyCamps.values());
+            full = rebuild;
+            dirtyStates.clear();
+            dirtyCamps.clear();
+            rebuild = false;
+        }
+        StateManager stateManager = plugin.state();
+        WarManager war = plugin.war();
+        long now = System.currentTimeMillis();
+        if (full) {
+            current = new WorldSnapshot(++version, now,
+                    stateManager.snapshotStates(), stateManager.snapshotPlayerStates(),
+                    war.snapshotCamps(), war.snapshotWars(), war.snapshotCondemnations(), war.snapshotPendingCivilWars(),
+                    war.getFuelIntervalMillis(), war.getCondemnDelayMillis());
+            return;
+        }
+
+        WorldSnapshot previous = current;
+        Map<String, WorldSnapshot.StateView> stateChanges = new HashMap<>();
+        Map<UUID, String> playerChanges = new HashMap<>();
+        Map<String, WorldSnapshot.CampView> campChanges = new HashMap<>();
+        Set<UUID> players = new HashSet<>();
+        Map<String, CampRef> refreshCamps = new HashMap<>();
+        for (CampRef camp : camps) {
+            refreshCamps.put(WorldSnapshot.campKey(camp.state(), camp.sector()), camp);
+        }
+        for (String name : states) {
+            WorldSnapshot.StateView old = previous.state(name);
+            StateManager.StateData data = stateManager.findState(name);
+            WorldSnapshot.StateView view = data == null ? null : stateManager.snapshotState(data);
+            stateChanges.put(name.toLowerCase(Locale.ROOT), view);
+            // 成员与分区以新旧两份视图的并集刷新，覆盖退出、删除与改名
+            for (WorldSnapshot.StateView side : new WorldSnapshot.StateView[]{old, view}) {
+                if (side == null) {
+                    continue;
+                }
+                players.addAll(side.members());
+                if (side.captain() != null) {
+                    players.add(side.captain());
+                }
+                for (String sector : side.sectors().keySet()) {
+                    refreshCamps.put(WorldSnapshot.campKey(name, sector), new CampRef(name, sector));
+                }
+            }
+        }
+        for (UUID player : players) {
+            playerChanges.put(player, stateManager.getStateName(player));
+        }
+        for (Map.Entry<String, CampRef> entry : refreshCamps.entrySet()) {
+            Camp camp = war.getCamp(entry.getValue().state(), entry.getValue().sector());
+            campChanges.put(entry.getKey(), camp == null ? null : war.snapshotCamp(camp));
+        }
+        current = previous.with(++version, now, stateChanges, playerChanges, campChanges,
+                war.snapshotWars(), war.snapshotCondemnations(), war.snapshotPendingCivilWars(),
+                war.getFuelIntervalMillis(), war.getCondemnDelayMillis());
+    }
+
+    private record CampRef(String state, String sector) {
+    }
+}
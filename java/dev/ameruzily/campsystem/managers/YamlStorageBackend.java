@@ -0,0 +1,274 @@
+package dev.ameruzily.campsystem.managers;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * 文件存储：campinfo.yml 只保存全局信息，每个国家（含其分区与营地）单独保存为 states/ 下的一个分片文件。
+ * 分片可以是 YAML 或二进制格式（storage.format），切换格式后重载时自动转换；旧版整体存档在首次加载后自动拆分。
+ */
+public class YamlStorageBackend implements StorageBackend {
+    private final Logger logger;
+    private final File file;
+    private final File shardFolder;
+    private final boolean binary;
+    private final AsyncSaveWriter writer;
+    // 加载时由读取线程登记
+    private final Set<String> knownShards = ConcurrentHashMap.newKeySet();
+
+    private boolean rewrite;
+
+    public YamlStorageBackend(File dataFolder, Logger logger, boolean binary, StorageTimers timers) {
+        this.logger = logger;
+        this.file = new File(dataFolder, "campinfo.yml");
+        this.shardFolder = new File(dataFolder, "states");
+        this.binary = binary;
+        this.writer = new AsyncSaveWriter(logger, "CampSystem-Saver", timers);
+    }
+
+    @Override
+    public String getName() {
+        return binary ? "binary" : "yaml";
+    }
+
+    /**
+     * 数据目录中是否存在可导入的文件存档。
+     */
+    public static boolean exists(File dataFolder) {
+        if (new File(dataFolder, "campinfo.yml").exists()) {
+            return true;
+        }
+        String[] files = new File(dataFolder, "states").list((dir, name) -> name.endsWith(".yml") || name.endsWith(CampDataCodec.EXTENSION));
+        return files != null && files.length > 0;
+    }
+
+    @Override
+    public YamlConfiguration load() throws IOException {
+        return plan().toYaml();
+    }
+
+    /**
+     * campinfo.yml 中旧版整体存档的每个国家与 states/ 下的每个分片各为一段，分片在读取线程中解析。
+     * 同一国家以分片为准；同时存在两种格式的分片时只读取当前格式，另一份在下次保存时删除。
+     */
+    @Override
+    public LoadPlan plan() {
+        writer.flush();
+        ensureFile();
+        YamlConfiguration yaml = YamlConfiguration.loadConfiguration(file);
+        knownShards.clear();
+        String preferred = shardExtension();
+        boolean foreign = false;
+        Map<String, File> shards = new LinkedHashMap<>();
+        File[] files = listShards();
+        if (files != null) {
+            Arrays.sort(files, Comparator.comparing((File f) -> f.getName().endsWith(preferred)).thenComparing(File::getName));
+            for (File shard : files) {
+                String name = shard.getName();
+                File replaced = shards.put(name.substring(0, name.lastIndexOf('.')), shard);
+                if (replaced != null) {
+                    knownShards.add(replaced.getName());
+                }
+                foreign |= !name.endsWith(preferred);
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        ConfigurationSection legacyStates = yaml.getConfigurationSection("states");
+        boolean legacy = legacyStates != null && !legacyStates.getKeys(false).isEmpty();
+        if (legacy) {
+            for (String stateName : legacyStates.getKeys(false)) {
+                ConfigurationSection state = legacyStates.getConfigurationSection(stateName);
+                if (state != null && !shards.containsKey(shardName(stateName))) {
+                    chunks.add(() -> Map.of(stateName, state));
+                }
+            }
+        }
+        for (File shard : shards.values()) {
+            chunks.add(() -> readShardStates(shard));
+        }
+
+        rewrite = false;
+        if (legacy) {
+            rewrite = backupLegacy();
+        } else if (foreign) {
+            logger.info("Converting state files to " + (binary ? "binary" : "YAML") + " format.");
+            rewrite = true;
+        }
+        return new LoadPlan(yaml.getInt("meta.next-auto-id", 1), chunks);
+    }
+
+    @Override
+    public boolean needsRewrite() {
+        return rewrite;
+    }
+
+    @Override
+    public boolean contains(String stateName) {
+        return knownShards.contains(shardName(stateName) + shardExtension());
+    }
+
+    @Override
+    public boolean supportsPartialUpdates() {
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> save(SaveBatch batch) {
+        // 主线程只负责组装，序列化与写盘交给写入线程
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        String extension = shardExtension();
+        for (String stateName : batch.liveStates()) {
+            live.add(shardName(stateName) + extension);
+        }
+        for (StateChange change : batch.changes()) {
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.createSection("states").set(change.name(), change.state());
+            File target = new File(shardFolder, shardName(change.name()) + extension);
+            if (binary) {
+                writes.add(writer.submit(target, () -> CampDataCodec.encode(yaml)));
+            } else {
+                writes.add(writer.submit(target, () -> yaml.saveToString().getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        for (String shard : knownShards) {
+            if (!live.contains(shard)) {
+                writes.add(writer.submitDelete(new File(shardFolder, shard)));
+            }
+        }
+        knownShards.clear();
+        knownShards.addAll(live);
+
+        YamlConfiguration meta = new YamlConfiguration();
+        meta.set("meta.next-auto-id", batch.nextAutoId());
+        meta.createSection("states");
+        writes.add(writer.submit(file, () -> meta.saveToString().getBytes(StandardCharsets.UTF_8)));
+        return AsyncSaveWriter.allSucceeded(writes);
+    }
+
+    @Override
+    public int exportYaml(File folder) throws IOException {
+        writer.flush();
+        File[] files = listShards();
+        if (files == null) {
+            return 0;
+        }
+        int exported = 0;
+        for (File shard : files) {
+            String name = shard.getName();
+            File target = new File(folder, name.substring(0, name.lastIndexOf('.')) + ".yml");
+            if (name.endsWith(CampDataCodec.EXTENSION)) {
+                CampDataCodec.toYaml(shard, target);
+            } else {
+                AsyncSaveWriter.writeAtomically(target, Files.readAllBytes(shard.toPath()));
+            }
+            exported++;
+        }
+        return exported;
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    private void ensureFile() {
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            logger.warning("Failed to create data folder for campinfo.yml");
+        }
+        if (!file.exists()) {
+            YamlConfiguration yaml = new YamlConfiguration();
+            yaml.set("meta.next-auto-id", 1);
+            yaml.createSection("states");
+            try {
+                yaml.save(file);
+            } catch (IOException ex) {
+                logger.warning("Unable to create default campinfo.yml: " + ex.getMessage());
+            }
+        }
+    }
+
+    private File[] listShards() {
+        return shardFolder.listFiles((dir, name) -> name.endsWith(".yml") || name.endsWith(CampDataCodec.EXTENSION));
+    }
+
+    private Map<String, ConfigurationSection> readShardStates(File shard) {
+        YamlConfiguration yaml = readShard(shard);
+        ConfigurationSection shardStates = yaml == null ? null : yaml.getConfigurationSection("states");
+        if (shardStates == null || shardStates.getKeys(false).isEmpty()) {
+            // 读取失败的分片不登记，避免下次保存时被当作已删除的国家清理掉
+            logger.warning("Skipping unreadable state file " + shard.getName());
+            return Map.of();
+        }
+        knownShards.add(shard.getName());
+        Map<String, ConfigurationSection> states = new LinkedHashMap<>();
+        for (String stateName : shardStates.getKeys(false)) {
+            ConfigurationSection state = shardStates.getConfigurationSection(stateName);
+            if (state != null) {
+                states.put(stateName, state);
+            }
+        }
+        return states;
+    }
+
+    private YamlConfiguration readShard(File shard) {
+        if (!shard.getName().endsWith(CampDataCodec.EXTENSION)) {
+            return YamlConfiguration.loadConfiguration(shard);
+        }
+        try {
+            return CampDataCodec.read(shard);
+        } catch (IOException ex) {
+            logger.warning("Failed to read " + shard.getName() + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private String shardExtension() {
+        return binary ? CampDataCodec.EXTENSION : ".yml";
+    }
+
+    private boolean backupLegacy() {
+        File backup = new File(file.getParentFile(), "campinfo-legacy.yml");
+        try {
+            Files.copy(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            logger.warning("Unable to back up campinfo.yml before splitting it: " + ex.getMessage());
+            return false;
+        }
+        logger.info("Splitting campinfo.yml into per-state files under states/ (backup: campinfo-legacy.yml).");
+        return true;
+    }
+
+    /**
+     * 分片文件名：国家名转小写，文件名中不安全的字符以 _xx 十六进制形式转义。
+     */
+    static String shardName(String stateName) {
+        String lower = stateName.toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '-') {
+                builder.append(c);
+            } else {
+                builder.append('_').append(String.format(Locale.ROOT, "%04x", (int) c));
+            }
+        }
+        return builder.toString();
+    }
+}
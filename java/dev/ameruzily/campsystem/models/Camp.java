@@ -1,7 +1,28 @@
 package dev.ameruzily.campsystem.models;
 
+/**
+ * 营地数值。燃料、血量恢复与生产按锚点建模：保存结算时的数值与时间，读取时按速率与经过的步数算出当前值，
+ * 不需要定时任务逐个推进。修改前先把锚点结算到当前时间；结算不改变任意时刻读到的数值，因此不标记保存。
+ * 燃料耗尽、破损营地恢复血量等需要响应的变化在结算时记入待处理事件，由维护任务取出。
+ */
 public class Camp {
-    private static final double BROKEN_RECOVERY_THRESHOLD = 10.0;
+    static final double BROKEN_RECOVERY_THRESHOLD = 10.0;
+    public static final int EVENT_FUEL_EMPTY = 1;
+    public static final int EVENT_REVIVED = 2;
+
+    /**
+     * 持久化用的锚点：各数值及其结算时间，按相同速率可还原之后任意时刻的数值。
+     */
+    public record Anchors(double hp, long brokenSince, int fuel, long lastFuelCheckAt, double storedMoney,
+                          java.util.Map<String, Integer> storedItems, long lastProductionAt, long lastRegenAt) {
+    }
+
+    /**
+     * 燃料消耗与血量恢复的速率，与锚点一起可在其他线程算出任意时刻的燃料与血量。
+     */
+    public record Rates(long fuelIntervalMs, int fuelDrain, long regenIntervalMs, double regenAmount) {
+    }
+
     private final String id;
     private String stateName;
     private String sectorName;
@@ -27,6 +48,16 @@ public class Camp {
     private final java.util.Map<String, Integer> storedItems = new java.util.HashMap<>();
     private long productionIntervalMs;
 
+    // 速率由 WarManager 按配置与升级设置，为 0 时对应的数值不随时间变化
+    private long fuelIntervalMs;
+    private int fuelDrain;
+    private long regenIntervalMs;
+    private double regenAmount;
+    private double productionMoney;
+    private java.util.Map<String, Integer> productionItems = java.util.Map.of();
+    private long lastRegenAt;
+    private int pendingEvents;
+
     private double healRate;
     private int fatigueAmplifier;
     private int hpLevel;
@@ -38,6 +69,7 @@ public class Camp {
     private int boundaryLevel;
     private CampBoundary boundary;
     private final java.util.Map<String, Boolean> modules = new java.util.HashMap<>();
+    private boolean dirty;
 
     public Camp(String id, String stateName, String sectorName, double maxHp) {
         this.id = id;
@@ -58,16 +90,25 @@ public class Camp {
         this.maxStoredItems = 0;
         this.productionIntervalMs = 0L;
         this.lastProductionAt = now;
+        this.lastRegenAt = now;
         this.boundaryLevel = 0;
         this.boundary = new CampBoundary(0.0);
     }
 
     public String getId() { return id; }
+
+    /**
+     * 标记营地数据已变化，下次保存时重写所属国家的分片。
+     */
+    public void markDirty() { dirty = true; }
+    public boolean isDirty() { return dirty; }
+    public void clearDirty() { dirty = false; }
+
     public String getStateName() { return stateName; }
     public String getSectorName() { return sectorName; }
-    public double getHp() { return hp; }
+    public double getHp() { return hpAfter(regenSteps(activeUntil(now()))); }
     public double getMaxHp() { return maxHp; }
-    public long getBrokenSince() { return brokenSince; }
+    public long getBrokenSince() { return isBroken() ? brokenSince : -1L; }
     public long getLastDamagedAt() { return lastDamagedAt; }
     public long getLastMaintainedAt() { return lastMaintainedAt; }
     public long getNextMaintenanceAt() { return nextMaintenanceAt; }
@@ -75,20 +116,91 @@ public class Camp {
     public boolean isMaintenanceOverdueNotified() { return maintenanceOverdueNotified; }
     public long getLastMaintenanceDecayAt() { return lastMaintenanceDecayAt; }
 
-    public int getFuel() { return fuel; }
+    public int getFuel() {
+        long steps = fuelSteps(now());
+        return steps <= 0L ? fuel : (int) Math.max(0L, fuel - steps * fuelDrain);
+    }
+
     public int getMaxFuel() { return maxFuel; }
-    public long getLastFuelCheckAt() { return lastFuelCheckAt; }
-    public double getStoredMoney() { return storedMoney; }
+    public long getLastFuelCheckAt() { return lastFuelCheckAt + fuelSteps(now()) * fuelIntervalMs; }
+    public double getStoredMoney() { return moneyAfter(productionSteps(activeUntil(now()))); }
     public double getMaxStoredMoney() { return maxStoredMoney; }
     public int getMaxStoredItems() { return maxStoredItems; }
-    public long getLastProductionAt() { return lastProductionAt; }
+    public long getLastProductionAt() { return lastProductionAt + productionSteps(activeUntil(now())) * productionIntervalMs; }
+    public long getLastRegenAt() { return lastRegenAt; }
     public long getProductionIntervalMs() { return productionIntervalMs; }
-    public java.util.Map<String, Integer> getStoredItems() { return storedItems; }
+
+    public java.util.Map<String, Integer> getStoredItems() {
+        long steps = productionSteps(activeUntil(now()));
+        if (steps <= 0L || productionItems.isEmpty()) {
+            return java.util.Collections.unmodifiableMap(storedItems);
+        }
+        java.util.Map<String, Integer> projected = new java.util.HashMap<>(storedItems);
+        produceItems(projected, steps);
+        return java.util.Collections.unmodifiableMap(projected);
+    }
+
+    public Anchors anchors() {
+        return new Anchors(hp, brokenSince, fuel, lastFuelCheckAt, storedMoney, java.util.Map.copyOf(storedItems),
+                lastProductionAt, lastRegenAt);
+    }
+
+    public Rates rates() {
+        return new Rates(fuelIntervalMs, fuelDrain, regenIntervalMs, regenAmount);
+    }
+
+    /**
+     * 设置随时间变化的速率：每 fuelIntervalMs 消耗 fuelDrain 燃料；有燃料时每 regenIntervalMs 恢复 regenAmount 血量，
+     * 每个生产周期产出 productionMoney 与 productionItems（物品标识 -> 数量）。设置前按原速率结算到当前时间。
+     */
+    public void setResourceRates(long fuelIntervalMs, int fuelDrain, long regenIntervalMs, double regenAmount,
+                                 double productionMoney, java.util.Map<String, Integer> productionItems) {
+        advance(now());
+        this.fuelIntervalMs = Math.max(0L, fuelIntervalMs);
+        this.fuelDrain = Math.max(0, fuelDrain);
+        this.regenIntervalMs = Math.max(0L, regenIntervalMs);
+        this.regenAmount = Math.max(0.0, regenAmount);
+        this.productionMoney = Math.max(0.0, productionMoney);
+        this.productionItems = productionItems == null ? java.util.Map.of() : productionItems;
+    }
+
+    /**
+     * 把锚点结算到 now。
+     */
+    public void settle(long now) {
+        advance(now);
+    }
+
+    /**
+     * 结算到 now 并取出此前记下的事件（EVENT_* 的组合）。
+     */
+    public int takeEvents(long now) {
+        advance(now);
+        int events = pendingEvents;
+        pendingEvents = 0;
+        return events;
+    }
+
+    /**
+     * 下一次需要维护任务处理的时间：燃料耗尽，或破损营地第一次恢复血量。没有时返回 Long.MAX_VALUE。
+     */
+    public long nextResourceEvent(long now) {
+        advance(now);
+        if (pendingEvents != 0) {
+            return now;
+        }
+        long next = fuelEmptyAt();
+        if (fuel > 0 && hp <= 0.0 && regenerates()) {
+            next = Math.min(next, lastRegenAt + regenIntervalMs);
+        }
+        return next < 0L ? Long.MAX_VALUE : next;
+    }
 
     /**
      * 造成伤害，并在血量降至 0 时返回 true。
      */
     public boolean damage(double amount) {
+        advance(now());
         lastDamagedAt = System.currentTimeMillis();
         hp = Math.max(0.0, hp - amount);
         boolean nowBroken = hp <= 0.0;
@@ -100,11 +212,13 @@ public class Camp {
      * 直接设置当前血量。
      */
     public void setHp(double hp) {
+        advance(now());
         this.hp = Math.min(maxHp, Math.max(0.0, hp));
         normalizeBrokenState();
     }
 
     public void setMaxHp(double maxHp) {
+        advance(now());
         this.maxHp = Math.max(1.0, maxHp);
         if (hp > this.maxHp) {
             hp = this.maxHp;
@@ -112,6 +226,7 @@ public class Camp {
     }
 
     public void heal(double amount) {
+        advance(now());
         if (isBroken()) {
             return;
         }
@@ -119,16 +234,18 @@ public class Camp {
     }
 
     public void repair(double amount) {
+        advance(now());
         this.hp = Math.min(maxHp, Math.max(0.0, hp + amount));
         normalizeBrokenState();
     }
 
     public void restoreFull() {
+        advance(now());
         this.hp = maxHp;
         this.brokenSince = -1L;
     }
 
-    public boolean isBroken() { return brokenSince >= 0L; }
+    public boolean isBroken() { return brokenSince >= 0L && getHp() < BROKEN_RECOVERY_THRESHOLD; }
 
     public void setStateName(String stateName) {
         this.stateName = stateName;
@@ -159,10 +276,12 @@ public class Camp {
     }
 
     public void setFuel(int fuel) {
+        advance(now());
         this.fuel = Math.max(0, Math.min(maxFuel, fuel));
     }
 
     public void setMaxFuel(int maxFuel) {
+        advance(now());
         this.maxFuel = Math.max(0, maxFuel);
         if (fuel > this.maxFuel) {
             fuel = this.maxFuel;
@@ -170,10 +289,12 @@ public class Camp {
     }
 
     public void setStoredMoney(double storedMoney) {
+        advance(now());
         this.storedMoney = Math.max(0.0, Math.min(maxStoredMoney, storedMoney));
     }
 
     public void setMaxStoredMoney(double maxStoredMoney) {
+        advance(now());
         this.maxStoredMoney = Math.max(0.0, maxStoredMoney);
         if (storedMoney > this.maxStoredMoney) {
             storedMoney = this.maxStoredMoney;
@@ -181,26 +302,36 @@ public class Camp {
     }
 
     public void setMaxStoredItems(int maxStoredItems) {
+        advance(now());
         this.maxStoredItems = Math.max(0, maxStoredItems);
         clampStoredItems();
     }
 
     public void setLastProductionAt(long lastProductionAt) {
+        advance(now());
         this.lastProductionAt = Math.max(0L, lastProductionAt);
     }
 
     public void setProductionIntervalMs(long productionIntervalMs) {
+        advance(now());
         this.productionIntervalMs = Math.max(0L, productionIntervalMs);
     }
 
     public void setLastFuelCheckAt(long lastFuelCheckAt) {
+        advance(now());
         this.lastFuelCheckAt = lastFuelCheckAt;
     }
 
+    public void setLastRegenAt(long lastRegenAt) {
+        advance(now());
+        this.lastRegenAt = lastRegenAt;
+    }
+
     public void addFuel(int amount) {
         if (amount <= 0) {
             return;
         }
+        advance(now());
         setFuel(fuel + amount);
     }
 
@@ -308,6 +439,7 @@ public class Camp {
         if (amount <= 0.0) {
             return;
         }
+        advance(now());
         setStoredMoney(storedMoney + amount);
     }
 
@@ -315,7 +447,8 @@ public class Camp {
         if (identity == null || identity.isEmpty() || amount <= 0) {
             return;
         }
-        int allowed = Math.max(0, maxStoredItems - getStoredItemTotal());
+        advance(now());
+        int allowed = Math.max(0, maxStoredItems - total(storedItems));
         if (allowed <= 0) {
             return;
         }
@@ -325,10 +458,11 @@ public class Camp {
     }
 
     public int getStoredItemTotal() {
-        return storedItems.values().stream().mapToInt(Integer::intValue).sum();
+        return total(getStoredItems());
     }
 
     public void clearStoredItems() {
+        advance(now());
         storedItems.clear();
     }
 
@@ -341,6 +475,7 @@ public class Camp {
     }
 
     public void setBrokenSince(long brokenSince) {
+        advance(now());
         this.brokenSince = brokenSince;
         normalizeBrokenState();
     }
@@ -350,7 +485,7 @@ public class Camp {
     }
 
     private void clampStoredItems() {
-        int total = getStoredItemTotal();
+        int total = total(storedItems);
         if (total <= maxStoredItems) {
             return;
         }
@@ -369,6 +504,142 @@ public class Camp {
         }
     }
 
+    private void advance(long now) {
+        long active = activeUntil(now);
+        long regen = regenSteps(active);
+        if (regen > 0L) {
+            boolean down = hp <= 0.0;
+            hp = hpAfter(regen);
+            lastRegenAt += regen * regenIntervalMs;
+            normalizeBrokenState();
+            if (down && hp > 0.0) {
+                pendingEvents |= EVENT_REVIVED;
+            }
+        }
+        if (active < now || hp >= maxHp) {
+            // 没有燃料或血量已满时不累计恢复时间
+            lastRegenAt = Math.max(lastRegenAt, now);
+        }
+
+        if (produces()) {
+            long steps = productionSteps(active);
+            if (steps > 0L) {
+                storedMoney = moneyAfter(steps);
+                produceItems(storedItems, steps);
+                lastProductionAt += steps * productionIntervalMs;
+            }
+            if (lastProductionAt <= 0L || active < now) {
+                // 燃料耗尽期间生产暂停
+                lastProductionAt = Math.max(lastProductionAt, now);
+            }
+        }
+
+        long steps = fuelSteps(now);
+        if (steps > 0L) {
+            long remaining = fuel - steps * fuelDrain;
+            if (fuel > 0 && remaining <= 0L) {
+                pendingEvents |= EVENT_FUEL_EMPTY;
+            }
+            fuel = (int) Math.max(0L, remaining);
+            lastFuelCheckAt += steps * fuelIntervalMs;
+        } else if (drains() && lastFuelCheckAt <= 0L) {
+            lastFuelCheckAt = now;
+        }
+    }
+
+    private boolean drains() {
+        return fuelIntervalMs > 0L && fuelDrain > 0;
+    }
+
+    private boolean regenerates() {
+        return regenIntervalMs > 0L && regenAmount > 0.0;
+    }
+
+    private boolean produces() {
+        return productionIntervalMs > 0L && (productionMoney > 0.0 || !productionItems.isEmpty());
+    }
+
+    private long fuelSteps(long now) {
+        if (!drains() || lastFuelCheckAt <= 0L || now <= lastFuelCheckAt) {
+            return 0L;
+        }
+        return (now - lastFuelCheckAt) / fuelIntervalMs;
+    }
+
+    // 燃料耗尽的时刻：已耗尽时为 -1，不消耗燃料时为 Long.MAX_VALUE
+    private long fuelEmptyAt() {
+        if (fuel <= 0) {
+            return -1L;
+        }
+        if (!drains() || lastFuelCheckAt <= 0L) {
+            return Long.MAX_VALUE;
+        }
+        return lastFuelCheckAt + (fuel + (long) fuelDrain - 1L) / fuelDrain * fuelIntervalMs;
+    }
+
+    // 恢复与生产只在有燃料期间进行，返回该区间的终点；没有燃料时为 -1
+    private long activeUntil(long now) {
+        long empty = fuelEmptyAt();
+        return empty < 0L ? -1L : Math.min(now, empty);
+    }
+
+    private long regenSteps(long end) {
+        if (!regenerates() || hp >= maxHp || end <= lastRegenAt) {
+            return 0L;
+        }
+        return (end - lastRegenAt) / regenIntervalMs;
+    }
+
+    private long productionSteps(long end) {
+        if (!produces() || lastProductionAt <= 0L || end <= lastProductionAt) {
+            return 0L;
+        }
+        return (end - lastProductionAt) / productionIntervalMs;
+    }
+
+    private double hpAfter(long steps) {
+        return steps <= 0L ? hp : Math.min(maxHp, hp + steps * regenAmount);
+    }
+
+    private double moneyAfter(long steps) {
+        if (steps <= 0L || productionMoney <= 0.0 || storedMoney >= maxStoredMoney) {
+            return storedMoney;
+        }
+        return Math.min(maxStoredMoney, storedMoney + productionMoney * steps);
+    }
+
+    private void produceItems(java.util.Map<String, Integer> items, long steps) {
+        if (maxStoredItems <= 0) {
+            return;
+        }
+        int total = total(items);
+        for (java.util.Map.Entry<String, Integer> entry : productionItems.entrySet()) {
+            int amount = (int) Math.min(Integer.MAX_VALUE, entry.getValue() * steps);
+            if (amount <= 0) {
+                continue;
+            }
+            int allowed = maxStoredItems - total;
+            if (allowed <= 0) {
+                break;
+            }
+            int toStore = Math.min(allowed, amount);
+            items.merge(entry.getKey(), toStore, Integer::sum);
+            total += toStore;
+        }
+    }
+
+    private static int total(java.util.Map<String, Integer> items) {
+        int total = 0;
+        for (int amount : items.values()) {
+            total += amount;
+        }
+        return total;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+
     private void normalizeBrokenState() {
         if (hp <= 0.0) {
             if (brokenSince < 0) {
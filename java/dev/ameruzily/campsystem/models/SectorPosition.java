@@ -0,0 +1,127 @@
+package dev.ameruzily.campsystem.models;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分区核心的方块坐标，世界以数字 id 表示，坐标压缩进一个 long。
+ * 只保存世界名而不持有 World 引用，加载时世界未加载也不会丢失坐标；需要时再转换为 Location。
+ */
+public final class SectorPosition {
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1L;
+    private static final long Y_MASK = (1L << Y_BITS) - 1L;
+    private static final int Z_SHIFT = Y_BITS;
+    private static final int X_SHIFT = Y_BITS + XZ_BITS;
+
+    private static final Map<String, Integer> WORLD_IDS = new HashMap<>();
+    private static final List<String> WORLD_NAMES = new ArrayList<>();
+
+    private final int worldId;
+    private final long packed;
+
+    private SectorPosition(int worldId, long packed) {
+        this.worldId = worldId;
+        this.packed = packed;
+    }
+
+    public static SectorPosition of(String world, int x, int y, int z) {
+        if (world == null) {
+            return null;
+        }
+        return new SectorPosition(worldId(world), pack(x, y, z));
+    }
+
+    public static SectorPosition of(Location location) {
+        if (location == null || location.getWorld() == null) {
+            return null;
+        }
+        return of(location.getWorld().getName(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+    }
+
+    public static synchronized int worldId(String world) {
+        Integer id = WORLD_IDS.get(world);
+        if (id == null) {
+            id = WORLD_NAMES.size();
+            WORLD_NAMES.add(world);
+            WORLD_IDS.put(world, id);
+        }
+        return id;
+    }
+
+    public static synchronized String worldName(int worldId) {
+        return worldId >= 0 && worldId < WORLD_NAMES.size() ? WORLD_NAMES.get(worldId) : null;
+    }
+
+    public int worldId() {
+        return worldId;
+    }
+
+    public String worldName() {
+        return worldName(worldId);
+    }
+
+    public long packed() {
+        return packed;
+    }
+
+    public int x() {
+        return (int) (packed << (64 - X_SHIFT - XZ_BITS) >> (64 - XZ_BITS));
+    }
+
+    public int y() {
+        return (int) (packed << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    public int z() {
+        return (int) (packed << (64 - Z_SHIFT - XZ_BITS) >> (64 - XZ_BITS));
+    }
+
+    public boolean isIn(World world) {
+        return world != null && worldId == worldId(world.getName());
+    }
+
+    public World world() {
+        return Bukkit.getWorld(worldName());
+    }
+
+    /**
+     * 转换为 Location，世界尚未加载时返回 null。
+     */
+    public Location toLocation() {
+        World world = world();
+        return world == null ? null : new Location(world, x(), y(), z());
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SectorPosition position)) {
+            return false;
+        }
+        return worldId == position.worldId && packed == position.packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * worldId + Long.hashCode(packed);
+    }
+
+    @Override
+    public String toString() {
+        return worldName() + "(" + x() + ", " + y() + ", " + z() + ")";
+    }
+}
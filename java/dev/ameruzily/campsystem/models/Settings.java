@@ -0,0 +1,197 @@
+package dev.ameruzily.campsystem.models;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * config.yml 中高频读取的配置，启用与重载时一次性解析并校验为不可变记录。
+ * 整体通过 ConfigManager 的 volatile 引用发布，热路径直接读取字段，不再按字符串路径查找。
+ * 时间统一换算为毫秒或 tick，与原先各处的默认值和取值约定保持一致。
+ */
+public record Settings(War war, CampSettings camp, Bank bank, Sectors sectors, ColdStorage coldStorage) {
+
+    public record War(double campDamagePerHit, long capitalHoldSeconds, long declareCooldownMs, long condemnCooldownMs,
+                      long moveCooldownMs, int minimumMembers, int minimumSectors, long condemnDelayMs) {
+    }
+
+    public record CampSettings(double radius, double maxHp, double healRate, long healIntervalTicks,
+                               Fuel fuel, Maintenance maintenance) {
+    }
+
+    /**
+     * intervalMs 不大于 0 时表示不消耗燃料。
+     */
+    public record Fuel(int max, long intervalMs, int drainAmount, double zeroDamage, long checkIntervalTicks) {
+    }
+
+    /**
+     * 维护间隔为 -1 时表示不需要维护。
+     */
+    public record Maintenance(long regularIntervalMs, long capitalIntervalMs, long warningMs,
+                              long decayIntervalMs, double decayAmount) {
+    }
+
+    public record Bank(boolean enabled, int logSize, int logPageSize, double taxAmount,
+                       long taxIntervalMinutes, long taxSamplePeriodTicks) {
+    }
+
+    public record Sectors(double interStateGap, int nearDefaultResults, int nearMaxResults) {
+    }
+
+    public record ColdStorage(boolean enabled, long inactiveMs, long checkIntervalTicks, int maxPerSweep,
+                              long restoreGraceMs) {
+    }
+
+    /**
+     * 解析配置。类型错误或超出范围的值使用默认值或边界值，并把原因追加到 problems。
+     */
+    public static Settings fromConfig(ConfigurationSection config, List<String> problems) {
+        Reader r = new Reader(config, problems);
+
+        long declareSeconds = r.getLong("war.cooldowns.declare-seconds", -1L, Long.MIN_VALUE);
+        if (declareSeconds < 0L) {
+            declareSeconds = r.getLong("war.cooldown-minutes", 60L, 0L) * 60L;
+        }
+        War war = new War(
+                r.getDouble("war.camp-damage-per-hit", 5.0, 0.0),
+                r.getLong("war.capital-hold-seconds", 120L, 0L),
+                secondsToMillis(declareSeconds),
+                secondsToMillis(r.getLong("war.cooldowns.condemn-seconds", 600L, 0L)),
+                secondsToMillis(r.getLong("war.cooldowns.movecapital-seconds", 1800L, 0L)),
+                r.getInt("war.requirements.minimum-members", 0, 0),
+                r.getInt("war.requirements.minimum-sectors", 0, 0),
+                secondsToMillis(r.getLong("war.condemn-delay-seconds", 604800L, 0L)));
+
+        long fuelSeconds = r.getLong("camp.fuel.interval-seconds", 3600L, Long.MIN_VALUE);
+        Fuel fuel = new Fuel(
+                r.getInt("camp.fuel.max", 25, 0),
+                fuelSeconds <= 0L ? -1L : fuelSeconds * 1000L,
+                r.getInt("camp.fuel.drain-amount", 1, 0),
+                r.getDouble("camp.fuel.zero-damage", 0.0, 0.0),
+                r.getLong("camp.fuel.check-interval-ticks", 600L, 20L));
+
+        long regularSeconds = r.getLong("camp.maintenance.interval-seconds", 86400L, Long.MIN_VALUE);
+        long warningSeconds = r.getLong("camp.maintenance.warning-seconds", 3600L, Long.MIN_VALUE);
+        long decaySeconds = r.getLong("camp.maintenance.decay-interval-seconds", 600L, Long.MIN_VALUE);
+        Maintenance maintenance = new Maintenance(
+                maintenanceInterval(r.getLong("camp.maintenance.regular.interval-seconds", -1L, Long.MIN_VALUE), regularSeconds),
+                maintenanceInterval(r.getLong("camp.maintenance.capital.interval-seconds", -1L, Long.MIN_VALUE), regularSeconds),
+                warningSeconds <= 0L ? 0L : warningSeconds * 1000L,
+                decaySeconds <= 0L ? 1000L : decaySeconds * 1000L,
+                r.getDouble("camp.maintenance.decay-amount", 0.0, 0.0));
+
+        CampSettings camp = new CampSettings(
+                r.getDouble("camp.radius", 16.0, 1.0),
+                r.getDouble("camp.max-hp", 100.0, 1.0),
+                r.getDouble("camp.heal-rate", 0.5, 0.0),
+                r.getLong("camp.heal-interval", 600L, 1L),
+                fuel,
+                maintenance);
+
+        Bank bank = new Bank(
+                r.getBoolean("bank.enabled", true),
+                r.getInt("bank.log-size", 30, 1),
+                r.getInt("bank.log-page-size", 10, 1),
+                r.getDouble("bank.tax.amount", 0.0, 0.0),
+                r.getLong("bank.tax.interval-minutes", 30L, 1L),
+                r.getLong("bank.tax.sample-period-ticks", 1200L, 1L));
+
+        Sectors sectors = new Sectors(
+                r.getDouble("sectors.inter-state-gap", 10.0, 0.0),
+                r.getInt("sectors.near.default-results", 5, 1),
+                r.getInt("sectors.near.max-results", 20, 1));
+
+        ColdStorage coldStorage = new ColdStorage(
+                r.getBoolean("cold-storage.enabled", true),
+                r.getLong("cold-storage.inactive-days", 21L, 1L) * 24L * 60L * 60L * 1000L,
+                r.getLong("cold-storage.check-minutes", 30L, 1L) * 60L * 20L,
+                r.getInt("cold-storage.max-per-sweep", 20, 1),
+                r.getLong("cold-storage.restore-grace-minutes", 60L, 0L) * 60_000L);
+
+        return new Settings(war, camp, bank, sectors, coldStorage);
+    }
+
+    private static long secondsToMillis(long seconds) {
+        return seconds <= 0L ? 0L : seconds * 1000L;
+    }
+
+    private static long maintenanceInterval(long specificSeconds, long regularSeconds) {
+        long seconds = specificSeconds > 0L ? specificSeconds : regularSeconds;
+        return seconds <= 0L ? -1L : seconds * 1000L;
+    }
+
+    private record Reader(ConfigurationSection config, List<String> problems) {
+
+        double getDouble(String path, double def, double min) {
+            Object raw = config.get(path);
+            if (raw == null) {
+                return def;
+            }
+            double value;
+            if (raw instanceof Number number) {
+                value = number.doubleValue();
+            } else {
+                try {
+                    value = Double.parseDouble(raw.toString().trim());
+                } catch (NumberFormatException ex) {
+                    problems.add(path + ": '" + raw + "' is not a number, using " + def);
+                    return def;
+                }
+            }
+            if (!Double.isFinite(value)) {
+                problems.add(path + ": '" + raw + "' is not a number, using " + def);
+                return def;
+            }
+            if (value < min) {
+                problems.add(path + ": " + raw + " is below the minimum " + min + ", using " + min);
+                return min;
+            }
+            return value;
+        }
+
+        long getLong(String path, long def, long min) {
+            Object raw = config.get(path);
+            if (raw == null) {
+                return def;
+            }
+            long value;
+            if (raw instanceof Number number) {
+                value = number.longValue();
+            } else {
+                try {
+                    value = Long.parseLong(raw.toString().trim());
+                } catch (NumberFormatException ex) {
+                    problems.add(path + ": '" + raw + "' is not a whole number, using " + def);
+                    return def;
+                }
+            }
+            if (value < min) {
+                problems.add(path + ": " + raw + " is below the minimum " + min + ", using " + min);
+                return min;
+            }
+            return value;
+        }
+
+        int getInt(String path, int def, int min) {
+            return (int) Math.min(Integer.MAX_VALUE, getLong(path, def, min));
+        }
+
+        boolean getBoolean(String path, boolean def) {
+            Object raw = config.get(path);
+            if (raw == null) {
+                return def;
+            }
+            if (raw instanceof Boolean bool) {
+                return bool;
+            }
+            String text = raw.toString().trim().toLowerCase(Locale.ROOT);
+            if (text.equals("true") || text.equals("false")) {
+                return Boolean.parseBoolean(text);
+            }
+            problems.add(path + ": '" + raw + "' is not true/false, using " + def);
+            return def;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package dev.ameruzily.campsystem.models;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -32,22 +33,32 @@ public class WarData {
         return attacker.equalsIgnoreCase(state) || defender.equalsIgnoreCase(state);
     }
 
-    public Set<String> getAttackerSide() { return attackerSide; }
-    public Set<String> getDefenderSide() { return defenderSide; }
+    public Set<String> getAttackerSide() { return Collections.unmodifiableSet(attackerSide); }
+    public Set<String> getDefenderSide() { return Collections.unmodifiableSet(defenderSide); }
 
     public Set<String> getSideStates(String state) {
         if (state == null) {
             return Set.of();
         }
         if (attacker.equalsIgnoreCase(state)) {
-            return attackerSide;
+            return getAttackerSide();
         }
         if (defender.equalsIgnoreCase(state)) {
-            return defenderSide;
+            return getDefenderSide();
         }
         return Set.of();
     }
 
+    // 阵营变更需同步 WarRegistry 的位集，只应经由 WarRegistry.join 调用
+    public void joinSide(String state, boolean attackerSide) {
+        (attackerSide ? this.attackerSide : this.defenderSide).add(state);
+    }
+
+    public void leaveSides(String state) {
+        attackerSide.removeIf(name -> name.equalsIgnoreCase(state));
+        defenderSide.removeIf(name -> name.equalsIgnoreCase(state));
+    }
+
     public void renameState(String oldName, String newName) {
         if (attacker.equalsIgnoreCase(oldName)) {
             attacker = newName;
@@ -56,10 +67,10 @@ public class WarData {
             defender = newName;
         }
 
-        if (attackerSide.remove(oldName)) {
+        if (attackerSide.removeIf(name -> name.equalsIgnoreCase(oldName))) {
             attackerSide.add(newName);
         }
-        if (defenderSide.remove(oldName)) {
+        if (defenderSide.removeIf(name -> name.equalsIgnoreCase(oldName))) {
             defenderSide.add(newName);
         }
 
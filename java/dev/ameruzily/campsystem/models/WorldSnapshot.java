@@ -0,0 +1,282 @@
+package dev.ameruzily.campsystem.models;
+
+import java.util.*;
+
+/**
+ * 国家、分区、营地与战争的只读快照。
+ * 由主线程在数据变化后以上一份快照为基础替换变化的部分并整体发布，异步线程（PAPI、聊天、计分板等）可以无锁读取。
+ */
+public final class WorldSnapshot {
+    public static final WorldSnapshot EMPTY = new WorldSnapshot(0L, 0L, Map.of(), Map.of(), Map.of(), List.of(),
+            Map.of(), Map.of(), -1L, 0L);
+
+    private final long version;
+    private final long createdAt;
+    private final Map<String, StateView> states;
+    private final Map<UUID, String> playerStates;
+    private final Map<String, CampView> camps;
+    private final List<WarView> wars;
+    private final Map<String, CondemnationView> condemnations;
+    private final Map<String, String> pendingCivilWars;
+    private final long fuelIntervalMs;
+    private final long condemnDelayMs;
+
+    public WorldSnapshot(long version, long createdAt, Map<String, StateView> states, Map<UUID, String> playerStates,
+                         Map<String, CampView> camps, List<WarView> wars, Map<String, CondemnationView> condemnations,
+                         Map<String, String> pendingCivilWars, long fuelIntervalMs, long condemnDelayMs) {
+        this(version, createdAt, Map.copyOf(states), Map.copyOf(playerStates), Map.copyOf(camps), List.copyOf(wars),
+                Map.copyOf(condemnations), Map.copyOf(pendingCivilWars), fuelIntervalMs, condemnDelayMs, true);
+    }
+
+    // 参数已是不可修改的集合，不再复制
+    private WorldSnapshot(long version, long createdAt, Map<String, StateView> states, Map<UUID, String> playerStates,
+                          Map<String, CampView> camps, List<WarView> wars, Map<String, CondemnationView> condemnations,
+                          Map<String, String> pendingCivilWars, long fuelIntervalMs, long condemnDelayMs, boolean owned) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.states = states;
+        this.playerStates = playerStates;
+        this.camps = camps;
+        this.wars = wars;
+        this.condemnations = condemnations;
+        this.pendingCivilWars = pendingCivilWars;
+        this.fuelIntervalMs = fuelIntervalMs;
+        this.condemnDelayMs = condemnDelayMs;
+    }
+
+    /**
+     * 以本快照为基础生成新快照：states、playerStates、camps 只给出变化的条目，值为 null 表示删除，其余视图直接沿用。
+     * 战争相关的数据量很小，每次整体给出。
+     */
+    public WorldSnapshot with(long version, long createdAt, Map<String, StateView> stateChanges,
+                              Map<UUID, String> playerChanges, Map<String, CampView> campChanges, List<WarView> wars,
+                              Map<String, CondemnationView> condemnations, Map<String, String> pendingCivilWars,
+                              long fuelIntervalMs, long condemnDelayMs) {
+        return new WorldSnapshot(version, createdAt, apply(states, stateChanges), apply(playerStates, playerChanges),
+                apply(camps, campChanges), List.copyOf(wars), Map.copyOf(condemnations), Map.copyOf(pendingCivilWars),
+                fuelIntervalMs, condemnDelayMs, true);
+    }
+
+    private static <K, V> Map<K, V> apply(Map<K, V> base, Map<K, V> changes) {
+        if (changes.isEmpty()) {
+            return base;
+        }
+        Map<K, V> result = new HashMap<>(base);
+        changes.forEach((key, value) -> {
+            if (value == null) {
+                result.remove(key);
+            } else {
+                result.put(key, value);
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    public static String campKey(String state, String sector) {
+        return key(state) + "|" + key(sector);
+    }
+
+    public long version() { return version; }
+    public long createdAt() { return createdAt; }
+    public Collection<StateView> states() { return states.values(); }
+    public Collection<CampView> camps() { return camps.values(); }
+    public List<WarView> wars() { return wars; }
+    public long fuelIntervalMs() { return fuelIntervalMs; }
+
+    public StateView state(String name) {
+        return name == null ? null : states.get(key(name));
+    }
+
+    public String stateOf(UUID playerId) {
+        return playerId == null ? null : playerStates.get(playerId);
+    }
+
+    public StateView stateOfPlayer(UUID playerId) {
+        return state(stateOf(playerId));
+    }
+
+    public CampView camp(String state, String sector) {
+        if (state == null || sector == null) {
+            return null;
+        }
+        return camps.get(campKey(state, sector));
+    }
+
+    public boolean isAtWar(String a, String b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        for (WarView war : wars) {
+            if ((war.attacker().equalsIgnoreCase(a) && war.defender().equalsIgnoreCase(b))
+                    || (war.attacker().equalsIgnoreCase(b) && war.defender().equalsIgnoreCase(a))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String condemnationTarget(String state) {
+        CondemnationView view = state == null ? null : condemnations.get(key(state));
+        return view == null ? null : view.target();
+    }
+
+    /**
+     * 剩余的谴责等待时间，未处于谴责状态时返回 -1。
+     */
+    public long condemnationRemaining(String state, long now) {
+        CondemnationView view = state == null ? null : condemnations.get(key(state));
+        if (view == null) {
+            return -1L;
+        }
+        return Math.max(0L, condemnDelayMs - (now - view.startTime()));
+    }
+
+    public String pendingCivilWarTarget(String state) {
+        return state == null ? null : pendingCivilWars.get(key(state));
+    }
+
+    public boolean isCivilWarPending(String state) {
+        return state != null && pendingCivilWars.containsKey(key(state));
+    }
+
+    /**
+     * 与 WarManager#getMaintenanceInfo 相同的燃料计算，未启用燃料或营地不存在时返回 null。
+     */
+    public MaintenanceView maintenance(String state, String sector, long now) {
+        CampView camp = camp(state, sector);
+        if (camp == null || fuelIntervalMs <= 0L) {
+            return null;
+        }
+        int fuel = Math.max(0, camp.fuel(now));
+        long elapsed = Math.max(0L, now - camp.lastFuelCheckAt(now));
+        long remaining = Math.max(0L, fuelIntervalMs * fuel - elapsed);
+        boolean overdue = fuel <= 0 || remaining <= 0L;
+        boolean warning = !overdue && fuel <= Math.max(1, camp.maxFuel() / 4);
+        return new MaintenanceView(remaining, fuelIntervalMs, warning, overdue);
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    public record StateView(String name, UUID captain, Set<UUID> members, String capital, String ideologyId,
+                            double bankBalance, Map<String, SectorView> sectors) {
+        public StateView {
+            members = Set.copyOf(members);
+            sectors = Collections.unmodifiableMap(new LinkedHashMap<>(sectors));
+        }
+
+        public SectorView sector(String name) {
+            if (name == null) {
+                return null;
+            }
+            SectorView direct = sectors.get(name);
+            if (direct != null) {
+                return direct;
+            }
+            for (SectorView view : sectors.values()) {
+                if (view.name().equalsIgnoreCase(name)) {
+                    return view;
+                }
+            }
+            return null;
+        }
+    }
+
+    public record SectorView(String name, String world, int x, int y, int z, UUID owner) {
+    }
+
+    /**
+     * 营地只保存发布时的锚点与速率，血量与燃料在读取时按 now 推算（与 Camp 的读取相同），
+     * 快照不需要为随时间变化的数值定时重建。
+     */
+    public record CampView(String state, String sector, Camp.Anchors anchors, Camp.Rates rates, double maxHp, int maxFuel,
+                           double west, double east, double north, double south) {
+        public double hp(long now) {
+            return hpAfter(regenSteps(activeUntil(now)));
+        }
+
+        public double hpPercent(long now) {
+            return maxHp <= 0 ? 0.0 : (hp(now) / maxHp) * 100.0;
+        }
+
+        public boolean broken(long now) {
+            return anchors.brokenSince() >= 0L && hp(now) < Camp.BROKEN_RECOVERY_THRESHOLD;
+        }
+
+        public int fuel(long now) {
+            long steps = fuelSteps(now);
+            return steps <= 0L ? anchors.fuel() : (int) Math.max(0L, anchors.fuel() - steps * rates.fuelDrain());
+        }
+
+        public long lastFuelCheckAt(long now) {
+            return anchors.lastFuelCheckAt() + fuelSteps(now) * rates.fuelIntervalMs();
+        }
+
+        private boolean drains() {
+            return rates.fuelIntervalMs() > 0L && rates.fuelDrain() > 0;
+        }
+
+        private long fuelSteps(long now) {
+            long checkedAt = anchors.lastFuelCheckAt();
+            if (!drains() || checkedAt <= 0L || now <= checkedAt) {
+                return 0L;
+            }
+            return (now - checkedAt) / rates.fuelIntervalMs();
+        }
+
+        private long activeUntil(long now) {
+            int fuel = anchors.fuel();
+            if (fuel <= 0) {
+                return -1L;
+            }
+            if (!drains() || anchors.lastFuelCheckAt() <= 0L) {
+                return now;
+            }
+            long empty = anchors.lastFuelCheckAt() + (fuel + (long) rates.fuelDrain() - 1L) / rates.fuelDrain() * rates.fuelIntervalMs();
+            return Math.min(now, empty);
+        }
+
+        private long regenSteps(long end) {
+            if (rates.regenIntervalMs() <= 0L || rates.regenAmount() <= 0.0 || anchors.hp() >= maxHp
+                    || end <= anchors.lastRegenAt()) {
+                return 0L;
+            }
+            return (end - anchors.lastRegenAt()) / rates.regenIntervalMs();
+        }
+
+        private double hpAfter(long steps) {
+            return steps <= 0L ? anchors.hp() : Math.min(maxHp, anchors.hp() + steps * rates.regenAmount());
+        }
+    }
+
+    public record WarView(String attacker, String defender, long startTime, Set<String> attackerSide, Set<String> defenderSide) {
+        public WarView {
+            attackerSide = Set.copyOf(attackerSide);
+            defenderSide = Set.copyOf(defenderSide);
+        }
+
+        public boolean onAttackerSide(String state) {
+            return contains(attackerSide, state);
+        }
+
+        public boolean onDefenderSide(String state) {
+            return contains(defenderSide, state);
+        }
+
+        private static boolean contains(Set<String> side, String state) {
+            for (String member : side) {
+                if (member.equalsIgnoreCase(state)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public record CondemnationView(String target, long startTime) {
+    }
+
+    public record MaintenanceView(long remainingMillis, long interval, boolean warning, boolean overdue) {
+    }
+}